@@ -0,0 +1,50 @@
+package com.leakedbits.codelabs.benchmark;
+
+/**
+ * Base class of every benchmark. A benchmark measures a single operation,
+ * which is invoked repeatedly by {@link BenchmarkRunner}.
+ */
+public abstract class Benchmark {
+
+	/**
+	 * Returns a name that identifies the benchmark and its parameters.
+	 *
+	 * @return Name of the benchmark
+	 */
+	public abstract String getName();
+
+	/**
+	 * Prepares the state needed by the operation. Called once before warm up.
+	 */
+	public void setUp() {
+
+	}
+
+	/**
+	 * Executes the measured operation once.
+	 *
+	 * @return A value derived from the result so that the JIT can't remove the
+	 *         operation
+	 */
+	public abstract int run();
+
+	/**
+	 * Returns the most bytes a single operation may allocate.
+	 * {@link BenchmarkRunner} reports the benchmarks whose every measurement
+	 * iteration allocates more than this times its operations, plus a few
+	 * hundred bytes for one-off allocations, and exits with an error.
+	 *
+	 * @return Max bytes per operation, or a negative value to not check them
+	 */
+	public int getMaxBytesPerOperation() {
+		return -1;
+	}
+
+	/**
+	 * Releases the state created in {@link #setUp()}.
+	 */
+	public void tearDown() {
+
+	}
+
+}
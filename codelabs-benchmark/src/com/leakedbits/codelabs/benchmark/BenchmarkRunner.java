@@ -0,0 +1,202 @@
+package com.leakedbits.codelabs.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.badlogic.gdx.utils.GdxNativesLoader;
+
+/**
+ * Runs every benchmark with a fixed number of timed warm up and measurement
+ * iterations and prints throughput, allocation rate and garbage collections.
+ * Arguments are used as filters, only benchmarks whose name contains one of
+ * them are run. Benchmarks that allocate more than they allow (See
+ * Benchmark.getMaxBytesPerOperation()) are reported at the end and make the
+ * runner exit with status 1.
+ */
+public class BenchmarkRunner {
+
+	private static final int WARMUP_ITERATIONS = 5;
+	private static final int MEASUREMENT_ITERATIONS = 5;
+	private static final long ITERATION_TIME_NANOS = 1000000000L;
+
+	/* Operations executed between two clock checks */
+	private static final int BATCH_SIZE = 64;
+
+	/*
+	 * Bytes an iteration may allocate over the limit of its benchmark, for
+	 * one-off allocations of the JIT compiler or of the runner itself.
+	 */
+	private static final long ALLOCATION_TOLERANCE = 256;
+
+	/* Results of every operation are accumulated here to keep them alive */
+	private static int sink;
+
+	/*
+	 * Bean that reports allocated bytes, or null if it isn't available. It
+	 * is looked up once, looking it up allocates.
+	 */
+	private static com.sun.management.ThreadMXBean allocationBean;
+
+	public static void main(String[] args) {
+		/* Box2D natives are needed, but no graphics backend */
+		GdxNativesLoader.load();
+
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+		}
+
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		benchmarks.addAll(PolygonClippingBenchmark.createAll());
+		benchmarks.addAll(PolygonPropertiesBenchmark.createAll());
+		benchmarks.addAll(BuoyancyBenchmark.createAll());
+		benchmarks.addAll(BodySpawnBenchmark.createAll());
+		benchmarks.addAll(WorldRestoreBenchmark.createAll());
+
+		System.out.println(String.format("%-48s %14s %12s %8s",
+				"Benchmark", "ops/s", "B/op", "GCs"));
+
+		List<String> failures = new ArrayList<String>();
+		for (Benchmark benchmark : benchmarks) {
+			if (matches(benchmark.getName(), args)) {
+				String failure = run(benchmark);
+				if (failure != null) {
+					failures.add(failure);
+				}
+			}
+		}
+
+		if (sink == 42) {
+			System.out.println();
+		}
+
+		if (!failures.isEmpty()) {
+			System.out.println();
+			for (String failure : failures) {
+				System.out.println("FAILED " + failure);
+			}
+			System.exit(1);
+		}
+	}
+
+	private static boolean matches(String name, String[] filters) {
+		if (filters.length == 0) {
+			return true;
+		}
+
+		for (String filter : filters) {
+			if (name.contains(filter)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Measures a benchmark and prints its results.
+	 *
+	 * @return Why the benchmark failed, or null if it didn't
+	 */
+	private static String run(Benchmark benchmark) {
+		benchmark.setUp();
+
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			iterate(benchmark);
+		}
+
+		long operations = 0;
+		long elapsedNanos = 0;
+		long allocatedBytes = getAllocatedBytes();
+		long collections = getCollectionCount();
+
+		/*
+		 * Least bytes an iteration allocated over the limit of the
+		 * benchmark. Allocation done by the operations shows in every
+		 * iteration, unlike one-off allocations.
+		 */
+		int maxBytes = benchmark.getMaxBytesPerOperation();
+		long minExcessBytes = Long.MAX_VALUE;
+
+		for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+			long iterationBytes = getAllocatedBytes();
+			long start = System.nanoTime();
+			long iterationOperations = iterate(benchmark);
+			elapsedNanos += System.nanoTime() - start;
+			iterationBytes = getAllocatedBytes() - iterationBytes;
+
+			operations += iterationOperations;
+			minExcessBytes = Math.min(minExcessBytes, iterationBytes
+					- iterationOperations * maxBytes);
+		}
+
+		allocatedBytes = getAllocatedBytes() - allocatedBytes;
+		collections = getCollectionCount() - collections;
+
+		benchmark.tearDown();
+
+		double throughput = operations * 1e9 / elapsedNanos;
+		String bytesPerOperation = allocatedBytes < 0 ? "n/a" : String.format(
+				"%.1f", allocatedBytes / (double) operations);
+
+		System.out.println(String.format("%-48s %14.1f %12s %8d",
+				benchmark.getName(), throughput, bytesPerOperation,
+				collections));
+
+		if (maxBytes >= 0 && allocatedBytes >= 0
+				&& minExcessBytes > ALLOCATION_TOLERANCE) {
+			return String.format(
+					"%s: allocates %d bytes over %d B/op in every iteration",
+					benchmark.getName(), minExcessBytes, maxBytes);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Runs the operation in batches until the iteration time is over.
+	 *
+	 * @return Number of executed operations
+	 */
+	private static long iterate(Benchmark benchmark) {
+		long operations = 0;
+		long end = System.nanoTime() + ITERATION_TIME_NANOS;
+
+		do {
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				sink += benchmark.run();
+			}
+			operations += BATCH_SIZE;
+		} while (System.nanoTime() < end);
+
+		return operations;
+	}
+
+	/**
+	 * Returns the bytes allocated by the current thread, or -1 when the
+	 * virtual machine can't report them.
+	 */
+	private static long getAllocatedBytes() {
+		if (allocationBean == null) {
+			return -1;
+		}
+
+		return allocationBean.getThreadAllocatedBytes(Thread.currentThread()
+				.getId());
+	}
+
+	private static long getCollectionCount() {
+		long count = 0;
+
+		for (GarbageCollectorMXBean gcBean : ManagementFactory
+				.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gcBean.getCollectionCount());
+		}
+
+		return count;
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.leakedbits.codelabs.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.leakedbits.codelabs.box2d.utils.Box2DFactory;
+import com.leakedbits.codelabs.box2d.utils.ShapeCache;
+
+/**
+ * Measures spawning a burst of bodies one by one with Box2DFactory.createBody(),
+ * which creates and disposes a shape per body, and with the batch API using
+ * cached templates. Each burst is followed by one world step, as it would be
+ * in a frame, and then its bodies are destroyed. Without the step Box2D keeps
+ * every new proxy in its move buffer and destroying bodies gets slower and
+ * slower.
+ */
+public class BodySpawnBenchmark extends Benchmark {
+
+	private static final int[] BODY_COUNTS = { 100, 500 };
+
+	private final int bodyCount;
+	private final boolean isBatch;
+
+	private World world;
+	private ShapeCache shapeCache;
+
+	/* Packed description of the burst */
+	private int[] types;
+	private float[] positions;
+	private float[] angles;
+	private int[] templates;
+	private Body[] bodies;
+
+	public BodySpawnBenchmark(int bodyCount, boolean isBatch) {
+		this.bodyCount = bodyCount;
+		this.isBatch = isBatch;
+	}
+
+	public static List<Benchmark> createAll() {
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+		for (int bodyCount : BODY_COUNTS) {
+			benchmarks.add(new BodySpawnBenchmark(bodyCount, false));
+			benchmarks.add(new BodySpawnBenchmark(bodyCount, true));
+		}
+
+		return benchmarks;
+	}
+
+	@Override
+	public String getName() {
+		return String.format("spawn%s[bodies=%d]", isBatch ? "Batch"
+				: "Single", bodyCount);
+	}
+
+	@Override
+	public void setUp() {
+		world = new World(new Vector2(0, -9.81f), true);
+
+		shapeCache = new ShapeCache();
+		int ballTemplate = shapeCache.addTemplate(shapeCache.getCircle(0.5f),
+				1, 0.5f, 0.5f, false);
+		int boxTemplate = shapeCache.addTemplate(
+				shapeCache.getBox(0.5f, 0.5f), 1, 0.5f, 0.5f, false);
+
+		types = new int[bodyCount];
+		positions = new float[bodyCount * 2];
+		angles = new float[bodyCount];
+		templates = new int[bodyCount];
+		bodies = new Body[bodyCount];
+
+		for (int i = 0; i < bodyCount; i++) {
+			types[i] = BodyType.DynamicBody.getValue();
+			positions[i * 2] = (i % 50) * 1.5f;
+			positions[i * 2 + 1] = (i / 50) * 1.5f;
+			angles[i] = i * 0.1f;
+			templates[i] = i % 2 == 0 ? ballTemplate : boxTemplate;
+		}
+	}
+
+	@Override
+	public int run() {
+		if (isBatch) {
+			Box2DFactory.createBodies(world, shapeCache, bodyCount, types,
+					positions, angles, templates, bodies);
+		} else {
+			for (int i = 0; i < bodyCount; i++) {
+				Shape shape;
+				if (i % 2 == 0) {
+					shape = Box2DFactory.createCircleShape(0.5f);
+				} else {
+					shape = Box2DFactory.createBoxShape(0.5f, 0.5f,
+							new Vector2(0, 0), 0);
+				}
+
+				bodies[i] = Box2DFactory.createBody(world,
+						BodyType.DynamicBody, Box2DFactory.createFixture(
+								shape, 1, 0.5f, 0.5f, false), new Vector2(
+								positions[i * 2], positions[i * 2 + 1]));
+				bodies[i].setTransform(positions[i * 2],
+						positions[i * 2 + 1], angles[i]);
+			}
+		}
+
+		world.step(1 / 60f, 6, 2);
+		int count = world.getBodyCount();
+
+		for (int i = 0; i < bodyCount; i++) {
+			world.destroyBody(bodies[i]);
+			bodies[i] = null;
+		}
+
+		return count;
+	}
+
+	@Override
+	public void tearDown() {
+		shapeCache.dispose();
+		world.dispose();
+	}
+
+}
@@ -0,0 +1,161 @@
+package com.leakedbits.codelabs.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.leakedbits.codelabs.box2d.controllers.BuoyancyController;
+import com.leakedbits.codelabs.box2d.utils.Box2DFactory;
+
+/**
+ * Measures one BuoyancyController.step(), which clips every fixture against
+ * the fluids and applies the resulting forces, for different fixture and
+ * fluid region counts. Parallel variants compute forces on a fixed thread
+ * pool. Circle variants measure the analytic path against polygon clipping.
+ */
+public class BuoyancyBenchmark extends Benchmark {
+
+	private static final int[] FIXTURE_COUNTS = { 10, 100, 500 };
+	private static final int[] REGION_COUNTS = { 1, 64 };
+	private static final int[] PARALLELISMS = { 1, 4 };
+
+	/* Size of the fluid, bodies are spread along its surface */
+	private static final float FLUID_HALF_WIDTH = 50;
+	private static final float FLUID_HALF_HEIGHT = 5;
+
+	private final int fixtureCount;
+	private final int regionCount;
+	private final int parallelism;
+	private final boolean isCircle;
+
+	private World world;
+	private BuoyancyController buoyancyController;
+	private ExecutorService executor;
+
+	public BuoyancyBenchmark(int fixtureCount, int regionCount,
+			int parallelism, boolean isCircle) {
+		this.fixtureCount = fixtureCount;
+		this.regionCount = regionCount;
+		this.parallelism = parallelism;
+		this.isCircle = isCircle;
+	}
+
+	public static List<Benchmark> createAll() {
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+		for (int fixtureCount : FIXTURE_COUNTS) {
+			for (int regionCount : REGION_COUNTS) {
+				for (int parallelism : PARALLELISMS) {
+					benchmarks.add(new BuoyancyBenchmark(fixtureCount,
+							regionCount, parallelism, false));
+				}
+				benchmarks.add(new BuoyancyBenchmark(fixtureCount,
+						regionCount, 1, true));
+			}
+		}
+
+		return benchmarks;
+	}
+
+	@Override
+	public String getName() {
+		return String.format(
+				"buoyancyStep[shapes=%s, fixtures=%d, regions=%d, parallelism=%d]",
+				isCircle ? "circles" : "polygons", fixtureCount, regionCount,
+				parallelism);
+	}
+
+	@Override
+	public void setUp() {
+		world = new World(new Vector2(0, -9.81f), true);
+
+		buoyancyController = new BuoyancyController(world);
+
+		if (parallelism > 1) {
+			executor = Executors.newFixedThreadPool(parallelism - 1);
+			buoyancyController.setExecutor(executor, parallelism);
+		}
+
+		/*
+		 * Create the fluid split in side by side regions, its surface is at
+		 * y = 0
+		 */
+		float regionHalfWidth = FLUID_HALF_WIDTH / regionCount;
+		Shape shape;
+		FixtureDef fixtureDef;
+		for (int i = 0; i < regionCount; i++) {
+			shape = Box2DFactory.createBoxShape(regionHalfWidth,
+					FLUID_HALF_HEIGHT, new Vector2(0, 0), 0);
+			fixtureDef = Box2DFactory.createFixture(shape, 1, 0.1f, 0, true);
+			Body fluid = Box2DFactory.createBody(world, BodyType.StaticBody,
+					fixtureDef, new Vector2(-FLUID_HALF_WIDTH + regionHalfWidth
+							* (2 * i + 1), -FLUID_HALF_HEIGHT));
+
+			buoyancyController.addFluid(fluid.getFixtureList().first());
+		}
+
+		/*
+		 * Create partially submerged circles, or boxes and triangles, with
+		 * some velocity
+		 */
+		float spacing = 2 * FLUID_HALF_WIDTH / fixtureCount;
+		for (int i = 0; i < fixtureCount; i++) {
+			if (isCircle) {
+				shape = Box2DFactory.createCircleShape(0.4f);
+			} else if (i % 2 == 0) {
+				shape = Box2DFactory.createBoxShape(0.4f, 0.4f, new Vector2(0,
+						0), 0);
+			} else {
+				shape = Box2DFactory.createTriangleShape(0.4f, 0.4f);
+			}
+			fixtureDef = Box2DFactory.createFixture(shape, 0.5f, 0.5f, 0.5f,
+					false);
+			Body body = Box2DFactory.createBody(world, BodyType.DynamicBody,
+					fixtureDef, new Vector2(-FLUID_HALF_WIDTH + spacing
+							* (i + 0.5f), 0));
+			body.setTransform(body.getPosition(), i * 0.1f);
+			body.setLinearVelocity(1, -1);
+			body.setAngularVelocity(0.5f);
+
+			buoyancyController.addBody(body.getFixtureList().first());
+		}
+	}
+
+	/**
+	 * Stepping the controller on the calling thread must not allocate. The
+	 * parallel variants are not checked, handing work to the executor may
+	 * allocate in the executor itself.
+	 */
+	@Override
+	public int getMaxBytesPerOperation() {
+		return parallelism == 1 ? 0 : -1;
+	}
+
+	@Override
+	public int run() {
+		buoyancyController.step();
+
+		/* Forces are not consumed by a world step, so clear them here */
+		world.clearForces();
+
+		return world.getBodyCount();
+	}
+
+	@Override
+	public void tearDown() {
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+
+		world.dispose();
+	}
+
+}
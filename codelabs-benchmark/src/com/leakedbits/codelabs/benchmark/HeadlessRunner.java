@@ -0,0 +1,340 @@
+package com.leakedbits.codelabs.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.InputProcessor;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.LongArray;
+import com.leakedbits.codelabs.box2d.SpawnBodiesSample;
+import com.leakedbits.codelabs.box2d.utils.Box2DSamples;
+import com.leakedbits.codelabs.utils.InputLog;
+import com.leakedbits.codelabs.utils.Sample;
+import com.leakedbits.codelabs.utils.SampleDescriptor;
+
+/**
+ * Runs the physics of every Box2D sample without a GL context. Each sample
+ * builds its world with createWorld() and is stepped a fixed number of times
+ * while synthetic touches are injected at random points of the screen.
+ * Prints steps per second, mean and 99th percentile step time and the number
+ * of bodies and contacts.
+ *
+ * Options are --steps, --touch-interval (steps between touches, 0 to
+ * disable), --width, --height and --seed. Any other argument is used as a
+ * filter, only samples whose class name contains one of them are run.
+ *
+ * With --stress the stress test of SpawnBodiesSample is run. That sample is
+ * stepped until the test stops, regardless of --steps, and its curve is
+ * written to the file given with --csv. While recording, the test runs
+ * until the body ceiling is reached.
+ *
+ * With --record the input of each sample is recorded and written to a file
+ * named after it in the given directory. With --replay the log in the given
+ * file is replayed instead, and the checksum of the bodies at the end is
+ * compared with the recorded one. The runner exits with an error if they
+ * differ.
+ */
+public class HeadlessRunner {
+
+	private static final int DEFAULT_STEPS = 3600;
+	private static final int DEFAULT_TOUCH_INTERVAL = 30;
+
+	/* Same screen size as the desktop application */
+	private static final int DEFAULT_WIDTH = 800;
+	private static final int DEFAULT_HEIGHT = 600;
+
+	/* Number of steps a synthetic touch is held and dragged */
+	private static final int TOUCH_STEPS = 10;
+
+	private int steps = DEFAULT_STEPS;
+	private int touchInterval = DEFAULT_TOUCH_INTERVAL;
+	private int width = DEFAULT_WIDTH;
+	private int height = DEFAULT_HEIGHT;
+	private long seed = 1;
+	private boolean isStress;
+	private String csvFileName = "spawn-stress.csv";
+	private String recordDirectory;
+	private String replayFileName;
+	private String[] filters = new String[0];
+
+	public static void main(String[] args) {
+		/* Box2D natives are needed, but no graphics backend */
+		GdxNativesLoader.load();
+
+		HeadlessRunner runner = new HeadlessRunner();
+		runner.parseArguments(args);
+
+		if (runner.replayFileName != null) {
+			if (!runner.replay()) {
+				System.exit(1);
+			}
+		} else {
+			runner.runAll();
+		}
+	}
+
+	private void parseArguments(String[] args) {
+		int filterCount = 0;
+		filters = new String[args.length];
+
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+
+			if (arg.equals("--stress")) {
+				isStress = true;
+				continue;
+			}
+
+			if (arg.startsWith("--") && i + 1 == args.length) {
+				throw new IllegalArgumentException("Missing value of " + arg);
+			}
+
+			if (arg.equals("--steps")) {
+				steps = Integer.parseInt(args[++i]);
+			} else if (arg.equals("--touch-interval")) {
+				touchInterval = Integer.parseInt(args[++i]);
+			} else if (arg.equals("--width")) {
+				width = Integer.parseInt(args[++i]);
+			} else if (arg.equals("--height")) {
+				height = Integer.parseInt(args[++i]);
+			} else if (arg.equals("--seed")) {
+				seed = Long.parseLong(args[++i]);
+			} else if (arg.equals("--csv")) {
+				csvFileName = args[++i];
+			} else if (arg.equals("--record")) {
+				recordDirectory = args[++i];
+			} else if (arg.equals("--replay")) {
+				replayFileName = args[++i];
+			} else if (arg.startsWith("--")) {
+				throw new IllegalArgumentException("Unknown option " + arg);
+			} else {
+				filters[filterCount++] = arg;
+			}
+		}
+
+		filters = Arrays.copyOf(filters, filterCount);
+	}
+
+	private void runAll() {
+		printHeader();
+
+		for (SampleDescriptor descriptor : Box2DSamples.SAMPLES
+				.getDescriptors()) {
+			if (matches(descriptor.getId())) {
+				run(descriptor);
+			}
+		}
+	}
+
+	private boolean matches(String name) {
+		if (filters.length == 0) {
+			return true;
+		}
+
+		for (String filter : filters) {
+			if (name.contains(filter)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void run(SampleDescriptor descriptor) {
+		Sample sample = descriptor.create();
+		sample.setSeed(seed);
+		sample.createWorld(width, height);
+
+		/* Recording rebuilds the world, so it is read afterwards */
+		if (recordDirectory != null) {
+			sample.startRecording();
+		}
+		World world = sample.getWorld();
+
+		/* Touches go through the recorder while recording */
+		InputProcessor input = sample.getInputProcessor();
+
+		SpawnBodiesSample stressSample = null;
+		if (isStress && sample instanceof SpawnBodiesSample) {
+			stressSample = (SpawnBodiesSample) sample;
+
+			/* Pressing S is recorded, so a stress session can be replayed */
+			input.keyDown(Keys.S);
+		}
+
+		/* Every sample gets the same touches for a given seed */
+		Random random = new Random(seed);
+		int touchX = 0;
+		int touchY = 0;
+
+		LongArray stepTimes = new LongArray(steps);
+		int maxContacts = 0;
+
+		for (int step = 0; stressSample != null ? stressSample
+				.isStressTestRunning() : step < steps; step++) {
+			if (touchInterval > 0) {
+				int touchStep = step % touchInterval;
+
+				if (touchStep == 0) {
+					touchX = random.nextInt(width);
+					touchY = random.nextInt(height);
+					input.touchDown(touchX, touchY, 0, 0);
+				} else if (touchStep < TOUCH_STEPS) {
+					touchX = clamp(touchX + random.nextInt(21) - 10, width);
+					touchY = clamp(touchY + random.nextInt(21) - 10, height);
+					input.touchDragged(touchX, touchY, 0);
+				} else if (touchStep == TOUCH_STEPS) {
+					input.touchUp(touchX, touchY, 0, 0);
+				}
+			}
+
+			long start = System.nanoTime();
+			sample.step();
+			stepTimes.add(System.nanoTime() - start);
+
+			maxContacts = Math.max(maxContacts, world.getContactCount());
+		}
+
+		int bodyCount = world.getBodyCount();
+		if (stressSample != null) {
+			writeStressCurve(stressSample);
+		}
+		if (recordDirectory != null) {
+			writeLog(sample.stopRecording(), new File(recordDirectory,
+					descriptor.getId() + ".replay"));
+		}
+		sample.disposeWorld();
+
+		printResult(descriptor.getId(), stepTimes, bodyCount, maxContacts);
+	}
+
+	/**
+	 * Replays the log given with --replay, timing each step.
+	 *
+	 * @return Whether the bodies ended with the recorded checksum
+	 */
+	private boolean replay() {
+		InputLog log = readLog(new File(replayFileName));
+
+		/* Samples are registered with their class simple name */
+		String className = log.sampleClassName;
+		Sample sample = Box2DSamples.SAMPLES.create(className
+				.substring(className.lastIndexOf('.') + 1));
+		if (sample == null) {
+			throw new GdxRuntimeException("Unknown sample " + className);
+		}
+
+		sample.startReplay(log);
+		World world = sample.getWorld();
+
+		LongArray stepTimes = new LongArray(log.stepCount);
+		int maxContacts = 0;
+
+		while (sample.isReplaying()) {
+			long start = System.nanoTime();
+			sample.step();
+			stepTimes.add(System.nanoTime() - start);
+
+			maxContacts = Math.max(maxContacts, world.getContactCount());
+		}
+
+		int bodyCount = world.getBodyCount();
+		long checksum = InputLog.checksum(world, new Array<Body>());
+		sample.disposeWorld();
+
+		printHeader();
+		printResult(sample.getClass().getSimpleName(), stepTimes, bodyCount,
+				maxContacts);
+
+		boolean matches = checksum == log.checksum;
+		System.out.println(String.format(
+				"%d steps, %d events, checksum %016x, recorded %016x: %s",
+				stepTimes.size, log.size(), checksum, log.checksum,
+				matches ? "OK" : "MISMATCH"));
+
+		return matches;
+	}
+
+	private void printHeader() {
+		System.out.println(String.format("%-28s %12s %10s %10s %8s %9s",
+				"Sample", "steps/s", "mean ms", "p99 ms", "bodies", "contacts"));
+	}
+
+	private void printResult(String name, LongArray stepTimes, int bodyCount,
+			int maxContacts) {
+		int stepCount = stepTimes.size;
+		long totalTime = 0;
+		for (int i = 0; i < stepCount; i++) {
+			totalTime += stepTimes.get(i);
+		}
+		stepTimes.sort();
+		long p99Time = stepCount > 0 ? stepTimes
+				.get((int) ((stepCount - 1) * 0.99)) : 0;
+
+		System.out.println(String.format("%-28s %12.1f %10.4f %10.4f %8d %9d",
+				name, stepCount * 1e9 / totalTime,
+				totalTime / 1e6 / stepCount, p99Time / 1e6, bodyCount,
+				maxContacts));
+	}
+
+	private void writeStressCurve(SpawnBodiesSample sample) {
+		try {
+			Writer writer = new FileWriter(csvFileName);
+			try {
+				sample.writeStressCurve(writer);
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			throw new GdxRuntimeException("Can't write " + csvFileName, e);
+		}
+	}
+
+	private void writeLog(InputLog log, File file) {
+		try {
+			OutputStream stream = new BufferedOutputStream(
+					new FileOutputStream(file));
+			try {
+				log.write(stream);
+			} finally {
+				stream.close();
+			}
+		} catch (IOException e) {
+			throw new GdxRuntimeException("Can't write " + file, e);
+		}
+	}
+
+	private InputLog readLog(File file) {
+		try {
+			InputStream stream = new BufferedInputStream(new FileInputStream(
+					file));
+			try {
+				return InputLog.read(stream);
+			} finally {
+				stream.close();
+			}
+		} catch (IOException e) {
+			throw new GdxRuntimeException("Can't read " + file, e);
+		}
+	}
+
+	private static int clamp(int value, int size) {
+		return Math.max(0, Math.min(value, size - 1));
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.leakedbits.codelabs.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.leakedbits.codelabs.utils.PolygonIntersector;
+
+/**
+ * Compares PolygonIntersector.clipPolygons() on lists of vectors with the
+ * flat array intersectPolygons() for different vertex counts and overlap
+ * ratios.
+ */
+public class PolygonClippingBenchmark extends Benchmark {
+
+	private static final int[] VERTEX_COUNTS = { 4, 8, 16 };
+	private static final float[] OVERLAP_RATIOS = { 0.25f, 0.5f, 1 };
+
+	private final int vertexCount;
+	private final float overlapRatio;
+	private final boolean isFlat;
+
+	private List<Vector2> subjectPolygon;
+	private List<Vector2> clipPolygon;
+	private float[] subjectVertices;
+	private float[] clipVertices;
+	private float[] intersectionVertices;
+	private float[] buffer;
+
+	public PolygonClippingBenchmark(int vertexCount, float overlapRatio,
+			boolean isFlat) {
+		this.vertexCount = vertexCount;
+		this.overlapRatio = overlapRatio;
+		this.isFlat = isFlat;
+	}
+
+	public static List<Benchmark> createAll() {
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+		for (int vertexCount : VERTEX_COUNTS) {
+			for (float overlapRatio : OVERLAP_RATIOS) {
+				benchmarks.add(new PolygonClippingBenchmark(vertexCount,
+						overlapRatio, false));
+				benchmarks.add(new PolygonClippingBenchmark(vertexCount,
+						overlapRatio, true));
+			}
+		}
+
+		return benchmarks;
+	}
+
+	@Override
+	public String getName() {
+		return String.format("clip%s[vertices=%d, overlap=%.2f]",
+				isFlat ? "Flat" : "List", vertexCount, overlapRatio);
+	}
+
+	@Override
+	public void setUp() {
+		/*
+		 * Both polygons have a radius of 1. The clip polygon is displaced so
+		 * that the overlapping width is the given ratio of the diameter.
+		 */
+		subjectVertices = createRegularPolygon(vertexCount, 0, 0);
+		clipVertices = createRegularPolygon(vertexCount,
+				2 * (1 - overlapRatio), 0);
+
+		subjectPolygon = toList(subjectVertices);
+		clipPolygon = toList(clipVertices);
+
+		int capacity = PolygonIntersector.getClippingCapacity(vertexCount,
+				vertexCount);
+		intersectionVertices = new float[capacity * 2];
+		buffer = new float[capacity * 2];
+	}
+
+	/**
+	 * The flat array variant must not allocate.
+	 */
+	@Override
+	public int getMaxBytesPerOperation() {
+		return isFlat ? 0 : -1;
+	}
+
+	@Override
+	public int run() {
+		if (isFlat) {
+			return PolygonIntersector.intersectPolygons(subjectVertices,
+					clipVertices, intersectionVertices, buffer);
+		} else {
+			return PolygonIntersector.clipPolygons(subjectPolygon, clipPolygon)
+					.size();
+		}
+	}
+
+	/**
+	 * Creates a counterclockwise regular polygon of radius 1.
+	 */
+	static float[] createRegularPolygon(int vertexCount, float centerX,
+			float centerY) {
+		float[] vertices = new float[vertexCount * 2];
+
+		for (int i = 0; i < vertexCount; i++) {
+			float angle = MathUtils.PI2 * i / vertexCount;
+			vertices[i * 2] = centerX + MathUtils.cos(angle);
+			vertices[i * 2 + 1] = centerY + MathUtils.sin(angle);
+		}
+
+		return vertices;
+	}
+
+	static List<Vector2> toList(float[] vertices) {
+		List<Vector2> list = new ArrayList<Vector2>(vertices.length / 2);
+
+		for (int i = 0; i < vertices.length; i += 2) {
+			list.add(new Vector2(vertices[i], vertices[i + 1]));
+		}
+
+		return list;
+	}
+
+}
@@ -0,0 +1,194 @@
+package com.leakedbits.codelabs.benchmark;
+
+import java.util.List;
+
+import com.badlogic.gdx.math.Polygon;
+import com.badlogic.gdx.math.Vector2;
+import com.leakedbits.codelabs.utils.PolygonIntersector;
+
+/**
+ * Checks that both flat array variants of
+ * PolygonIntersector.intersectPolygons() give the same vertices as
+ * clipPolygons() on lists of vectors, and the expected area, for overlapping, contained, separated and touching polygons.
+ * The non-allocating variant starts with arrays that only fit the vertices
+ * of both polygons, so inputs that need more go through its -1 result. Clip
+ * polygons are convex and every polygon is counterclockwise. Prints a line
+ * per case and exits with status 1 if any of them fails.
+ */
+public class PolygonClippingCheck {
+
+	private static final float TOLERANCE = 1e-5f;
+
+	private static int failures;
+
+	public static void main(String[] args) {
+		float[] square = createBox(0, 0, 1, 1);
+
+		check("convex overlap", PolygonClippingBenchmark.createRegularPolygon(
+				8, 0, 0), PolygonClippingBenchmark.createRegularPolygon(8, 1,
+				0), -1);
+		check("convex half overlap", square, createBox(0.5f, 0, 1.5f, 1), 0.5f);
+		check("convex corner overlap", square,
+				createBox(0.5f, 0.5f, 1.5f, 1.5f), 0.25f);
+
+		/* L shape of 3 square units, its notch is the upper right unit */
+		float[] lShape = new float[] { 0, 0, 2, 0, 2, 1, 1, 1, 1, 2, 0, 2 };
+		check("concave overlap", lShape, createBox(0.5f, 0.5f, 2.5f, 2.5f),
+				1.25f);
+		check("concave notch", lShape, createBox(1.25f, 1.25f, 1.75f, 1.75f),
+				0);
+
+		/* Comb with two teeth, clipped across both of them */
+		float[] comb = new float[] { 0, 0, 3, 0, 3, 2, 2, 2, 2, 1, 1, 1, 1,
+				2, 0, 2 };
+		check("concave comb", comb, createBox(-1, 0.5f, 4, 1.5f), 2.5f);
+
+		check("subject inside clip", createBox(0.25f, 0.25f, 0.75f, 0.75f),
+				square, 0.25f);
+		check("clip inside subject", square,
+				createBox(0.25f, 0.25f, 0.75f, 0.75f), 0.25f);
+		check("same polygon", square, square, 1);
+
+		check("no overlap", square, createBox(2, 0, 3, 1), 0);
+		check("shared edge", square, createBox(1, 0, 2, 1), 0);
+		check("shared vertex", square, createBox(1, 1, 2, 2), 0);
+		check("shared edge inside", square, createBox(0, 0, 0.5f, 1), 0.5f);
+
+		/* Rounding at the shared vertex gives more vertices than both have */
+		check("shared vertex overlap", new float[] { -1.5f, 2.5f, -1, -1, 2,
+				0.5f }, new float[] { -0.5f, 3, -1.5f, 2.5f, 1.5f, -0.5f }, -1);
+
+		check("concave sawtooth", createSawtooth(10), createBox(-1, 0.25f,
+				11, 0.75f), 4.375f);
+
+		if (failures > 0) {
+			System.out.println(failures + " checks failed");
+			System.exit(1);
+		}
+
+		System.out.println("All checks passed");
+	}
+
+	/**
+	 * Clips a subject with both implementations and compares the results.
+	 *
+	 * @param expectedArea Area of the intersection, or a negative value to
+	 *        only compare both implementations
+	 */
+	private static void check(String name, float[] subjectVertices,
+			float[] clipVertices, float expectedArea) {
+		List<Vector2> listResult = PolygonIntersector.clipPolygons(
+				PolygonClippingBenchmark.toList(subjectVertices),
+				PolygonClippingBenchmark.toList(clipVertices));
+
+		/* Start with room for both polygons and grow when it isn't enough */
+		int capacity = subjectVertices.length + clipVertices.length;
+		float[] flatResult;
+		int count;
+		do {
+			flatResult = new float[capacity];
+			count = PolygonIntersector.intersectPolygons(subjectVertices,
+					clipVertices, flatResult, new float[capacity]);
+			capacity *= 2;
+		} while (count == -1);
+
+		String error = compare("flat", flatResult, count, listResult);
+
+		float area = count < 3 ? 0 : getArea(flatResult, count);
+		if (error == null && expectedArea >= 0
+				&& Math.abs(area - expectedArea) > TOLERANCE) {
+			error = "area is " + area + ", expected " + expectedArea;
+		}
+
+		/* The allocating variant returns null when there is no area */
+		Polygon polygon = PolygonIntersector.intersectPolygons(
+				subjectVertices, clipVertices);
+		if (error == null && (polygon == null) != (count < 3)) {
+			error = "allocating variant returned " + polygon;
+		}
+		if (error == null && polygon != null) {
+			float[] vertices = polygon.getVertices();
+			error = compare("allocating", vertices, vertices.length / 2,
+					listResult);
+		}
+
+		if (error == null) {
+			System.out.println(String.format("ok     %-24s %d vertices, area %.4f",
+					name, count, area));
+		} else {
+			System.out.println(String.format("FAILED %-24s %s", name, error));
+			failures++;
+		}
+	}
+
+	/**
+	 * Compares flat vertices with the result of the list variant.
+	 *
+	 * @return The difference, or null if there is none
+	 */
+	private static String compare(String variant, float[] vertices,
+			int count, List<Vector2> listResult) {
+		if (count != listResult.size()) {
+			return variant + " has " + count + " vertices, list has "
+					+ listResult.size();
+		}
+
+		for (int i = 0; i < count; i++) {
+			Vector2 vertex = listResult.get(i);
+			if (Math.abs(vertices[i * 2] - vertex.x) > TOLERANCE
+					|| Math.abs(vertices[i * 2 + 1] - vertex.y) > TOLERANCE) {
+				return variant + " vertex " + i + " is (" + vertices[i * 2]
+						+ ", " + vertices[i * 2 + 1] + "), list has " + vertex;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Creates a counterclockwise sawtooth on a flat base from x = 0 to x =
+	 * teeth. Teeth go from y = 0.5 to y = 1 and are one unit wide.
+	 */
+	private static float[] createSawtooth(int teeth) {
+		float[] vertices = new float[(teeth * 2 + 3) * 2];
+		int index = 0;
+
+		vertices[index++] = 0;
+		vertices[index++] = 0;
+		vertices[index++] = teeth;
+		vertices[index++] = 0;
+
+		for (int i = teeth; i > 0; i--) {
+			vertices[index++] = i;
+			vertices[index++] = 1;
+			vertices[index++] = i - 0.5f;
+			vertices[index++] = 0.5f;
+		}
+
+		vertices[index++] = 0;
+		vertices[index++] = 1;
+
+		return vertices;
+	}
+
+	/**
+	 * Creates a counterclockwise axis aligned box.
+	 */
+	private static float[] createBox(float lowerX, float lowerY,
+			float upperX, float upperY) {
+		return new float[] { lowerX, lowerY, upperX, lowerY, upperX, upperY,
+				lowerX, upperY };
+	}
+
+	private static float getArea(float[] vertices, int count) {
+		float area = 0;
+
+		for (int i = 0, j = count - 1; i < count; j = i++) {
+			area += vertices[j * 2] * vertices[i * 2 + 1] - vertices[i * 2]
+					* vertices[j * 2 + 1];
+		}
+
+		return area / 2;
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.leakedbits.codelabs.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.badlogic.gdx.math.Vector2;
+import com.leakedbits.codelabs.box2d.utils.PolygonProperties;
+import com.leakedbits.codelabs.utils.PolygonIntersector;
+
+/**
+ * Measures PolygonIntersector.computePolygonProperties() on vector arrays and
+ * on flat arrays.
+ */
+public class PolygonPropertiesBenchmark extends Benchmark {
+
+	private static final int[] VERTEX_COUNTS = { 4, 8, 16 };
+
+	private final int vertexCount;
+	private final boolean isFlat;
+
+	private Vector2[] polygon;
+	private float[] vertices;
+	private PolygonProperties polygonProperties;
+
+	public PolygonPropertiesBenchmark(int vertexCount, boolean isFlat) {
+		this.vertexCount = vertexCount;
+		this.isFlat = isFlat;
+	}
+
+	public static List<Benchmark> createAll() {
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+		for (int vertexCount : VERTEX_COUNTS) {
+			benchmarks.add(new PolygonPropertiesBenchmark(vertexCount, false));
+			benchmarks.add(new PolygonPropertiesBenchmark(vertexCount, true));
+		}
+
+		return benchmarks;
+	}
+
+	@Override
+	public String getName() {
+		return String.format("properties%s[vertices=%d]", isFlat ? "Flat"
+				: "Vector", vertexCount);
+	}
+
+	@Override
+	public void setUp() {
+		vertices = PolygonClippingBenchmark.createRegularPolygon(vertexCount,
+				0.5f, 0.5f);
+		polygon = PolygonClippingBenchmark.toList(vertices).toArray(
+				new Vector2[vertexCount]);
+		polygonProperties = new PolygonProperties();
+	}
+
+	@Override
+	public int run() {
+		PolygonProperties properties;
+
+		if (isFlat) {
+			properties = PolygonIntersector.computePolygonProperties(vertices,
+					vertexCount, polygonProperties);
+		} else {
+			properties = PolygonIntersector.computePolygonProperties(polygon);
+		}
+
+		return Float.floatToRawIntBits(properties.getArea());
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.leakedbits.codelabs.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.leakedbits.codelabs.box2d.utils.Box2DFactory;
+import com.leakedbits.codelabs.box2d.utils.ShapeCache;
+import com.leakedbits.codelabs.box2d.utils.WorldSerializer;
+
+/**
+ * Measures rebuilding a world of walls and mixed bodies, either constructing
+ * it with Box2DFactory, which creates and disposes a shape per body, or
+ * restoring it from a buffer written by WorldSerializer. The world is
+ * disposed in both cases.
+ */
+public class WorldRestoreBenchmark extends Benchmark {
+
+	private static final int[] BODY_COUNTS = { 100, 500 };
+
+	private final int bodyCount;
+	private final boolean isRestore;
+
+	private ShapeCache shapeCache;
+	private ByteBuffer buffer;
+
+	public WorldRestoreBenchmark(int bodyCount, boolean isRestore) {
+		this.bodyCount = bodyCount;
+		this.isRestore = isRestore;
+	}
+
+	public static List<Benchmark> createAll() {
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+		for (int bodyCount : BODY_COUNTS) {
+			benchmarks.add(new WorldRestoreBenchmark(bodyCount, false));
+			benchmarks.add(new WorldRestoreBenchmark(bodyCount, true));
+		}
+
+		return benchmarks;
+	}
+
+	@Override
+	public String getName() {
+		return String.format("world%s[bodies=%d]", isRestore ? "Restore"
+				: "Build", bodyCount);
+	}
+
+	@Override
+	public void setUp() {
+		shapeCache = new ShapeCache();
+
+		World world = build();
+		buffer = WorldSerializer.write(world, null);
+		world.dispose();
+	}
+
+	@Override
+	public int run() {
+		World world;
+
+		if (isRestore) {
+			world = new World(new Vector2(), true);
+			buffer.rewind();
+			WorldSerializer.read(buffer, world, shapeCache, null);
+		} else {
+			world = build();
+		}
+
+		int count = world.getBodyCount();
+		world.dispose();
+
+		return count;
+	}
+
+	@Override
+	public void tearDown() {
+		shapeCache.dispose();
+	}
+
+	private World build() {
+		World world = new World(new Vector2(0, -9.81f), true);
+		Box2DFactory.createWalls(world, 40, 30, 1);
+
+		for (int i = 0; i < bodyCount; i++) {
+			Shape shape;
+			if (i % 3 == 0) {
+				shape = Box2DFactory.createCircleShape(0.25f);
+			} else if (i % 3 == 1) {
+				shape = Box2DFactory.createBoxShape(0.25f, 0.25f, new Vector2(
+						0, 0), 0);
+			} else {
+				shape = Box2DFactory.createTriangleShape(0.25f, 0.25f);
+			}
+
+			Box2DFactory.createBody(world, BodyType.DynamicBody, Box2DFactory
+					.createFixture(shape, 1, 0.5f, 0.5f, false), new Vector2(
+					-18 + (i % 60) * 0.6f, -13 + (i / 60) * 0.6f));
+		}
+
+		return world;
+	}
+
+}
@@ -1,6 +1,12 @@
 package com.leakedbits.codelabs;
 
 import com.badlogic.gdx.Game;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
+import com.leakedbits.codelabs.utils.AssetCache;
+import com.leakedbits.codelabs.utils.PerformanceOverlay;
+import com.leakedbits.codelabs.utils.Sample;
 
 public class Codelabs extends Game {
 
@@ -8,10 +14,87 @@ public class Codelabs extends Game {
 	public static final String VERSION = "v0.6.0";
 	
 	public static final float TARGET_WIDTH = 800;
+
+	/* Draws the metrics of the current sample, created when first needed */
+	private PerformanceOverlay overlay;
+
+	/* Textures and skins shared by every screen */
+	private AssetCache assets;
+
+	/* Renderer shared by every sample, created when first needed */
+	private Box2DDebugRenderer debugRenderer;
 			
 	@Override
 	public void create() {
+		assets = new AssetCache();
 		setScreen(new SplashScreen());
 	}
+
+	/**
+	 * Gets the assets of the running application.
+	 */
+	public static AssetCache getAssets() {
+		return ((Codelabs) Gdx.app.getApplicationListener()).assets;
+	}
+
+	/**
+	 * Gets the debug renderer shared by every sample. Its shaders are only
+	 * compiled once, instead of each time a sample is entered.
+	 */
+	public static Box2DDebugRenderer getDebugRenderer() {
+		Codelabs codelabs = (Codelabs) Gdx.app.getApplicationListener();
+
+		if (codelabs.debugRenderer == null) {
+			codelabs.debugRenderer = new Box2DDebugRenderer();
+		}
+
+		return codelabs.debugRenderer;
+	}
+
+	@Override
+	public void render() {
+		Screen screen = getScreen();
+		long start = System.nanoTime();
+
+		super.render();
+
+		/* Skip the frame if the sample was left while rendering */
+		if (screen instanceof Sample && screen == getScreen()) {
+			Sample sample = (Sample) screen;
+			sample.recordFrame(System.nanoTime() - start);
+
+			if (sample.isOverlayVisible()) {
+				if (overlay == null) {
+					overlay = new PerformanceOverlay();
+					overlay.resize(Gdx.graphics.getWidth(),
+							Gdx.graphics.getHeight());
+				}
+				overlay.render(sample.getMetrics(), Gdx.graphics.getHeight());
+			}
+		}
+	}
+
+	@Override
+	public void resize(int width, int height) {
+		super.resize(width, height);
+
+		if (overlay != null) {
+			overlay.resize(width, height);
+		}
+	}
+
+	@Override
+	public void dispose() {
+		super.dispose();
+
+		if (overlay != null) {
+			overlay.dispose();
+		}
+		assets.dispose();
+		if (debugRenderer != null) {
+			debugRenderer.dispose();
+		}
+		Sample.getWorldPool().clear();
+	}
 	
 }
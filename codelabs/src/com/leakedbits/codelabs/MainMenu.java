@@ -6,8 +6,8 @@ import java.util.List;
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.assets.loaders.SkinLoader.SkinParameter;
 import com.badlogic.gdx.graphics.GL20;
-import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.scenes.scene2d.EventListener;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
@@ -18,8 +18,8 @@ import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.leakedbits.codelabs.box2d.utils.Box2DSamples;
-import com.leakedbits.codelabs.utils.Sample;
-import com.leakedbits.codelabs.utils.SampleUtils;
+import com.leakedbits.codelabs.utils.AssetCache;
+import com.leakedbits.codelabs.utils.SampleDescriptor;
 
 public class MainMenu implements Screen {
 
@@ -28,7 +28,6 @@ public class MainMenu implements Screen {
 	private Skin skin;
 	private Stage stage;
 	private Table table;
-	private TextureAtlas atlas;
 
 	@Override
 	public void render(float delta) {
@@ -53,9 +52,12 @@ public class MainMenu implements Screen {
 		
 		Gdx.input.setInputProcessor(stage);
 
-		atlas = new TextureAtlas("data/ui/atlas.pack");
-		
-		skin = new Skin(Gdx.files.internal("data/ui/menu_skin.json"), atlas);
+		/*
+		 * The skin and its atlas are preloaded during the splash screen and
+		 * kept loaded, so showing the menu again doesn't read them from disk.
+		 */
+		skin = Codelabs.getAssets().acquire(AssetCache.MENU_SKIN, Skin.class,
+				new SkinParameter(AssetCache.MENU_ATLAS));
 
 		table = new Table(skin);
 		table.setFillParent(true);
@@ -63,15 +65,16 @@ public class MainMenu implements Screen {
 
 		List<TextButton> textButtons = new ArrayList<TextButton>();
 
-		for (String name : SampleUtils.getNames(Box2DSamples.SAMPLES, false)) {
-			final Sample sample = SampleUtils.instantiateSample(
-					Box2DSamples.SAMPLES, name);
-			textButtons.add(createTextButton(sample.getName(), skin, "blue",
-					new ClickListener() {
+		/* Samples are only created when their button is clicked */
+		for (final SampleDescriptor descriptor : Box2DSamples.SAMPLES
+				.getDescriptors()) {
+			textButtons.add(createTextButton(descriptor.getName(), skin,
+					"blue", new ClickListener() {
 						@Override
 						public void clicked(InputEvent event, float x, float y) {
 							((Game) Gdx.app.getApplicationListener())
-									.setScreen(sample);
+									.setScreen(descriptor.create());
+							dispose();
 						}
 					}));
 		}
@@ -115,8 +118,7 @@ public class MainMenu implements Screen {
 
 	@Override
 	public void dispose() {
-		skin.dispose();
-		atlas.dispose();
+		Codelabs.getAssets().release(AssetCache.MENU_SKIN);
 		stage.dispose();
 	}
 
@@ -9,6 +9,7 @@ import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.actions.Actions;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
+import com.leakedbits.codelabs.utils.AssetCache;
 
 public class SplashScreen implements Screen {
 
@@ -16,14 +17,27 @@ public class SplashScreen implements Screen {
 	private Image githubImage;
 	private Stage stage;
 
+	/* Set when the animation ends, to leave once the frame is drawn */
+	private boolean isFinished;
+
 	@Override
 	public void render(float delta) {
 		Gdx.gl.glClearColor(1, 1, 1, 1);
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
+		/* Load part of the menu and sample assets while the animation runs */
+		Codelabs.getAssets().update();
+
 		stage.act();
 
 		stage.draw();
+
+		if (isFinished) {
+			/* Show main menu after swing out */
+			((Game) Gdx.app.getApplicationListener())
+					.setScreen(new MainMenu());
+			dispose();
+		}
 	}
 
 	@Override
@@ -35,12 +49,20 @@ public class SplashScreen implements Screen {
 	public void show() {
 		stage = new Stage();
 
-		/* Load splash image */
-		codelabsImage = new Image(new Texture(
-				Gdx.files.internal("data/images/codelabs_splash.png")));
+		/* Load splash images, which are needed right away */
+		AssetCache assets = Codelabs.getAssets();
+		codelabsImage = new Image(assets.acquire(AssetCache.CODELABS_SPLASH,
+				Texture.class));
 		
-		githubImage = new Image(new Texture(
-				Gdx.files.internal("data/images/github_splash.png")));
+		githubImage = new Image(assets.acquire(AssetCache.GITHUB_SPLASH,
+				Texture.class));
+
+		/*
+		 * Queue the assets of the menu and the samples. They are loaded in the
+		 * background while the splash is shown, so later screens don't wait
+		 * for them.
+		 */
+		assets.preload();
 
 		/* Set the splash image in the center of the screen */
 		float width = Gdx.graphics.getWidth();
@@ -65,10 +87,7 @@ public class SplashScreen implements Screen {
 						Interpolation.swingIn)), Actions.run(new Runnable() {
 			@Override
 			public void run() {
-
-				/* Show main menu after swing out */
-				((Game) Gdx.app.getApplicationListener())
-						.setScreen(new MainMenu());
+				isFinished = true;
 			}
 		}))));
 
@@ -94,6 +113,11 @@ public class SplashScreen implements Screen {
 	@Override
 	public void dispose() {
 		stage.dispose();
+
+		/* The splash images are not used again, so they are unloaded */
+		AssetCache assets = Codelabs.getAssets();
+		assets.release(AssetCache.CODELABS_SPLASH);
+		assets.release(AssetCache.GITHUB_SPLASH);
 	}
 
 }
\ No newline at end of file
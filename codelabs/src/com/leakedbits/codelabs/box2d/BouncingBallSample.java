@@ -9,11 +9,15 @@ import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
 import com.badlogic.gdx.physics.box2d.Shape;
 import com.badlogic.gdx.physics.box2d.World;
+import com.leakedbits.codelabs.Codelabs;
 import com.leakedbits.codelabs.box2d.utils.Box2DFactory;
 import com.leakedbits.codelabs.utils.Sample;
 
 public class BouncingBallSample extends Sample {
 
+	/* Name shown in the main menu, read without creating the sample */
+	public static final String NAME = "Bouncing ball";
+
 	/* Use Box2DDebugRenderer, which is a model renderer for debug purposes */
 	private Box2DDebugRenderer debugRenderer;
 
@@ -27,7 +31,7 @@ public class BouncingBallSample extends Sample {
 	 * Main constructor used to update test name.
 	 */
 	public BouncingBallSample() {
-		name = "Bouncing ball";
+		name = NAME;
 	}
 
 	@Override
@@ -39,8 +43,12 @@ public class BouncingBallSample extends Sample {
 		/* Render all graphics before do physics step */
 		debugRenderer.render(world, camera.combined);
 
-		/* Step the simulation with a fixed time step of 1/60 of a second */
-		world.step(1 / 60f, 6, 2);
+		/*
+		 * Step the simulation with a fixed time step of 1/60 of a second, as
+		 * many times as needed to keep up with the elapsed time (See Sample
+		 * class).
+		 */
+		stepWorld(delta);
 	}
 
 	@Override
@@ -54,24 +62,33 @@ public class BouncingBallSample extends Sample {
 		 */
 		super.show();
 
+		/*
+		 * Build the world and its bodies. This part doesn't use graphics, so it
+		 * can also run without a screen (See Sample.createWorld()).
+		 */
+		createWorld(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+
+		/* Get the renderer shared by every sample (See Codelabs class) */
+		debugRenderer = Codelabs.getDebugRenderer();
+	}
+
+	@Override
+	public void createWorld(int screenWidth, int screenHeight) {
+		super.createWorld(screenWidth, screenHeight);
+
 		/*
 		 * Create world with a common gravity vector (9.81 m/s2 downwards force)
 		 * and tell world that we want objects to sleep. This last value
 		 * conserves CPU usage.
 		 */
-		world = new World(new Vector2(0, -9.81f), true);
-
-		/* Create renderer */
-		debugRenderer = new Box2DDebugRenderer();
+		world = obtainWorld(new Vector2(0, -9.81f), true);
 
 		/*
 		 * Define camera viewport. Box2D uses meters internally so the camera
 		 * must be defined also in meters. We set a desired width and adjust
 		 * height to different resolutions.
 		 */
-		camera = new OrthographicCamera(20,
-				20 * (Gdx.graphics.getHeight() / (float) Gdx.graphics
-						.getWidth()));
+		camera = obtainCamera(20, 20 * (screenHeight / (float) screenWidth));
 
 		/* Create the ball */
 		Shape shape = Box2DFactory.createCircleShape(0.5f);
@@ -88,10 +105,4 @@ public class BouncingBallSample extends Sample {
 		Box2DFactory.createWalls(world, camera.viewportWidth, camera.viewportHeight, 1);
 	}
 
-	@Override
-	public void dispose() {
-		debugRenderer.dispose();
-		world.dispose();
-	}
-
 }
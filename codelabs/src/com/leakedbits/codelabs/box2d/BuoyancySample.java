@@ -8,26 +8,40 @@ import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
-import com.badlogic.gdx.physics.box2d.Contact;
-import com.badlogic.gdx.physics.box2d.ContactImpulse;
-import com.badlogic.gdx.physics.box2d.ContactListener;
-import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
-import com.badlogic.gdx.physics.box2d.Manifold;
 import com.badlogic.gdx.physics.box2d.Shape;
 import com.badlogic.gdx.physics.box2d.World;
+import com.leakedbits.codelabs.Codelabs;
 import com.leakedbits.codelabs.box2d.controllers.BuoyancyController;
 import com.leakedbits.codelabs.box2d.utils.Box2DFactory;
+import com.leakedbits.codelabs.box2d.utils.ShapeCache;
+import com.leakedbits.codelabs.box2d.utils.SnapshotRenderer;
 import com.leakedbits.codelabs.utils.Sample;
 
-public class BuoyancySample extends Sample implements ContactListener {
+public class BuoyancySample extends Sample {
+
+	/* Name shown in the main menu, read without creating the sample */
+	public static final String NAME = "Buoyancy";
 
 	/* Max number of bodies to be spawned */
 	private static final int MAX_SPAWNED_BODIES = 20;
 
+	/* Number of steps between each search of bodies inside the water */
+	private static final int BUOYANCY_QUERY_INTERVAL = 2;
+
+	/*
+	 * Step the world in its own thread when there are several cores, so
+	 * rendering and physics run at the same time.
+	 */
+	private static final boolean USE_PHYSICS_THREAD = Runtime.getRuntime()
+			.availableProcessors() > 1;
+
 	/* Use Box2DDebugRenderer, which is a model renderer for debug purposes */
 	private Box2DDebugRenderer debugRenderer;
 
+	/* Draws the state published by the physics thread, if it is running */
+	private SnapshotRenderer snapshotRenderer;
+
 	/* As always, we need a camera to be able to see the objects */
 	private OrthographicCamera camera;
 
@@ -39,8 +53,14 @@ public class BuoyancySample extends Sample implements ContactListener {
 	/* Counter to know how many bodies have been spawned */
 	private int spawnedBodies;
 
+	/* Shapes and fixture templates shared by every spawned body */
+	private ShapeCache shapeCache;
+	private int boxTemplate;
+	private int triangleTemplate;
+	private int ballTemplate;
+
 	public BuoyancySample() {
-		name = "Buoyancy";
+		name = NAME;
 	}
 
 	@Override
@@ -49,13 +69,28 @@ public class BuoyancySample extends Sample implements ContactListener {
 		Gdx.gl.glClearColor(0, 0, 0, 1);
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
-		/* Render all graphics before do physics step */
-		debugRenderer.render(world, camera.combined);
+		/*
+		 * Render all graphics before do physics step. When the world is
+		 * stepped in its own thread it can't be read from here, so the last
+		 * published snapshot is drawn instead.
+		 */
+		if (isPhysicsThreaded()) {
+			snapshotRenderer.render(getSnapshot(), camera.combined);
+		} else {
+			debugRenderer.render(world, camera.combined);
+		}
 
-		/* Step the simulation with a fixed time step of 1/60 of a second */
-		world.step(1 / 60f, 6, 2);
-		// buoyancyController.step(1 / 60f);
+		/*
+		 * Step the simulation with a fixed time step of 1/60 of a second, as
+		 * many times as needed to keep up with the elapsed time (See Sample
+		 * class).
+		 */
+		stepWorld(delta);
+	}
 
+	@Override
+	protected void onWorldStep(float timeStep) {
+		/* Buoyancy forces are computed once per physics step */
 		buoyancyController.step();
 	}
 
@@ -70,31 +105,48 @@ public class BuoyancySample extends Sample implements ContactListener {
 		 */
 		super.show();
 
+		/*
+		 * Build the world and its bodies. This part doesn't use graphics, so it
+		 * can also run without a screen (See Sample.createWorld()).
+		 */
+		createWorld(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+
+		/* Get the renderer shared by every sample (See Codelabs class) */
+		debugRenderer = Codelabs.getDebugRenderer();
+
+		/*
+		 * Next line must remain commented because we do this in its parent (See
+		 * Sample class). In case you are not using Sample class, uncomment this
+		 * line to set input processor to handle events.
+		 */
+		// Gdx.input.setInputProcessor(this);
+
+		if (USE_PHYSICS_THREAD) {
+			snapshotRenderer = new SnapshotRenderer();
+			startPhysicsThread();
+		}
+	}
+
+	@Override
+	public void createWorld(int screenWidth, int screenHeight) {
+		super.createWorld(screenWidth, screenHeight);
+
 		/*
 		 * Create world with a common gravity vector (9.81 m/s2 downwards force)
 		 * and tell world that we want objects to sleep. This last value
 		 * conserves CPU usage.
 		 */
-		world = new World(new Vector2(0, -9.81f), true);
+		world = obtainWorld(new Vector2(0, -9.81f), true);
 
-		/* Create renderer */
-		debugRenderer = new Box2DDebugRenderer();
+		/* Start as a new sample, in case the world is rebuilt */
+		spawnedBodies = 0;
 
 		/*
 		 * Define camera viewport. Box2D uses meters internally so the camera
 		 * must be defined also in meters. We set a desired width and adjust
 		 * height to different resolutions.
 		 */
-		camera = new OrthographicCamera(20,
-				20 * (Gdx.graphics.getHeight() / (float) Gdx.graphics
-						.getWidth()));
-
-		/*
-		 * Next line must remain commented because we do this in its parent (See
-		 * Sample class). In case you are not using Sample class, uncomment this
-		 * line to set input processor to handle events.
-		 */
-		// Gdx.input.setInputProcessor(this);
+		camera = obtainCamera(20, 20 * (screenHeight / (float) screenWidth));
 
 		Box2DFactory.createWalls(world, camera.viewportWidth,
 				camera.viewportHeight, 1);
@@ -111,58 +163,43 @@ public class BuoyancySample extends Sample implements ContactListener {
 
 		/*
 		 * Create a buoyancy controller using the previous body as a fluid
-		 * sensor
+		 * sensor. The controller looks for the bodies inside the fluid by
+		 * itself, so we don't need a ContactListener to add and remove them.
 		 */
 		buoyancyController = new BuoyancyController(world, water
 				.getFixtureList().first());
+		buoyancyController.queryInterval = BUOYANCY_QUERY_INTERVAL;
 
-		world.setContactListener(this);
+		/*
+		 * Create the templates of the spawned bodies once. Every spawned body
+		 * reuses their shapes instead of creating and disposing a new one.
+		 */
+		shapeCache = new ShapeCache();
+		boxTemplate = shapeCache.addTemplate(shapeCache.getBox(1, 1), 0.5f,
+				0.5f, 0.5f, false);
+		triangleTemplate = shapeCache.addTemplate(
+				shapeCache.getTriangle(1, 1), 0.5f, 0.5f, 0.5f, false);
+		ballTemplate = shapeCache.addTemplate(shapeCache.getCircle(1), 0.5f,
+				0.5f, 0.5f, false);
 	}
 
 	@Override
 	public void dispose() {
-		debugRenderer.dispose();
-		world.dispose();
-	}
-
-	@Override
-	public void beginContact(Contact contact) {
-		Fixture fixtureA = contact.getFixtureA();
-		Fixture fixtureB = contact.getFixtureB();
-
-		if (fixtureA.isSensor()
-				&& fixtureB.getBody().getType() == BodyType.DynamicBody) {
-			buoyancyController.addBody(fixtureB);
-		} else if (fixtureB.isSensor()
-				&& fixtureA.getBody().getType() == BodyType.DynamicBody) {
-			buoyancyController.addBody(fixtureA);
-		}
-	}
+		/*
+		 * Stops the physics thread and disposes the world built by
+		 * createWorld() (See Sample class).
+		 */
+		super.dispose();
 
-	@Override
-	public void endContact(Contact contact) {
-		Fixture fixtureA = contact.getFixtureA();
-		Fixture fixtureB = contact.getFixtureB();
-
-		if (fixtureA.isSensor()
-				&& fixtureB.getBody().getType() == BodyType.DynamicBody) {
-			buoyancyController.removeBody(fixtureB);
-		} else if (fixtureB.isSensor()
-				&& fixtureA.getBody().getType() == BodyType.DynamicBody) {
-			if (fixtureA.getBody().getWorldCenter().y > -1) {
-				buoyancyController.removeBody(fixtureA);
-			}
+		if (snapshotRenderer != null) {
+			snapshotRenderer.dispose();
 		}
 	}
 
 	@Override
-	public void preSolve(Contact contact, Manifold oldManifold) {
-
-	}
-
-	@Override
-	public void postSolve(Contact contact, ContactImpulse impulse) {
-
+	public void disposeWorld() {
+		super.disposeWorld();
+		shapeCache.dispose();
 	}
 
 	@Override
@@ -173,30 +210,41 @@ public class BuoyancySample extends Sample implements ContactListener {
 			spawnedBodies++;
 
 			/* Translate camera point to world point */
-			Vector3 unprojectedVector = new Vector3();
-			camera.unproject(unprojectedVector.set(screenX, screenY, 0));
-
-			/* Create a new box */
-			if (Math.random() >= 0.5) {
-				Shape shape = Box2DFactory.createBoxShape(1, 1, new Vector2(0,
-						0), 0);
-				FixtureDef fixtureDef = Box2DFactory.createFixture(shape, 0.5f,
-						0.5f, 0.5f, false);
-				Box2DFactory.createBody(world, BodyType.DynamicBody,
-						fixtureDef, new Vector2(unprojectedVector.x,
-								unprojectedVector.y));
-			} else {
-				/* Create a new triangle */
-				Shape shape = Box2DFactory.createTriangleShape(1, 1);
-				FixtureDef fixtureDef = Box2DFactory.createFixture(shape, 0.5f,
-						0.5f, 0.5f, false);
-				Box2DFactory.createBody(world, BodyType.DynamicBody,
-						fixtureDef, new Vector2(unprojectedVector.x,
-								unprojectedVector.y));
-			}
+			final Vector3 unprojectedVector = new Vector3();
+			unproject(camera, unprojectedVector.set(screenX, screenY, 0));
+
+			/*
+			 * Bodies are created between physics steps, in the physics thread
+			 * if it is running.
+			 */
+			runOnPhysicsThread(new Runnable() {
+
+				@Override
+				public void run() {
+					spawnBody(unprojectedVector.x, unprojectedVector.y);
+				}
+			});
 		}
 
 		return true;
 	}
 
+	private void spawnBody(float x, float y) {
+		/* Seeded random numbers, so a replay spawns the same bodies */
+		float random = getRandom().nextFloat();
+
+		/* Create a new box, triangle or ball */
+		int template;
+		if (random >= 2 / 3f) {
+			template = boxTemplate;
+		} else if (random >= 1 / 3f) {
+			template = triangleTemplate;
+		} else {
+			template = ballTemplate;
+		}
+
+		Box2DFactory.createBodyFromTemplate(world, BodyType.DynamicBody,
+				shapeCache.getTemplate(template), x, y);
+	}
+
 }
@@ -8,17 +8,25 @@ import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
 import com.badlogic.gdx.physics.box2d.Contact;
-import com.badlogic.gdx.physics.box2d.ContactImpulse;
-import com.badlogic.gdx.physics.box2d.ContactListener;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
-import com.badlogic.gdx.physics.box2d.Manifold;
 import com.badlogic.gdx.physics.box2d.Shape;
 import com.badlogic.gdx.physics.box2d.World;
+import com.leakedbits.codelabs.Codelabs;
 import com.leakedbits.codelabs.box2d.utils.Box2DFactory;
+import com.leakedbits.codelabs.box2d.utils.ContactDispatcher;
+import com.leakedbits.codelabs.box2d.utils.ContactDispatcher.ContactHandler;
 import com.leakedbits.codelabs.utils.Sample;
 
-public class CollisionsSample extends Sample implements ContactListener {
+public class CollisionsSample extends Sample {
+
+	/* Name shown in the main menu, read without creating the sample */
+	public static final String NAME = "Collisions";
+
+	/* Tags of the fixtures, used to route their contacts */
+	private static final int BALL = 1;
+	private static final int BOX = 2;
+	private static final int WALL = 3;
 
 	/* Use Box2DDebugRenderer, which is a model renderer for debug purposes */
 	private Box2DDebugRenderer debugRenderer;
@@ -29,11 +37,12 @@ public class CollisionsSample extends Sample implements ContactListener {
 	/* Define a world to hold all bodies and simulate reactions between them */
 	private World world;
 
-	private Body walls;
-
 	private boolean ballTouchedWall;
 	private boolean ballTouchedBox;
 
+	/* Routes the contacts of the ball to the handlers below */
+	private ContactDispatcher contactDispatcher;
+
 	/* Fields to store previous accelerometer values in each iteration */
 	private float prevAccelX;
 	private float prevAccelY;
@@ -42,7 +51,33 @@ public class CollisionsSample extends Sample implements ContactListener {
 	 * Main constructor used to update sample name.
 	 */
 	public CollisionsSample() {
-		name = "Collisions";
+		name = NAME;
+
+		contactDispatcher = new ContactDispatcher();
+
+		/*
+		 * The ball is always the first fixture passed to the handlers, no
+		 * matter which one Box2D reports first.
+		 */
+		contactDispatcher.register(BALL, WALL, new ContactHandler() {
+
+			@Override
+			public void beginContact(Contact contact, Fixture fixture,
+					Fixture other) {
+				ballTouchedBox = false;
+				ballTouchedWall = true;
+			}
+		});
+
+		contactDispatcher.register(BALL, BOX, new ContactHandler() {
+
+			@Override
+			public void beginContact(Contact contact, Fixture fixture,
+					Fixture other) {
+				ballTouchedBox = true;
+				ballTouchedWall = false;
+			}
+		});
 	}
 
 	@Override
@@ -60,14 +95,15 @@ public class CollisionsSample extends Sample implements ContactListener {
 		}
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
-		/* Check if we should change the gravity */
-		processAccelerometer();
-
 		/* Render all graphics before do physics step */
 		debugRenderer.render(world, camera.combined);
 
-		/* Step the simulation with a fixed time step of 1/60 of a second */
-		world.step(1 / 60f, 6, 2);
+		/*
+		 * Step the simulation with a fixed time step of 1/60 of a second, as
+		 * many times as needed to keep up with the elapsed time (See Sample
+		 * class).
+		 */
+		stepWorld(delta);
 	}
 
 	@Override
@@ -81,57 +117,80 @@ public class CollisionsSample extends Sample implements ContactListener {
 		 */
 		super.show();
 
+		/*
+		 * Build the world and its bodies. This part doesn't use graphics, so it
+		 * can also run without a screen (See Sample.createWorld()).
+		 */
+		createWorld(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+
+		/* Get the renderer shared by every sample (See Codelabs class) */
+		debugRenderer = Codelabs.getDebugRenderer();
+	}
+
+	@Override
+	public void createWorld(int screenWidth, int screenHeight) {
+		super.createWorld(screenWidth, screenHeight);
+
 		/*
 		 * Create world with a common gravity vector (9.81 m/s2 downwards force)
 		 * and tell world that we want objects to sleep. This last value
 		 * conserves CPU usage. As we use the accelerometer and the world
 		 * gravity to change bodies positions, we can't let bodies to sleep.
 		 */
-		world = new World(new Vector2(0, -9.81f), false);
+		world = obtainWorld(new Vector2(0, -9.81f), false);
 
-		/* Create renderer */
-		debugRenderer = new Box2DDebugRenderer();
+		/* Start as a new sample, in case the world is rebuilt */
+		ballTouchedWall = false;
+		ballTouchedBox = false;
+		prevAccelX = 0;
+		prevAccelY = 0;
+		contactDispatcher.clearContactCounts();
 
 		/*
 		 * Define camera viewport. Box2D uses meters internally so the camera
 		 * must be defined also in meters. We set a desired width and adjust
 		 * height to different resolutions.
 		 */
-		camera = new OrthographicCamera(20,
-				20 * (Gdx.graphics.getHeight() / (float) Gdx.graphics
-						.getWidth()));
+		camera = obtainCamera(20, 20 * (screenHeight / (float) screenWidth));
 
 		/* Create the ball */
 		Shape shape = Box2DFactory.createCircleShape(1);
 		FixtureDef fixtureDef = Box2DFactory.createFixture(shape, 2.5f, 0.25f,
 				0.75f, false);
-		Box2DFactory.createBody(world, BodyType.DynamicBody, fixtureDef,
-				new Vector2(5, 0));
+		Body ball = Box2DFactory.createBody(world, BodyType.DynamicBody,
+				fixtureDef, new Vector2(5, 0));
+		ContactDispatcher.tag(ball, BALL);
 
 		/* Create the box */
 		shape = Box2DFactory.createBoxShape(0.5f, 0.5f, new Vector2(0, 0), 0);
 		fixtureDef = Box2DFactory.createFixture(shape, 1, 0.5f, 0.5f, false);
-		Box2DFactory.createBody(world, BodyType.StaticBody, fixtureDef,
-				new Vector2(0, 0));
+		Body box = Box2DFactory.createBody(world, BodyType.StaticBody,
+				fixtureDef, new Vector2(0, 0));
+		ContactDispatcher.tag(box, BOX);
 
 		/* Create the walls */
-		walls = Box2DFactory.createWalls(world, camera.viewportWidth,
+		Body walls = Box2DFactory.createWalls(world, camera.viewportWidth,
 				camera.viewportHeight, 1);
+		ContactDispatcher.tag(walls, WALL);
 
-		world.setContactListener(this);
+		world.setContactListener(contactDispatcher);
 	}
 
 	@Override
-	public void dispose() {
-		debugRenderer.dispose();
-		world.dispose();
+	protected void onWorldStep(float timeStep) {
+		/* Check if we should change the gravity */
+		processAccelerometer();
 	}
 
 	private void processAccelerometer() {
 
-		/* Get accelerometer values */
-		float y = Gdx.input.getAccelerometerY();
-		float x = Gdx.input.getAccelerometerX();
+		/*
+		 * Get accelerometer values. They are read by the parent class at the
+		 * start of each step, so they can be recorded and replayed (See
+		 * Sample class).
+		 */
+		float y = getAccelerometerY();
+		float x = getAccelerometerX();
 
 		/*
 		 * If accelerometer values have changed since previous processing,
@@ -148,47 +207,4 @@ public class CollisionsSample extends Sample implements ContactListener {
 		}
 	}
 
-	@Override
-	public void beginContact(Contact contact) {
-		Fixture fixtureA = contact.getFixtureA();
-		Fixture fixtureB = contact.getFixtureB();
-
-		/*
-		 * If one of the fixture contacting is an static body, and is the wall,
-		 * set ballTouchedWall to true.
-		 */
-		if (fixtureA.getBody().getType() == BodyType.StaticBody) {
-			if (fixtureA.getBody().equals(walls)) {
-				ballTouchedBox = false;
-				ballTouchedWall = true;
-			} else {
-				ballTouchedBox = true;
-				ballTouchedWall = false;
-			}
-		} else if (fixtureB.getBody().getType() == BodyType.StaticBody) {
-			if (fixtureA.getBody().equals(walls)) {
-				ballTouchedBox = false;
-				ballTouchedWall = true;
-			} else {
-				ballTouchedBox = true;
-				ballTouchedWall = false;
-			}
-		}
-	}
-
-	@Override
-	public void endContact(Contact contact) {
-
-	}
-
-	@Override
-	public void preSolve(Contact contact, Manifold oldManifold) {
-
-	}
-
-	@Override
-	public void postSolve(Contact contact, ContactImpulse impulse) {
-
-	}
-
 }
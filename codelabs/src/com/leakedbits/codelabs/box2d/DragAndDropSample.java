@@ -8,18 +8,19 @@ import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
-import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
-import com.badlogic.gdx.physics.box2d.QueryCallback;
 import com.badlogic.gdx.physics.box2d.Shape;
 import com.badlogic.gdx.physics.box2d.World;
-import com.badlogic.gdx.physics.box2d.joints.MouseJoint;
-import com.badlogic.gdx.physics.box2d.joints.MouseJointDef;
+import com.leakedbits.codelabs.Codelabs;
+import com.leakedbits.codelabs.box2d.utils.BodyPicker;
 import com.leakedbits.codelabs.box2d.utils.Box2DFactory;
 import com.leakedbits.codelabs.utils.Sample;
 
 public class DragAndDropSample extends Sample {
 
+	/* Name shown in the main menu, read without creating the sample */
+	public static final String NAME = "Drag and drop";
+
 	/* Use Box2DDebugRenderer, which is a model renderer for debug purposes */
 	private Box2DDebugRenderer debugRenderer;
 
@@ -30,11 +31,10 @@ public class DragAndDropSample extends Sample {
 	private World world;
 
 	/*
-	 * Used to define a mouse joint for a body. This point will track a
-	 * specified world point.
+	 * Picks the body under each finger and drags it with a mouse joint, which
+	 * makes the body track a specified world point.
 	 */
-	private MouseJoint mouseJoint;
-	private MouseJointDef mouseJointDef;
+	private BodyPicker bodyPicker;
 
 	/* Store the position of the last touch or mouse click */
 	private Vector3 touchPosition;
@@ -43,7 +43,7 @@ public class DragAndDropSample extends Sample {
 	 * Main constructor used to update sample name.
 	 */
 	public DragAndDropSample() {
-		name = "Drag and drop";
+		name = NAME;
 	}
 
 	@Override
@@ -55,8 +55,12 @@ public class DragAndDropSample extends Sample {
 		/* Render all graphics before do physics step */
 		debugRenderer.render(world, camera.combined);
 
-		/* Step the simulation with a fixed time step of 1/60 of a second */
-		world.step(1 / 60f, 6, 2);
+		/*
+		 * Step the simulation with a fixed time step of 1/60 of a second, as
+		 * many times as needed to keep up with the elapsed time (See Sample
+		 * class).
+		 */
+		stepWorld(delta);
 	}
 
 	@Override
@@ -70,31 +74,40 @@ public class DragAndDropSample extends Sample {
 		 */
 		super.show();
 
+		/*
+		 * Build the world and its bodies. This part doesn't use graphics, so it
+		 * can also run without a screen (See Sample.createWorld()).
+		 */
+		createWorld(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+
+		/* Get the renderer shared by every sample (See Codelabs class) */
+		debugRenderer = Codelabs.getDebugRenderer();
+
+		/*
+		 * Next line must remain commented because we do this in its parent (See
+		 * Sample class). In case you are not using Sample class, uncomment this
+		 * line to set input processor to handle events.
+		 */
+		// Gdx.input.setInputProcessor(this);
+	}
+
+	@Override
+	public void createWorld(int screenWidth, int screenHeight) {
+		super.createWorld(screenWidth, screenHeight);
+
 		/*
 		 * Create world with a common gravity vector (9.81 m/s2 downwards force)
 		 * and tell world that we want objects to sleep. This last value
 		 * conserves CPU usage.
 		 */
-		world = new World(new Vector2(0, -9.81f), true);
-
-		/* Create renderer */
-		debugRenderer = new Box2DDebugRenderer();
+		world = obtainWorld(new Vector2(0, -9.81f), true);
 
 		/*
 		 * Define camera viewport. Box2D uses meters internally so the camera
 		 * must be defined also in meters. We set a desired width and adjust
 		 * height to different resolutions.
 		 */
-		camera = new OrthographicCamera(20,
-				20 * (Gdx.graphics.getHeight() / (float) Gdx.graphics
-						.getWidth()));
-
-		/*
-		 * Next line must remain commented because we do this in its parent (See
-		 * Sample class). In case you are not using Sample class, uncomment this
-		 * line to set input processor to handle events.
-		 */
-		// Gdx.input.setInputProcessor(this);
+		camera = obtainCamera(20, 20 * (screenHeight / (float) screenWidth));
 
 		/*
 		 * Instantiate the vector that will be used to store click/touch
@@ -113,102 +126,51 @@ public class DragAndDropSample extends Sample {
 		Body walls = Box2DFactory.createWalls(world, camera.viewportWidth,
 				camera.viewportHeight, 1);
 
-		/* Define the mouse joint. We use walls as the first body of the joint */
-		createMouseJointDefinition(walls);
+		/*
+		 * Create the picker. We use walls as the first body of the mouse
+		 * joints, which pull bodies with a max force of 500 N.
+		 */
+		bodyPicker = new BodyPicker(world, walls, 500);
 	}
 	
-	@Override
-	public void dispose() {
-		debugRenderer.dispose();
-		world.dispose();
-	}
-
-	/**
-	 * Creates the MouseJoint definition.
-	 * 
-	 * @param body
-	 *            First body of the joint (i.e. ground, walls, etc.)
+	/*
+	 * Input events handling. Each pointer (finger) grabs the body under it and
+	 * drags it until it is lifted, so several bodies can be dragged at once.
+	 * Nothing is allocated while dragging.
 	 */
-	private void createMouseJointDefinition(Body body) {
-		mouseJointDef = new MouseJointDef();
-		mouseJointDef.bodyA = body;
-		mouseJointDef.collideConnected = true;
-		mouseJointDef.maxForce = 500;
-	}
-
 	@Override
 	public boolean touchDown(int screenX, int screenY, int pointer, int button) {
-		/*
-		 * Define a new QueryCallback. This callback will be used in
-		 * world.QueryAABB method.
-		 */
-		QueryCallback queryCallback = new QueryCallback() {
-
-			@Override
-			public boolean reportFixture(Fixture fixture) {
-				boolean testResult;
-
-				/*
-				 * If the hit point is inside the fixture of the body, create a
-				 * new MouseJoint.
-				 */
-				if (testResult = fixture.testPoint(touchPosition.x,
-						touchPosition.y)) {
-					mouseJointDef.bodyB = fixture.getBody();
-					mouseJointDef.target.set(touchPosition.x, touchPosition.y);
-					mouseJoint = (MouseJoint) world.createJoint(mouseJointDef);
-				}
-
-				return testResult;
-			}
-		};
-
 		/* Translate camera point to world point */
-		camera.unproject(touchPosition.set(screenX, screenY, 0));
+		unproject(camera, touchPosition.set(screenX, screenY, 0));
 
 		/*
-		 * Query the world for all fixtures that potentially overlap the touched
-		 * point.
+		 * Query the world for the fixtures under the touched point and create
+		 * a mouse joint for the body picked.
 		 */
-		world.QueryAABB(queryCallback, touchPosition.x, touchPosition.y,
-				touchPosition.x, touchPosition.y);
+		bodyPicker.pick(pointer, touchPosition.x, touchPosition.y);
 
 		return true;
 	}
 
 	@Override
 	public boolean touchUp(int screenX, int screenY, int pointer, int button) {
-
-		/* Whether the input was processed */
-		boolean processed = false;
-
-		/* If a MouseJoint is defined, destroy it */
-		if (mouseJoint != null) {
-			world.destroyJoint(mouseJoint);
-			mouseJoint = null;
-			processed = true;
-		}
-
-		return processed;
+		/* If the pointer is dragging a body, destroy its mouse joint */
+		return bodyPicker.release(pointer);
 	}
 
 	@Override
 	public boolean touchDragged(int screenX, int screenY, int pointer) {
-
-		/* Whether the input was processed */
-		boolean processed = false;
-
 		/*
-		 * If a MouseJoint is defined, update its target with current position.
+		 * If the pointer is dragging a body, update the target of its mouse
+		 * joint with current position.
 		 */
-		if (mouseJoint != null) {
-
-			/* Translate camera point to world point */
-			camera.unproject(touchPosition.set(screenX, screenY, 0));
-			mouseJoint.setTarget(new Vector2(touchPosition.x, touchPosition.y));
+		if (bodyPicker.getJoint(pointer) == null) {
+			return false;
 		}
 
-		return processed;
+		/* Translate camera point to world point */
+		unproject(camera, touchPosition.set(screenX, screenY, 0));
+		return bodyPicker.drag(pointer, touchPosition.x, touchPosition.y);
 	}
 
 }
@@ -7,14 +7,17 @@ import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
-import com.badlogic.gdx.physics.box2d.FixtureDef;
-import com.badlogic.gdx.physics.box2d.Shape;
 import com.badlogic.gdx.physics.box2d.World;
+import com.leakedbits.codelabs.Codelabs;
 import com.leakedbits.codelabs.box2d.utils.Box2DFactory;
+import com.leakedbits.codelabs.box2d.utils.ShapeCache;
 import com.leakedbits.codelabs.utils.Sample;
 
 public class GravityAccelerometerSample extends Sample {
 
+	/* Name shown in the main menu, read without creating the sample */
+	public static final String NAME = "Gravity and accelerometer";
+
 	/* Max number of balls to be spawned */
 	private static final int MAX_SPAWNED_BALLS = 20;
 
@@ -30,6 +33,10 @@ public class GravityAccelerometerSample extends Sample {
 	/* Counter to know how many ball have been spawned */
 	private int spawnedBalls;
 
+	/* Shapes and fixture templates shared by every spawned ball */
+	private ShapeCache shapeCache;
+	private int ballTemplate;
+
 	/* Fields to store previous accelerometer values in each iteration */
 	private float prevAccelX;
 	private float prevAccelY;
@@ -38,7 +45,7 @@ public class GravityAccelerometerSample extends Sample {
 	 * Main constructor used to update sample name.
 	 */
 	public GravityAccelerometerSample() {
-		name = "Gravity and accelerometer";
+		name = NAME;
 	}
 
 	@Override
@@ -47,14 +54,15 @@ public class GravityAccelerometerSample extends Sample {
 		Gdx.gl.glClearColor(0, 0, 0, 1);
 		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
-		/* Check if we should change the gravity */
-		processAccelerometer();
-
 		/* Render all graphics before do physics step */
 		debugRenderer.render(world, camera.combined);
 
-		/* Step the simulation with a fixed time step of 1/60 of a second */
-		world.step(1 / 60f, 6, 2);
+		/*
+		 * Step the simulation with a fixed time step of 1/60 of a second, as
+		 * many times as needed to keep up with the elapsed time (See Sample
+		 * class).
+		 */
+		stepWorld(delta);
 	}
 
 	@Override
@@ -68,49 +76,81 @@ public class GravityAccelerometerSample extends Sample {
 		 */
 		super.show();
 
+		/*
+		 * Build the world and its bodies. This part doesn't use graphics, so it
+		 * can also run without a screen (See Sample.createWorld()).
+		 */
+		createWorld(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+
+		/* Get the renderer shared by every sample (See Codelabs class) */
+		debugRenderer = Codelabs.getDebugRenderer();
+
+		/*
+		 * Next line must remain commented because we do this in its parent (See
+		 * Sample class). In case you are not using Sample class, uncomment this
+		 * line to set input processor to handle events.
+		 */
+		// Gdx.input.setInputProcessor(this);
+	}
+
+	@Override
+	public void createWorld(int screenWidth, int screenHeight) {
+		super.createWorld(screenWidth, screenHeight);
+
 		/*
 		 * Create world with a common gravity vector (9.81 m/s2 downwards force)
 		 * and tell world that we want objects to sleep. This last value
 		 * conserves CPU usage. As we use the accelerometer and the world
 		 * gravity to change bodies positions, we can't let bodies to sleep.
 		 */
-		world = new World(new Vector2(0, -9.81f), true);
+		world = obtainWorld(new Vector2(0, -9.81f), true);
 
-		/* Create renderer */
-		debugRenderer = new Box2DDebugRenderer();
+		/* Start as a new sample, in case the world is rebuilt */
+		spawnedBalls = 0;
+		prevAccelX = 0;
+		prevAccelY = 0;
 
 		/*
 		 * Define camera viewport. Box2D uses meters internally so the camera
 		 * must be defined also in meters. We set a desired width and adjust
 		 * height to different resolutions.
 		 */
-		camera = new OrthographicCamera(20,
-				20 * (Gdx.graphics.getHeight() / (float) Gdx.graphics
-						.getWidth()));
-
-		/*
-		 * Next line must remain commented because we do this in its parent (See
-		 * Sample class). In case you are not using Sample class, uncomment this
-		 * line to set input processor to handle events.
-		 */
-		// Gdx.input.setInputProcessor(this);
+		camera = obtainCamera(20, 20 * (screenHeight / (float) screenWidth));
 
 		/* Create the walls */
 		Box2DFactory.createWalls(world, camera.viewportWidth,
 				camera.viewportHeight, 1);
+
+		/*
+		 * Create the ball template once. Every spawned ball reuses its shape
+		 * instead of creating and disposing a new one.
+		 */
+		shapeCache = new ShapeCache();
+		ballTemplate = shapeCache.addTemplate(shapeCache.getCircle(1), 2.5f,
+				0.25f, 0.75f, false);
 	}
 
 	@Override
-	public void dispose() {
-		debugRenderer.dispose();
-		world.dispose();
+	protected void onWorldStep(float timeStep) {
+		/* Check if we should change the gravity */
+		processAccelerometer();
+	}
+
+	@Override
+	public void disposeWorld() {
+		super.disposeWorld();
+		shapeCache.dispose();
 	}
 
 	private void processAccelerometer() {
 
-		/* Get accelerometer values */
-		float y = Gdx.input.getAccelerometerY();
-		float x = Gdx.input.getAccelerometerX();
+		/*
+		 * Get accelerometer values. They are read by the parent class at the
+		 * start of each step, so they can be recorded and replayed (See
+		 * Sample class).
+		 */
+		float y = getAccelerometerY();
+		float x = getAccelerometerX();
 
 		/*
 		 * If accelerometer values have changed since previous processing,
@@ -141,14 +181,12 @@ public class GravityAccelerometerSample extends Sample {
 
 			/* Translate camera point to world point */
 			Vector3 unprojectedVector = new Vector3();
-			camera.unproject(unprojectedVector.set(screenX, screenY, 0));
-
-			/* Create a new ball */
-			Shape shape = Box2DFactory.createCircleShape(1);
-			FixtureDef fixtureDef = Box2DFactory.createFixture(shape, 2.5f,
-					0.25f, 0.75f, false);
-			Box2DFactory.createBody(world, BodyType.DynamicBody, fixtureDef,
-					new Vector2(unprojectedVector.x, unprojectedVector.y));
+			unproject(camera, unprojectedVector.set(screenX, screenY, 0));
+
+			/* Create a new ball from the template */
+			Box2DFactory.createBodyFromTemplate(world, BodyType.DynamicBody,
+					shapeCache.getTemplate(ballTemplate), unprojectedVector.x,
+					unprojectedVector.y);
 		}
 
 		return true;
@@ -10,11 +10,15 @@ import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
 import com.badlogic.gdx.physics.box2d.Shape;
 import com.badlogic.gdx.physics.box2d.World;
+import com.leakedbits.codelabs.Codelabs;
 import com.leakedbits.codelabs.box2d.utils.Box2DFactory;
 import com.leakedbits.codelabs.utils.Sample;
 
 public class ImpulsesSample extends Sample {
 
+	/* Name shown in the main menu, read without creating the sample */
+	public static final String NAME = "Impulses";
+
 	/* Use Box2DDebugRenderer, which is a model renderer for debug purposes */
 	private Box2DDebugRenderer debugRenderer;
 
@@ -34,7 +38,7 @@ public class ImpulsesSample extends Sample {
 	 * Main constructor used to update sample name.
 	 */
 	public ImpulsesSample() {
-		name = "Impulses";
+		name = NAME;
 	}
 
 	@Override
@@ -46,8 +50,12 @@ public class ImpulsesSample extends Sample {
 		/* Render all graphics before do physics step */
 		debugRenderer.render(world, camera.combined);
 
-		/* Step the simulation with a fixed time step of 1/60 of a second */
-		world.step(1 / 60f, 6, 2);
+		/*
+		 * Step the simulation with a fixed time step of 1/60 of a second, as
+		 * many times as needed to keep up with the elapsed time (See Sample
+		 * class).
+		 */
+		stepWorld(delta);
 	}
 
 	@Override
@@ -61,31 +69,40 @@ public class ImpulsesSample extends Sample {
 		 */
 		super.show();
 
+		/*
+		 * Build the world and its bodies. This part doesn't use graphics, so it
+		 * can also run without a screen (See Sample.createWorld()).
+		 */
+		createWorld(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+
+		/* Get the renderer shared by every sample (See Codelabs class) */
+		debugRenderer = Codelabs.getDebugRenderer();
+
+		/*
+		 * Next line must remain commented because we do this in its parent (See
+		 * Sample class). In case you are not using Sample class, uncomment this
+		 * line to set input processor to handle events.
+		 */
+		// Gdx.input.setInputProcessor(this);
+	}
+
+	@Override
+	public void createWorld(int screenWidth, int screenHeight) {
+		super.createWorld(screenWidth, screenHeight);
+
 		/*
 		 * Create world with a common gravity vector (9.81 m/s2 downwards force)
 		 * and tell world that we want objects to sleep. This last value
 		 * conserves CPU usage.
 		 */
-		world = new World(new Vector2(0, -9.81f), true);
-
-		/* Create renderer */
-		debugRenderer = new Box2DDebugRenderer();
+		world = obtainWorld(new Vector2(0, -9.81f), true);
 
 		/*
 		 * Define camera viewport. Box2D uses meters internally so the camera
 		 * must be defined also in meters. We set a desired width and adjust
 		 * height to different resolutions.
 		 */
-		camera = new OrthographicCamera(20,
-				20 * (Gdx.graphics.getHeight() / (float) Gdx.graphics
-						.getWidth()));
-
-		/*
-		 * Next line must remain commented because we do this in its parent (See
-		 * Sample class). In case you are not using Sample class, uncomment this
-		 * line to set input processor to handle events.
-		 */
-		// Gdx.input.setInputProcessor(this);
+		camera = obtainCamera(20, 20 * (screenHeight / (float) screenWidth));
 
 		/* Create the box */
 		Shape shape = Box2DFactory.createBoxShape(1.5f, 1.5f,
@@ -100,12 +117,6 @@ public class ImpulsesSample extends Sample {
 				camera.viewportHeight, 1);
 	}
 
-	@Override
-	public void dispose() {
-		debugRenderer.dispose();
-		world.dispose();
-	}
-
 	/*
 	 * Input events handling. Here will start our timer, which will be used
 	 * before.
@@ -113,10 +124,12 @@ public class ImpulsesSample extends Sample {
 	@Override
 	public boolean touchDown(int screenX, int screenY, int pointer, int button) {
 		/*
-		 * Get current time in milliseconds. We will use this to calculate the
-		 * time the user has touched the screen.
+		 * Get current simulation time in milliseconds. We will use this to
+		 * calculate the time the user has touched the screen. It is counted in
+		 * physics steps instead of read from the system clock, so a recorded
+		 * touch gives the same impulse when it is replayed (See Sample class).
 		 */
-		this.timer = System.currentTimeMillis();
+		this.timer = getSimulationTime();
 
 		return true;
 	}
@@ -129,7 +142,7 @@ public class ImpulsesSample extends Sample {
 	public boolean touchUp(int screenX, int screenY, int pointer, int button) {
 
 		/* Calculate the time the user has touched the screen */
-		long touchedTime = System.currentTimeMillis() - timer;
+		long touchedTime = getSimulationTime() - timer;
 
 		/* Every second touching the screen will increment by 20 the impulse */
 		float impulse = Math.max(10f, touchedTime / 50);
@@ -8,16 +8,23 @@ import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
 import com.badlogic.gdx.physics.box2d.Contact;
-import com.badlogic.gdx.physics.box2d.ContactImpulse;
-import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
-import com.badlogic.gdx.physics.box2d.Manifold;
 import com.badlogic.gdx.physics.box2d.Shape;
 import com.badlogic.gdx.physics.box2d.World;
+import com.leakedbits.codelabs.Codelabs;
 import com.leakedbits.codelabs.box2d.utils.Box2DFactory;
+import com.leakedbits.codelabs.box2d.utils.ContactDispatcher;
+import com.leakedbits.codelabs.box2d.utils.ContactDispatcher.ContactHandler;
 import com.leakedbits.codelabs.utils.Sample;
 
-public class JumpingSample extends Sample implements ContactListener {
+public class JumpingSample extends Sample {
+
+	/* Name shown in the main menu, read without creating the sample */
+	public static final String NAME = "Jump and double jump";
+
+	/* Tag of the foot sensor, used to route its contacts */
+	private static final int FOOT = 1;
 
 	/* Use Box2DDebugRenderer, which is a model renderer for debug purposes */
 	private Box2DDebugRenderer debugRenderer;
@@ -32,17 +39,38 @@ public class JumpingSample extends Sample implements ContactListener {
 	private Body player;
 
 	/*
-	 * Boolean variables to know if the player is jumping or if he/she can
-	 * double jump.
+	 * Sensor under the player. It is standing on something while the sensor
+	 * touches anything.
 	 */
-	private boolean isPlayerGrounded;
+	private Fixture foot;
+
+	/* Boolean variable to know if the player can double jump */
 	private boolean hasDoubleJump;
 
+	/* Routes the contacts of the foot sensor and counts them */
+	private ContactDispatcher contactDispatcher;
+
 	/**
 	 * Main constructor used to update sample name.
 	 */
 	public JumpingSample() {
-		name = "Jump and double jump";
+		name = NAME;
+
+		contactDispatcher = new ContactDispatcher();
+
+		/*
+		 * Every time the foot sensor starts touching something the player
+		 * gets its double jump back.
+		 */
+		contactDispatcher.register(FOOT, ContactDispatcher.ANY,
+				new ContactHandler() {
+
+					@Override
+					public void beginContact(Contact contact, Fixture fixture,
+							Fixture other) {
+						hasDoubleJump = true;
+					}
+				});
 	}
 
 	@Override
@@ -54,8 +82,12 @@ public class JumpingSample extends Sample implements ContactListener {
 		/* Render all graphics before do physics step */
 		debugRenderer.render(world, camera.combined);
 
-		/* Step the simulation with a fixed time step of 1/60 of a second */
-		world.step(1 / 60f, 6, 2);
+		/*
+		 * Step the simulation with a fixed time step of 1/60 of a second, as
+		 * many times as needed to keep up with the elapsed time (See Sample
+		 * class).
+		 */
+		stepWorld(delta);
 	}
 
 	@Override
@@ -69,31 +101,44 @@ public class JumpingSample extends Sample implements ContactListener {
 		 */
 		super.show();
 
+		/*
+		 * Build the world and its bodies. This part doesn't use graphics, so it
+		 * can also run without a screen (See Sample.createWorld()).
+		 */
+		createWorld(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+
+		/* Get the renderer shared by every sample (See Codelabs class) */
+		debugRenderer = Codelabs.getDebugRenderer();
+
+		/*
+		 * Next line must remain commented because we do this in its parent (See
+		 * Sample class). In case you are not using Sample class, uncomment this
+		 * line to set input processor to handle events.
+		 */
+		// Gdx.input.setInputProcessor(this);
+	}
+
+	@Override
+	public void createWorld(int screenWidth, int screenHeight) {
+		super.createWorld(screenWidth, screenHeight);
+
 		/*
 		 * Create world with a common gravity vector (9.81 m/s2 downwards force)
 		 * and tell world that we want objects to sleep. This last value
 		 * conserves CPU usage.
 		 */
-		world = new World(new Vector2(0, -9.81f), true);
+		world = obtainWorld(new Vector2(0, -9.81f), true);
 
-		/* Create renderer */
-		debugRenderer = new Box2DDebugRenderer();
+		/* The player starts in the air, in case the world is rebuilt */
+		contactDispatcher.clearContactCounts();
+		hasDoubleJump = false;
 
 		/*
 		 * Define camera viewport. Box2D uses meters internally so the camera
 		 * must be defined also in meters. We set a desired width and adjust
 		 * height to different resolutions.
 		 */
-		camera = new OrthographicCamera(20,
-				20 * (Gdx.graphics.getHeight() / (float) Gdx.graphics
-						.getWidth()));
-
-		/*
-		 * Next line must remain commented because we do this in its parent (See
-		 * Sample class). In case you are not using Sample class, uncomment this
-		 * line to set input processor to handle events.
-		 */
-		// Gdx.input.setInputProcessor(this);
+		camera = obtainCamera(20, 20 * (screenHeight / (float) screenWidth));
 
 		/* Create the player */
 		Shape shape = Box2DFactory.createBoxShape(0.35f, 1, new Vector2(0, 0),
@@ -111,10 +156,11 @@ public class JumpingSample extends Sample implements ContactListener {
 		fixtureDef = Box2DFactory.createFixture(shape, 0, 0, 0, true);
 
 		/*
-		 * Set user data to the player. In this case we are using an integer.
-		 * This will help us to identify the fixture during collision handling.
+		 * Tag the sensor. The tag is stored as user data and tells the
+		 * dispatcher which handler receives its contacts.
 		 */
-		player.createFixture(fixtureDef).setUserData(new Integer(3));
+		foot = player.createFixture(fixtureDef);
+		ContactDispatcher.tag(foot, FOOT);
 
 		/*
 		 * Fix the rotation of player's body. We don't want our player to fall
@@ -126,64 +172,7 @@ public class JumpingSample extends Sample implements ContactListener {
 		Box2DFactory.createWalls(world, camera.viewportWidth,
 				camera.viewportHeight, 1);
 
-		world.setContactListener(this);
-	}
-
-	@Override
-	public void dispose() {
-		debugRenderer.dispose();
-		world.dispose();
-	}
-
-	@Override
-	public void beginContact(Contact contact) {
-		/*
-		 * For each fixture contacting (A and B) check if it has user data
-		 * associated. In that case and only if it is the number 3 that we
-		 * previously associated to our player, change isPlayerGrounded and
-		 * hasDobleJump variables to true.
-		 */
-		Object userData = contact.getFixtureA().getUserData();
-		if (userData != null && (Integer) userData == 3) {
-			isPlayerGrounded = true;
-			hasDoubleJump = true;
-		} else {
-			userData = contact.getFixtureB().getUserData();
-			if (userData != null && (Integer) userData == 3) {
-				isPlayerGrounded = true;
-				hasDoubleJump = true;
-			}
-		}
-	}
-
-	@Override
-	public void endContact(Contact contact) {
-		/*
-		 * For each fixture contacting (A and B) check if it has user data
-		 * associated. In that case and only if it is the number 3 that we
-		 * previously associated to our player, change isPlayerGrounded false to
-		 * indicate that our player is jumping.
-		 */
-		Object userData = contact.getFixtureA().getUserData();
-		if (userData != null && (Integer) userData == 3) {
-			isPlayerGrounded = false;
-			hasDoubleJump = false;
-		} else {
-			userData = contact.getFixtureB().getUserData();
-			if (userData != null && (Integer) userData == 3) {
-				isPlayerGrounded = false;
-			}
-		}
-	}
-
-	@Override
-	public void preSolve(Contact contact, Manifold oldManifold) {
-
-	}
-
-	@Override
-	public void postSolve(Contact contact, ContactImpulse impulse) {
-
+		world.setContactListener(contactDispatcher);
 	}
 
 	/*
@@ -196,6 +185,8 @@ public class JumpingSample extends Sample implements ContactListener {
 		 * Firstly we check if the player is standing over something or if
 		 * he/she can double jump.
 		 */
+		boolean isPlayerGrounded = contactDispatcher.getContactCount(foot) > 0;
+
 		if (isPlayerGrounded || hasDoubleJump) {
 
 			/*
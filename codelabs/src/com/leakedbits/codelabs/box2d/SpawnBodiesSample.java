@@ -1,23 +1,58 @@
 package com.leakedbits.codelabs.box2d;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input.Keys;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
-import com.badlogic.gdx.physics.box2d.FixtureDef;
-import com.badlogic.gdx.physics.box2d.Shape;
 import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.leakedbits.codelabs.Codelabs;
+import com.leakedbits.codelabs.box2d.utils.BodyPool;
 import com.leakedbits.codelabs.box2d.utils.Box2DFactory;
+import com.leakedbits.codelabs.box2d.utils.ShapeCache;
 import com.leakedbits.codelabs.utils.Sample;
 
 public class SpawnBodiesSample extends Sample {
 
-	/* Max number of balls to be spawned */
+	/* Name shown in the main menu, read without creating the sample */
+	public static final String NAME = "Spawn bodies on touch";
+
+	/*
+	 * Max number of balls alive at the same time. Once reached, the oldest
+	 * ball is recycled to spawn the new one.
+	 */
 	private static final int MAX_SPAWNED_BALLS = 20;
 
+	/* Number of steps averaged to compare the step time with the budget */
+	private static final int STRESS_WINDOW = 30;
+
+	/* Half size of the bodies spawned by the stress test */
+	private static final float STRESS_BODY_SIZE = 0.15f;
+
+	/*
+	 * Stress test settings. Bodies of mixed shapes are spawned at the given
+	 * rate, in bodies per simulated second, until the mean step time in
+	 * milliseconds goes over the budget or the body ceiling is reached. Step
+	 * times change from run to run, so the budget is ignored while recording
+	 * or replaying. The curve of step time against body count is written to
+	 * a CSV file. Press S to start or stop it.
+	 */
+	public float stressSpawnRate = 60;
+	public float stressStepBudget = 1000 / 60f;
+	public int stressMaxBodies = 3000;
+	public String stressFileName = "spawn-stress.csv";
+
 	/* Use Box2DDebugRenderer, which is a model renderer for debug purposes */
 	private Box2DDebugRenderer debugRenderer;
 
@@ -27,14 +62,39 @@ public class SpawnBodiesSample extends Sample {
 	/* Define a world to hold all bodies and simulate reactions between them */
 	private World world;
 
-	/* Counter to know how many ball have been spawned */
-	private int spawnedBalls;
+	/* Balls alive, from the oldest to the newest */
+	private Array<Body> spawnedBalls;
+
+	/* Pool that recycles balls instead of destroying them */
+	private BodyPool ballPool;
+
+	/* Shapes and fixture templates shared by every spawned ball */
+	private ShapeCache shapeCache;
+	private int ballTemplate;
+
+	/* Templates of the stress test bodies: ball, box and triangle */
+	private int[] stressTemplates;
+
+	/*
+	 * Stress test state. Spawns not done yet are accumulated because the
+	 * rate is rarely a whole number of bodies per step.
+	 */
+	private boolean isStressTestRunning;
+	private boolean isStressCurvePending;
+	private float pendingStressSpawns;
+
+	/* Nanoseconds spent spawning in the current step */
+	private long stressSpawnTime;
+
+	/* Body count and step time in milliseconds of each stress test step */
+	private IntArray stressBodyCounts;
+	private FloatArray stressStepTimes;
 
 	/**
 	 * Main constructor used to update sample name.
 	 */
 	public SpawnBodiesSample() {
-		name = "Spawn bodies on touch";
+		name = NAME;
 	}
 
 	@Override
@@ -46,8 +106,62 @@ public class SpawnBodiesSample extends Sample {
 		/* Render all graphics before do physics step */
 		debugRenderer.render(world, camera.combined);
 
-		/* Step the simulation with a fixed time step of 1/60 of a second */
-		world.step(1 / 60f, 6, 2);
+		/*
+		 * Step the simulation with a fixed time step of 1/60 of a second, as
+		 * many times as needed to keep up with the elapsed time (See Sample
+		 * class).
+		 */
+		stepWorld(delta);
+
+		/* Write the curve of the stress test once it has finished */
+		if (isStressCurvePending) {
+			saveStressCurve();
+		}
+	}
+
+	@Override
+	public void step() {
+		long start = System.nanoTime();
+		stressSpawnTime = 0;
+		super.step();
+
+		if (!isStressTestRunning) {
+			return;
+		}
+
+		/* Only the world step is timed, not the spawning */
+		float stepTime = (System.nanoTime() - start - stressSpawnTime) / 1000000f;
+
+		stressBodyCounts.add(world.getBodyCount());
+		stressStepTimes.add(stepTime);
+
+		/* Averaging keeps a single slow step from ending the test */
+		int lastStep = stressStepTimes.size - 1;
+		if (!isRecording() && !isReplaying()
+				&& lastStep + 1 >= STRESS_WINDOW
+				&& getMeanStepTime(lastStep) > stressStepBudget) {
+			stopStressTest();
+		}
+	}
+
+	/**
+	 * Spawns the stress test bodies after each step. A replayed press of S
+	 * reaches the sample at the start of step(), so spawning here keeps
+	 * replays in step with the recording.
+	 */
+	@Override
+	protected void onWorldStep(float timeStep) {
+		if (!isStressTestRunning) {
+			return;
+		}
+
+		long start = System.nanoTime();
+		spawnStressBodies();
+		stressSpawnTime = System.nanoTime() - start;
+
+		if (world.getBodyCount() >= stressMaxBodies) {
+			stopStressTest();
+		}
 	}
 
 	@Override
@@ -61,41 +175,74 @@ public class SpawnBodiesSample extends Sample {
 		 */
 		super.show();
 
+		/*
+		 * Build the world and its bodies. This part doesn't use graphics, so it
+		 * can also run without a screen (See Sample.createWorld()).
+		 */
+		createWorld(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+
+		/* Get the renderer shared by every sample (See Codelabs class) */
+		debugRenderer = Codelabs.getDebugRenderer();
+
+		/*
+		 * Next line must remain commented because we do this in its parent (See
+		 * Sample class). In case you are not using Sample class, uncomment this
+		 * line to set input processor to handle events.
+		 */
+		// Gdx.input.setInputProcessor(this);
+	}
+
+	@Override
+	public void createWorld(int screenWidth, int screenHeight) {
+		super.createWorld(screenWidth, screenHeight);
+
 		/*
 		 * Create world with a common gravity vector (9.81 m/s2 downwards force)
 		 * and tell world that we want objects to sleep. This last value
 		 * conserves CPU usage.
 		 */
-		world = new World(new Vector2(0, -9.81f), true);
-
-		/* Create renderer */
-		debugRenderer = new Box2DDebugRenderer();
+		world = obtainWorld(new Vector2(0, -9.81f), true);
 
 		/*
 		 * Define camera viewport. Box2D uses meters internally so the camera
 		 * must be defined also in meters. We set a desired width and adjust
 		 * height to different resolutions.
 		 */
-		camera = new OrthographicCamera(20,
-				20 * (Gdx.graphics.getHeight() / (float) Gdx.graphics
-						.getWidth()));
-
-		/*
-		 * Next line must remain commented because we do this in its parent (See
-		 * Sample class). In case you are not using Sample class, uncomment this
-		 * line to set input processor to handle events.
-		 */
-		// Gdx.input.setInputProcessor(this);
+		camera = obtainCamera(20, 20 * (screenHeight / (float) screenWidth));
 
 		/* Create the walls */
 		Box2DFactory.createWalls(world, camera.viewportWidth,
 				camera.viewportHeight, 1);
+
+		/*
+		 * Create the ball template once. Every spawned ball reuses its shape
+		 * instead of creating and disposing a new one.
+		 */
+		shapeCache = new ShapeCache();
+		ballTemplate = shapeCache.addTemplate(shapeCache.getCircle(1), 2.5f,
+				0.25f, 0.75f, false);
+
+		spawnedBalls = new Array<Body>(MAX_SPAWNED_BALLS);
+		ballPool = new BodyPool(world, BodyType.DynamicBody,
+				shapeCache.getTemplate(ballTemplate), MAX_SPAWNED_BALLS);
+
+		stressTemplates = new int[] {
+				shapeCache.addTemplate(
+						shapeCache.getCircle(STRESS_BODY_SIZE), 2.5f, 0.25f,
+						0.5f, false),
+				shapeCache.addTemplate(shapeCache.getBox(STRESS_BODY_SIZE,
+						STRESS_BODY_SIZE), 1, 0.5f, 0.2f, false),
+				shapeCache.addTemplate(shapeCache.getTriangle(
+						STRESS_BODY_SIZE, STRESS_BODY_SIZE), 1, 0.5f, 0.2f,
+						false) };
+		stressBodyCounts = new IntArray();
+		stressStepTimes = new FloatArray();
 	}
 
 	@Override
-	public void dispose() {
-		debugRenderer.dispose();
-		world.dispose();
+	public void disposeWorld() {
+		super.disposeWorld();
+		shapeCache.dispose();
 	}
 
 	/*
@@ -106,23 +253,131 @@ public class SpawnBodiesSample extends Sample {
 	@Override
 	public boolean touchUp(int screenX, int screenY, int pointer, int button) {
 
-		/* Checks whether the max amount of balls were spawned */
-		if (spawnedBalls < MAX_SPAWNED_BALLS) {
-			spawnedBalls++;
+		/* Recycle the oldest ball when the max amount of balls is reached */
+		if (spawnedBalls.size == MAX_SPAWNED_BALLS) {
+			ballPool.free(spawnedBalls.removeIndex(0));
+		}
 
-			/* Translate camera point to world point */
-			Vector3 unprojectedVector = new Vector3();
-			camera.unproject(unprojectedVector.set(screenX, screenY, 0));
+		/* Translate camera point to world point */
+		Vector3 unprojectedVector = new Vector3();
+		unproject(camera, unprojectedVector.set(screenX, screenY, 0));
 
-			/* Create a new ball */
-			Shape shape = Box2DFactory.createCircleShape(1);
-			FixtureDef fixtureDef = Box2DFactory.createFixture(shape, 2.5f,
-					0.25f, 0.75f, false);
-			Box2DFactory.createBody(world, BodyType.DynamicBody, fixtureDef,
-					new Vector2(unprojectedVector.x, unprojectedVector.y));
-		}
+		/* Get a ball from the pool, which creates it only if there is none */
+		spawnedBalls.add(ballPool.obtain(unprojectedVector.x,
+				unprojectedVector.y, 0, null));
 
 		return true;
 	}
 
+	@Override
+	public boolean keyDown(int keycode) {
+		if (keycode == Keys.S) {
+			if (isStressTestRunning) {
+				stopStressTest();
+			} else {
+				startStressTest();
+			}
+
+			return true;
+		}
+
+		return super.keyDown(keycode);
+	}
+
+	/**
+	 * The stress test spawns bodies every step, so starting and stopping it
+	 * is recorded and replayed.
+	 */
+	@Override
+	protected boolean isSimulationKey(int keycode) {
+		return keycode == Keys.S;
+	}
+
+	/**
+	 * Starts spawning bodies automatically and recording the step time of
+	 * each step. Previous results are discarded.
+	 */
+	public void startStressTest() {
+		stressBodyCounts.clear();
+		stressStepTimes.clear();
+		pendingStressSpawns = 0;
+		isStressCurvePending = false;
+		isStressTestRunning = true;
+	}
+
+	public void stopStressTest() {
+		isStressTestRunning = false;
+		isStressCurvePending = true;
+	}
+
+	public boolean isStressTestRunning() {
+		return isStressTestRunning;
+	}
+
+	/**
+	 * Writes the recorded curve as CSV, with a row per step holding the body
+	 * count, the step time and the mean step time used to stop the test.
+	 */
+	public void writeStressCurve(Writer writer) throws IOException {
+		writer.write("step,bodies,step_ms,mean_ms\n");
+
+		for (int i = 0; i < stressStepTimes.size; i++) {
+			writer.write(String.format(Locale.US, "%d,%d,%.4f,%.4f\n",
+					i, stressBodyCounts.get(i), stressStepTimes.get(i),
+					getMeanStepTime(i)));
+		}
+	}
+
+	private void spawnStressBodies() {
+		pendingStressSpawns += stressSpawnRate * TIME_STEP;
+
+		/* Spawn in the upper part of the screen, between the walls */
+		float halfWidth = camera.viewportWidth / 2 - 1 - STRESS_BODY_SIZE;
+		float top = camera.viewportHeight / 2 - 1 - STRESS_BODY_SIZE;
+
+		while (pendingStressSpawns >= 1) {
+			int template = stressTemplates[world.getBodyCount()
+					% stressTemplates.length];
+			Box2DFactory.createBodyFromTemplate(world, BodyType.DynamicBody,
+					shapeCache.getTemplate(template),
+					-halfWidth + getRandom().nextFloat() * 2 * halfWidth,
+					top - 2 + getRandom().nextFloat() * 2);
+			pendingStressSpawns--;
+		}
+	}
+
+	/**
+	 * Gets the mean step time of the STRESS_WINDOW steps that end at the
+	 * given one, or of every step until it if there are fewer.
+	 */
+	private float getMeanStepTime(int step) {
+		int first = Math.max(0, step - STRESS_WINDOW + 1);
+		float total = 0;
+
+		for (int i = first; i <= step; i++) {
+			total += stressStepTimes.get(i);
+		}
+
+		return total / (step - first + 1);
+	}
+
+	private void saveStressCurve() {
+		isStressCurvePending = false;
+
+		try {
+			Writer writer = Gdx.files.local(stressFileName).writer(false);
+			try {
+				writeStressCurve(writer);
+			} finally {
+				writer.close();
+			}
+
+			Gdx.app.log(getName(), "Stress test stopped at "
+					+ world.getBodyCount() + " bodies, curve written to "
+					+ stressFileName);
+		} catch (IOException e) {
+			Gdx.app.error(getName(), "Can't write " + stressFileName, e);
+		}
+	}
+
 }
@@ -4,9 +4,8 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
@@ -14,12 +13,17 @@ import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
 import com.badlogic.gdx.physics.box2d.Shape;
 import com.badlogic.gdx.physics.box2d.World;
-import com.badlogic.gdx.utils.Array;
+import com.leakedbits.codelabs.Codelabs;
+import com.leakedbits.codelabs.box2d.utils.BodySpriteRenderer;
 import com.leakedbits.codelabs.box2d.utils.Box2DFactory;
+import com.leakedbits.codelabs.utils.AssetCache;
 import com.leakedbits.codelabs.utils.Sample;
 
 public class SpritesSample extends Sample {
 
+	/* Name shown in the main menu, read without creating the sample */
+	public static final String NAME = "Sprites";
+
 	/* Define a body to later apply impulses to it */
 	private Body box;
 
@@ -35,18 +39,18 @@ public class SpritesSample extends Sample {
 	/* Define a world to hold all bodies and simulate reactions between them */
 	private World world;
 
-	/* New variables used to hold the sprite and draw it in the screen */
-	private Sprite sprite;
+	/* New variables used to hold the texture and draw it in the screen */
+	private Texture texture;
 	private SpriteBatch batch;
 
-	/* This array will hold all the bodies of the word for rendering purposes */
-	private Array<Body> worldBodies;
+	/* Draws a texture region on top of each body bound to it */
+	private BodySpriteRenderer spriteRenderer;
 
 	/**
 	 * Main constructor used to update sample name.
 	 */
 	public SpritesSample() {
-		name = "Sprites";
+		name = NAME;
 	}
 
 	@Override
@@ -59,44 +63,33 @@ public class SpritesSample extends Sample {
 		debugRenderer.render(world, camera.combined);
 
 		/*
-		 * Set projection matrix to camera.combined, the same way we did with
-		 * the debug renderer.
+		 * Draw the sprite of every body bound to the renderer. The renderer
+		 * sets the projection matrix to camera.combined, the same way we did
+		 * with the debug renderer, skips the sprites out of the screen and
+		 * interpolates positions between the last two physics steps, so
+		 * sprites move smoothly whatever the frame rate is.
 		 */
-		batch.setProjectionMatrix(camera.combined);
-		batch.begin();
-
-		/* Get word bodies */
-		world.getBodies(worldBodies);
+		spriteRenderer.render(batch, camera, getAlpha());
 
 		/*
-		 * For each body in the world we have to check if it has user data
-		 * associated and if it is an Sprite. In that case, we draw it in the
-		 * screen.
+		 * Step the simulation with a fixed time step of 1/60 of a second, as
+		 * many times as needed to keep up with the elapsed time (See Sample
+		 * class).
 		 */
-		for (Body body : worldBodies) {
-			if (body.getUserData() instanceof Sprite) {
-				Sprite sprite = (Sprite) body.getUserData();
-
-				/*
-				 * Set body position equals to box position. We also need to
-				 * center it in the box (measures are relative to body center).
-				 */
-				Vector2 position = body.getPosition();
-				sprite.setPosition(position.x - sprite.getWidth() / 2,
-						position.y - sprite.getWidth() / 2);
-
-				/* Set sprite rotation equals to body rotation */
-				sprite.setRotation(body.getAngle() * MathUtils.radiansToDegrees);
-
-				/* Draw the sprite on screen */
-				sprite.draw(batch);
-			}
-		}
+		stepWorld(delta);
+	}
 
-		batch.end();
+	@Override
+	protected void onWorldStep(float timeStep) {
+		/* Read the new transforms of the bodies with a sprite */
+		spriteRenderer.update();
+	}
 
-		/* Step the simulation with a fixed time step of 1/60 of a second */
-		world.step(1 / 60f, 6, 2);
+	@Override
+	public void dispose() {
+		super.dispose();
+		batch.dispose();
+		Codelabs.getAssets().release(AssetCache.CRAB);
 	}
 
 	@Override
@@ -110,33 +103,50 @@ public class SpritesSample extends Sample {
 		 */
 		super.show();
 
+		/*
+		 * Next line must remain commented because we do this in its parent (See
+		 * Sample class). In case you are not using Sample class, uncomment this
+		 * line to set input processor to handle events.
+		 */
+		// Gdx.input.setInputProcessor(this);
+
+		batch = new SpriteBatch();
+
+		/*
+		 * Set box texture. It is preloaded during the splash screen and shared
+		 * by the asset cache, so it isn't read and uploaded again each time the
+		 * sample is shown. It is got before the world is built, which binds it
+		 * to the box.
+		 */
+		texture = Codelabs.getAssets().acquire(AssetCache.CRAB, Texture.class);
+
+		/*
+		 * Build the world and its bodies. This part doesn't use graphics, so it
+		 * can also run without a screen (See Sample.createWorld()).
+		 */
+		createWorld(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+
+		/* Get the renderer shared by every sample (See Codelabs class) */
+		debugRenderer = Codelabs.getDebugRenderer();
+	}
+
+	@Override
+	public void createWorld(int screenWidth, int screenHeight) {
+		super.createWorld(screenWidth, screenHeight);
+
 		/*
 		 * Create world with a common gravity vector (9.81 m/s2 downwards force)
 		 * and tell world that we want objects to sleep. This last value
 		 * conserves CPU usage.
 		 */
-		world = new World(new Vector2(0, -9.81f), true);
-
-		/* Create renderer */
-		debugRenderer = new Box2DDebugRenderer();
-
-		batch = new SpriteBatch();
+		world = obtainWorld(new Vector2(0, -9.81f), true);
 
 		/*
 		 * Define camera viewport. Box2D uses meters internally so the camera
 		 * must be defined also in meters. We set a desired width and adjust
 		 * height to different resolutions.
 		 */
-		camera = new OrthographicCamera(20,
-				20 * (Gdx.graphics.getHeight() / (float) Gdx.graphics
-						.getWidth()));
-
-		/*
-		 * Next line must remain commented because we do this in its parent (See
-		 * Sample class). In case you are not using Sample class, uncomment this
-		 * line to set input processor to handle events.
-		 */
-		// Gdx.input.setInputProcessor(this);
+		camera = obtainCamera(20, 20 * (screenHeight / (float) screenWidth));
 
 		/* Create the box */
 		Shape shape = Box2DFactory.createBoxShape(1.5f, 1.5f,
@@ -150,27 +160,22 @@ public class SpritesSample extends Sample {
 		Box2DFactory.createWalls(world, camera.viewportWidth,
 				camera.viewportHeight, 1);
 
-		/* Set box texture */
-		sprite = new Sprite(new Texture("data/images/crab.png"));
-
 		/*
-		 * Set the size of the sprite. We have to remember that we are not
-		 * working in pixels, but with meters. The size of the sprite will be
-		 * the same as the size of the box; 2 meter wide, 2 meters tall.
+		 * The renderer reads the transforms of the bodies after each step, so
+		 * it is created with the world.
 		 */
-		sprite.setSize(3, 3);
+		spriteRenderer = new BodySpriteRenderer(1);
 
 		/*
-		 * Sets the origin in relation to the sprite's position for scaling and
-		 * rotation.
+		 * Bind the texture to the box to draw it in each render step. We have
+		 * to remember that we are not working in pixels, but with meters. The
+		 * size of the sprite will be the same as the size of the box; 3 meters
+		 * wide, 3 meters tall. The sprite is centered in the body and rotated
+		 * around its center. Without graphics there is no texture to bind.
 		 */
-		sprite.setOrigin(sprite.getWidth() / 2, sprite.getHeight() / 2);
-
-		/* Set sprite as a user data of the body to draw it in each render step */
-		box.setUserData(sprite);
-
-		/* Instantiate the array of bodies that will be used during render step */
-		worldBodies = new Array<Body>();
+		if (texture != null) {
+			spriteRenderer.add(box, new TextureRegion(texture), 3, 3);
+		}
 	}
 
 	/*
@@ -180,10 +185,12 @@ public class SpritesSample extends Sample {
 	@Override
 	public boolean touchDown(int screenX, int screenY, int pointer, int button) {
 		/*
-		 * Get current time in milliseconds. We will use this to calculate the
-		 * time the user has touched the screen.
+		 * Get current simulation time in milliseconds. We will use this to
+		 * calculate the time the user has touched the screen. It is counted in
+		 * physics steps instead of read from the system clock, so a recorded
+		 * touch gives the same impulse when it is replayed (See Sample class).
 		 */
-		this.timer = System.currentTimeMillis();
+		this.timer = getSimulationTime();
 
 		return true;
 	}
@@ -197,7 +204,7 @@ public class SpritesSample extends Sample {
 		super.touchUp(screenX, screenY, pointer, button);
 
 		/* Calculate the time the user has touched the screen */
-		long touchedTime = System.currentTimeMillis() - timer;
+		long touchedTime = getSimulationTime() - timer;
 
 		/* Every second touching the screen will increment by 20 the impulse */
 		float impulse = Math.max(10f, touchedTime / 50);
@@ -0,0 +1,296 @@
+package com.leakedbits.codelabs.box2d;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.leakedbits.codelabs.Codelabs;
+import com.leakedbits.codelabs.box2d.utils.Box2DFactory;
+import com.leakedbits.codelabs.box2d.utils.ShapeCache;
+import com.leakedbits.codelabs.box2d.utils.WorldStreamer;
+import com.leakedbits.codelabs.utils.Sample;
+
+public class StreamingSample extends Sample {
+
+	/* Name shown in the main menu, read without creating the sample */
+	public static final String NAME = "Stream a large level";
+
+	/* Width of the level and distance between piles of bodies, in meters */
+	private static final float LEVEL_WIDTH = 600;
+	private static final float PILE_SPACING = 6;
+
+	/* Number of rows of each pile, the widest one at the bottom */
+	private static final int PILE_ROWS = 4;
+
+	/* Half size of the bodies of the piles */
+	private static final float BODY_SIZE = 0.4f;
+
+	/*
+	 * Streaming settings. The level is split in square chunks of chunkSize
+	 * meters. Chunks are activated when they get closer to the view than the
+	 * activation margin and deactivated when they get farther than the
+	 * deactivation margin.
+	 */
+	public float chunkSize = 10;
+	public float activationMargin = 5;
+	public float deactivationMargin = 15;
+
+	/* Speed in m/s of the camera while nobody drags it */
+	public float scrollSpeed = 8;
+
+	/* Use Box2DDebugRenderer, which is a model renderer for debug purposes */
+	private Box2DDebugRenderer debugRenderer;
+
+	/* As always, we need a camera to be able to see the objects */
+	private OrthographicCamera camera;
+
+	/* Define a world to hold all bodies and simulate reactions between them */
+	private World world;
+
+	/* Activates the bodies near the camera and deactivates the rest */
+	private WorldStreamer streamer;
+
+	/* Shapes and fixture templates shared by the bodies of the piles */
+	private ShapeCache shapeCache;
+	private int[] templates;
+
+	/* Direction of the automatic scroll, 1 to the right and -1 to the left */
+	private float scrollDirection;
+
+	/* Pointer dragging the camera, or -1, and its last world position */
+	private int dragPointer;
+	private Vector3 dragPoint;
+	private Vector3 touchPoint;
+
+	/**
+	 * Main constructor used to update sample name.
+	 */
+	public StreamingSample() {
+		name = NAME;
+
+		dragPoint = new Vector3();
+		touchPoint = new Vector3();
+	}
+
+	@Override
+	public void render(float delta) {
+		/* Clear screen with a black background */
+		Gdx.gl.glClearColor(0, 0, 0, 1);
+		Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+
+		/*
+		 * Render all graphics before do physics step. Inactive bodies are
+		 * drawn in a different color by the debug renderer.
+		 */
+		debugRenderer.render(world, camera.combined);
+
+		/*
+		 * Step the simulation with a fixed time step of 1/60 of a second, as
+		 * many times as needed to keep up with the elapsed time (See Sample
+		 * class).
+		 */
+		stepWorld(delta);
+	}
+
+	@Override
+	public void show() {
+		/*
+		 * This line is found in every sample but is not necessary for the
+		 * sample functionality. calls Sample.show() method. That method set the
+		 * sample to receive all touch and key input events. Also prevents the
+		 * app from be closed whenever the user press back button and instead
+		 * returns to main menu.
+		 */
+		super.show();
+
+		/*
+		 * Build the world and its bodies. This part doesn't use graphics, so it
+		 * can also run without a screen (See Sample.createWorld()).
+		 */
+		createWorld(Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+
+		/* Get the renderer shared by every sample (See Codelabs class) */
+		debugRenderer = Codelabs.getDebugRenderer();
+
+		/*
+		 * Next line must remain commented because we do this in its parent (See
+		 * Sample class). In case you are not using Sample class, uncomment this
+		 * line to set input processor to handle events.
+		 */
+		// Gdx.input.setInputProcessor(this);
+	}
+
+	@Override
+	public void createWorld(int screenWidth, int screenHeight) {
+		super.createWorld(screenWidth, screenHeight);
+
+		/*
+		 * Create world with a common gravity vector (9.81 m/s2 downwards force)
+		 * and tell world that we want objects to sleep. This last value
+		 * conserves CPU usage.
+		 */
+		world = obtainWorld(new Vector2(0, -9.81f), true);
+
+		/*
+		 * Define camera viewport. Box2D uses meters internally so the camera
+		 * must be defined also in meters. We set a desired width and adjust
+		 * height to different resolutions. The camera starts at the left end
+		 * of the level.
+		 */
+		camera = obtainCamera(20, 20 * (screenHeight / (float) screenWidth));
+		camera.position.x = (camera.viewportWidth - LEVEL_WIDTH) / 2;
+		camera.update();
+
+		scrollDirection = 1;
+		dragPointer = -1;
+
+		createGround();
+
+		/*
+		 * Create the piles. Each body is given to the streamer, which keeps
+		 * it inactive until the camera gets close to it.
+		 */
+		streamer = new WorldStreamer(chunkSize, activationMargin,
+				deactivationMargin);
+
+		shapeCache = new ShapeCache();
+		templates = new int[] {
+				shapeCache.addTemplate(shapeCache.getBox(BODY_SIZE, BODY_SIZE),
+						1, 0.5f, 0.1f, false),
+				shapeCache.addTemplate(shapeCache.getCircle(BODY_SIZE), 1,
+						0.5f, 0.1f, false) };
+
+		float groundY = -camera.viewportHeight / 2 + 1;
+		for (float x = -LEVEL_WIDTH / 2 + PILE_SPACING; x < LEVEL_WIDTH / 2; x += PILE_SPACING) {
+			createPile(x, groundY);
+		}
+
+		/* Activate the chunks around the starting view */
+		streamer.update(camera);
+	}
+
+	@Override
+	protected void onWorldStep(float timeStep) {
+		/* Scroll from one end of the level to the other one */
+		if (dragPointer == -1) {
+			moveCamera(scrollSpeed * scrollDirection * timeStep);
+
+			float limit = (LEVEL_WIDTH - camera.viewportWidth) / 2;
+			if (Math.abs(camera.position.x) >= limit) {
+				scrollDirection = -Math.signum(camera.position.x);
+			}
+		}
+
+		/* Bodies can't be activated while the world is stepping */
+		streamer.update(camera);
+	}
+
+	@Override
+	public void disposeWorld() {
+		super.disposeWorld();
+		streamer.clear();
+		shapeCache.dispose();
+	}
+
+	public WorldStreamer getStreamer() {
+		return streamer;
+	}
+
+	/*
+	 * Input events handling. Dragging moves the camera, which stops scrolling
+	 * by itself until the pointer is released.
+	 */
+
+	@Override
+	public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+		if (dragPointer == -1) {
+			dragPointer = pointer;
+			unproject(camera, dragPoint.set(screenX, screenY, 0));
+		}
+
+		return true;
+	}
+
+	@Override
+	public boolean touchDragged(int screenX, int screenY, int pointer) {
+		if (pointer == dragPointer) {
+			/*
+			 * Move the camera so the dragged point stays under the pointer.
+			 * The point doesn't change, as it is in world coordinates.
+			 */
+			unproject(camera, touchPoint.set(screenX, screenY, 0));
+			moveCamera(dragPoint.x - touchPoint.x);
+		}
+
+		return true;
+	}
+
+	@Override
+	public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+		if (pointer == dragPointer) {
+			dragPointer = -1;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Moves the camera horizontally, keeping it inside the level.
+	 */
+	private void moveCamera(float distance) {
+		float limit = (LEVEL_WIDTH - camera.viewportWidth) / 2;
+
+		camera.position.x = Math.max(-limit,
+				Math.min(limit, camera.position.x + distance));
+		camera.update();
+	}
+
+	/**
+	 * Creates the ground of the whole level as a single static body with a
+	 * chain shape, raised at both ends. It is not streamed: static bodies
+	 * aren't simulated and the piles need it wherever they are.
+	 */
+	private void createGround() {
+		float bottom = -camera.viewportHeight / 2 + 1;
+		float halfWidth = LEVEL_WIDTH / 2;
+
+		Vector2[] vertices = new Vector2[] {
+				new Vector2(-halfWidth, bottom + camera.viewportHeight),
+				new Vector2(-halfWidth, bottom),
+				new Vector2(halfWidth, bottom),
+				new Vector2(halfWidth, bottom + camera.viewportHeight) };
+
+		Shape shape = Box2DFactory.createChainShape(vertices);
+		FixtureDef fixtureDef = Box2DFactory.createFixture(shape, 0, 0.5f, 0,
+				false);
+		Box2DFactory.createBody(world, BodyType.StaticBody, fixtureDef,
+				new Vector2(0, 0));
+	}
+
+	/**
+	 * Creates a pile of boxes and balls standing on the ground.
+	 */
+	private void createPile(float x, float groundY) {
+		float size = BODY_SIZE * 2;
+
+		for (int row = 0; row < PILE_ROWS; row++) {
+			int columns = PILE_ROWS - row;
+			float left = x - (columns - 1) * size / 2;
+			float y = groundY + BODY_SIZE + row * size;
+
+			for (int column = 0; column < columns; column++) {
+				int template = templates[getRandom().nextInt(templates.length)];
+				streamer.add(Box2DFactory.createBodyFromTemplate(world,
+						BodyType.DynamicBody, shapeCache.getTemplate(template),
+						left + column * size, y));
+			}
+		}
+	}
+
+}
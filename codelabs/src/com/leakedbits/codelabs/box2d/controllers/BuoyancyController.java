@@ -1,26 +1,86 @@
 package com.leakedbits.codelabs.box2d.controllers;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.CircleShape;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.QueryCallback;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.physics.box2d.Transform;
 import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectMap;
 import com.leakedbits.codelabs.box2d.utils.PolygonProperties;
+import com.leakedbits.codelabs.box2d.utils.SpatialGrid;
 import com.leakedbits.codelabs.utils.PolygonIntersector;
 
 public class BuoyancyController {
 
-	private Fixture fluidSensor;
-	private List<Vector2> fluidVertices;
-	private Set<Fixture> fixtures;
+	/* Max number of vertices of a Box2D polygon */
+	private static final int MAX_POLYGON_VERTICES = 8;
+
+	/*
+	 * Vertices of the polygon that replaces a circle crossing the sides or the
+	 * bottom of a region. It is scaled so both have the same area.
+	 */
+	private static final int CIRCLE_SEGMENTS = 16;
+	private static final float[] CIRCLE_POLYGON = createCirclePolygon();
+
+	/* Default size in meters of the cells used to index fluid regions */
+	private static final float DEFAULT_CELL_SIZE = 10;
+
+	private static final float PI = (float) Math.PI;
+
+	private Array<FluidRegion> regions;
+	private Array<BuoyantBody> bodies;
+	private ObjectMap<Body, BuoyantBody> bodiesMap;
+	private ObjectMap<Fixture, BuoyantFixture> fixturesMap;
 	private World world;
 
+	/*
+	 * Fluid regions are indexed by their AABB so each fixture is only clipped
+	 * against the regions it may overlap.
+	 */
+	private SpatialGrid regionsGrid;
+	private boolean isGridDirty;
+
+	/* Broadphase query used to find the fixtures overlapping the fluids */
+	private QueryCallback queryCallback;
+	private int queryStamp;
+	private int stepCount;
+
+	/*
+	 * Forces are computed by workers, each one owning its own scratch
+	 * buffers. Without an executor a single worker runs on the calling
+	 * thread.
+	 */
+	private ExecutorService executor;
+	private Array<ForceWorker> workers;
+	private int pendingWorkers;
+	private Throwable workerError;
+	private int maxClippedVertices;
+
+	private float gravityX;
+	private float gravityY;
+
+	/* Reusable vector used to read shape vertices */
+	private Vector2 tmpVertex;
+
+	/* Region of the fluid given to the constructor, if any */
+	private FluidRegion defaultRegion;
+
+	/*
+	 * Values of the fluid given to the constructor, read on every step, so
+	 * they can be changed at any time. Regions added with addFluid are
+	 * initialized with them and then tuned through the FluidRegion.
+	 */
 	public boolean isFluidFixed = true;
 	public float fluidDrag = 0.25f;
 	public float fluidLift = 0.25f;
@@ -28,147 +88,991 @@ public class BuoyancyController {
 	public float maxFluidDrag = 2000;
 	public float maxFluidLift = 500;
 
-	public BuoyancyController(World world, Fixture fluidSensor) {
-		this.world = world;
-		this.fluidSensor = fluidSensor;
-		fluidVertices = getFixtureVertices(fluidSensor);
+	/*
+	 * When greater than zero, the controller finds the fixtures overlapping
+	 * the fluids by itself every queryInterval steps using the world
+	 * broadphase, so there is no need to call addBody and removeBody from a
+	 * ContactListener. Fixtures added with addBody are kept until they are
+	 * removed with removeBody.
+	 */
+	public int queryInterval = 0;
 
-		fixtures = new HashSet<Fixture>();
+	public BuoyancyController(World world) {
+		this(world, DEFAULT_CELL_SIZE);
 	}
 
-	public void step() {
-		for (Fixture fixture : fixtures) {
-			if (fixture.getBody().isAwake()) {
-
-				/* Create clipPolygon */
-				List<Vector2> clipPolygon = getFixtureVertices(fixture);
-
-				/* Create subjectPolygon */
-				List<Vector2> subjectPolygon;
-				if (isFluidFixed) {
-					subjectPolygon = fluidVertices;
-				} else {
-					subjectPolygon = getFixtureVertices(fluidSensor);
+	/**
+	 * Creates a controller without fluid regions.
+	 *
+	 * @param world World of the bodies
+	 * @param cellSize Size in meters of the cells used to index the regions
+	 */
+	public BuoyancyController(World world, float cellSize) {
+		this.world = world;
+
+		tmpVertex = new Vector2();
+
+		regions = new Array<FluidRegion>();
+		regionsGrid = new SpatialGrid(cellSize);
+
+		workers = new Array<ForceWorker>();
+		workers.add(new ForceWorker());
+
+		bodies = new Array<BuoyantBody>();
+		bodiesMap = new ObjectMap<Body, BuoyantBody>();
+		fixturesMap = new ObjectMap<Fixture, BuoyantFixture>();
+
+		queryCallback = new QueryCallback() {
+
+			@Override
+			public boolean reportFixture(Fixture fixture) {
+				if (!fixture.isSensor()
+						&& fixture.getBody().getType() == BodyType.DynamicBody
+						&& isSupported(fixture.getShape())) {
+					BuoyantFixture buoyantFixture = fixturesMap.get(fixture);
+
+					if (buoyantFixture == null) {
+						buoyantFixture = track(fixture);
+					}
+
+					if (buoyantFixture != null) {
+						buoyantFixture.queryStamp = queryStamp;
+					}
 				}
 
-				/* Get intersection polygon */
-				List<Vector2> clippedPolygon = PolygonIntersector.clipPolygons(
-						subjectPolygon, clipPolygon);
+				/* Keep looking for more fixtures */
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Creates a controller with a single fluid region. The region takes the
+	 * fluid values of the controller on every step, so they can be changed
+	 * after construction.
+	 *
+	 * @param world World of the bodies
+	 * @param fluidSensor Polygon sensor that defines the fluid
+	 */
+	public BuoyancyController(World world, Fixture fluidSensor) {
+		this(world);
+
+		defaultRegion = addFluid(fluidSensor);
+	}
+
+	/**
+	 * Adds a fluid region defined by a polygon sensor. The region is
+	 * initialized with the default values of this controller and can be
+	 * tuned through the returned object.
+	 *
+	 * @param fluidSensor Polygon sensor that defines the fluid
+	 * @return The new fluid region
+	 */
+	public FluidRegion addFluid(Fixture fluidSensor) {
+		FluidRegion region = new FluidRegion(fluidSensor);
+		copyFluidValues(region);
+
+		regions.add(region);
+		isGridDirty = true;
+
+		/*
+		 * Room for clipping the largest fixture polygon against the region.
+		 * Workers grow their buffers if some polygon still doesn't fit.
+		 */
+		maxClippedVertices = Math.max(maxClippedVertices,
+				PolygonIntersector.getClippingCapacity(region.getVertexCount(),
+						Math.max(MAX_POLYGON_VERTICES, CIRCLE_SEGMENTS)));
+
+		return region;
+	}
 
-				if (!clippedPolygon.isEmpty()) {
-					applyForces(fixture, clippedPolygon.toArray(new Vector2[0]));
+	public void removeFluid(Fixture fluidSensor) {
+		for (int i = 0; i < regions.size; i++) {
+			if (regions.get(i).getFixture() == fluidSensor) {
+				if (regions.get(i) == defaultRegion) {
+					defaultRegion = null;
 				}
+				regions.removeIndex(i);
+				isGridDirty = true;
+				break;
 			}
 		}
 	}
 
-	private void applyForces(Fixture fixture, Vector2[] clippedPolygon) {
-		PolygonProperties polygonProperties = PolygonIntersector
-				.computePolygonProperties(clippedPolygon);
+	public Array<FluidRegion> getFluids() {
+		return regions;
+	}
+
+	/**
+	 * Sets the fluid values of this controller to a region.
+	 */
+	private void copyFluidValues(FluidRegion region) {
+		region.isFixed = isFluidFixed;
+		region.fluidDrag = fluidDrag;
+		region.fluidLift = fluidLift;
+		region.linearDrag = linearDrag;
+		region.maxFluidDrag = maxFluidDrag;
+		region.maxFluidLift = maxFluidLift;
+	}
 
-		/* Get fixtures bodies */
-		Body fixtureBody = fixture.getBody();
-		Body fluidBody = fluidSensor.getBody();
+	/**
+	 * Enables parallel force computation. Bodies are split in as many chunks
+	 * as the given parallelism and each chunk clips its fixtures and computes
+	 * their forces on the executor. Forces are then applied on the calling
+	 * thread in the order bodies were added, so results are the same as in
+	 * serial mode.
+	 *
+	 * @param executor Executor used to run the chunks, null to disable
+	 *            parallel computation
+	 * @param parallelism Number of chunks the bodies are split in
+	 */
+	public void setExecutor(ExecutorService executor, int parallelism) {
+		this.executor = executor;
 
-		/* Get fluid density */
-		float density = fluidSensor.getDensity();
+		int workerCount = executor == null ? 1 : Math.max(1, parallelism);
+		workers.truncate(Math.min(workers.size, workerCount));
+		while (workers.size < workerCount) {
+			workers.add(new ForceWorker());
+		}
+	}
 
-		/* Apply buoyancy force */
-		float displacedMass = fluidSensor.getDensity()
-				* polygonProperties.getArea();
+	public void step() {
 		Vector2 gravity = world.getGravity();
-		Vector2 buoyancyForce = new Vector2(-gravity.x * displacedMass,
-				-gravity.y * displacedMass);
-		fixtureBody.applyForce(buoyancyForce, polygonProperties.getCentroid(),
-				true);
+		gravityX = gravity.x;
+		gravityY = gravity.y;
 
-		/* Linear drag force */
-		if (linearDrag != 0) {
-			fixtureBody.applyForce(gravity.rotate90(1).nor().scl(linearDrag),
-					polygonProperties.getCentroid(), true);
+		if (defaultRegion != null) {
+			copyFluidValues(defaultRegion);
 		}
 
-		/* Apply drag and lift forces */
-		int polygonVertices = clippedPolygon.length;
-		for (int i = 0; i < polygonVertices; i++) {
+		for (int i = 0; i < regions.size; i++) {
+			FluidRegion region = regions.get(i);
 
-			/* Apply drag force */
+			if (region.update(false)) {
+				isGridDirty = true;
+			}
 
-			/* End points and mid point of the edge */
-			Vector2 firstPoint = clippedPolygon[i];
-			Vector2 secondPoint = clippedPolygon[(i + 1) % polygonVertices];
-			Vector2 midPoint = firstPoint.cpy().add(secondPoint).scl(0.5f);
+			region.updateSurface(gravityX, gravityY);
+		}
 
-			/*
-			 * Find relative velocity between the object and the fluid at edge
-			 * mid point.
-			 */
-			Vector2 velocityDirection = new Vector2(fixtureBody
-					.getLinearVelocityFromWorldPoint(midPoint)
-					.sub(fluidBody.getLinearVelocityFromWorldPoint(midPoint)));
-			float velocity = velocityDirection.len();
-			velocityDirection.nor();
+		if (isGridDirty) {
+			rebuildGrid();
+		}
 
-			Vector2 edge = secondPoint.cpy().sub(firstPoint);
-			float edgeLength = edge.len();
-			edge.nor();
+		if (queryInterval > 0 && stepCount % queryInterval == 0) {
+			queryFixtures();
+		}
+		stepCount++;
 
-			Vector2 normal = new Vector2(edge.y, -edge.x);
-			float dragDot = normal.dot(velocityDirection);
+		/* Bodies may have been destroyed since the last query */
+		removeDestroyedFixtures();
 
-			if (dragDot >= 0) {
+		/* Native state of every body is read on the calling thread */
+		for (int i = 0; i < bodies.size; i++) {
+			bodies.get(i).readState();
+		}
 
-				/*
-				 * Normal don't point backwards. This is a leading edge. Store
-				 * the result of multiply edgeLength, density and velocity
-				 * squared
-				 */
-				float tempProduct = edgeLength * density * velocity * velocity;
+		computeForces();
 
-				float drag = dragDot * fluidDrag * tempProduct;
-				drag = Math.min(drag, maxFluidDrag);
-				Vector2 dragForce = velocityDirection.cpy().scl(-drag);
-				fixtureBody.applyForce(dragForce, midPoint, true);
+		/*
+		 * Forces of all the fixtures of a body are applied at once, serially
+		 * and in a stable order.
+		 */
+		for (int i = 0; i < bodies.size; i++) {
+			BuoyantBody buoyantBody = bodies.get(i);
 
-				/* Apply lift force */
-				float liftDot = edge.dot(velocityDirection);
-				float lift = dragDot * liftDot * fluidLift * tempProduct;
-				lift = Math.min(lift, maxFluidLift);
-				Vector2 liftDirection = new Vector2(-velocityDirection.y,
-						velocityDirection.x);
-				Vector2 liftForce = liftDirection.scl(lift);
-				fixtureBody.applyForce(liftForce, midPoint, true);
+			if (buoyantBody.hasForce) {
+				buoyantBody.body.applyForceToCenter(buoyantBody.forceX,
+						buoyantBody.forceY, true);
+				buoyantBody.body.applyTorque(buoyantBody.torque, true);
 			}
 		}
 	}
 
-	public void addBody(Fixture fixture) {
-		try {
-			PolygonShape polygon = (PolygonShape) fixture.getShape();
-			if (polygon.getVertexCount() > 2) {
-				fixtures.add(fixture);
+	/**
+	 * Splits bodies between the workers and waits for all of them to finish,
+	 * even if one of them fails, so no worker is still using the bodies when
+	 * this method returns. Then throws the first error of the workers, if
+	 * any.
+	 */
+	private void computeForces() {
+		int workerCount = workers.size;
+
+		for (int i = 0; i < workerCount; i++) {
+			workers.get(i).prepare(bodies.size * i / workerCount,
+					bodies.size * (i + 1) / workerCount);
+		}
+
+		synchronized (this) {
+			pendingWorkers = workerCount;
+			workerError = null;
+		}
+
+		/* The calling thread computes the first chunk by itself */
+		for (int i = 1; i < workerCount; i++) {
+			try {
+				executor.execute(workers.get(i));
+			} catch (RuntimeException e) {
+
+				/* Workers that couldn't be started won't finish by themselves */
+				for (int j = i; j < workerCount; j++) {
+					finishWorker(e);
+				}
+				break;
+			}
+		}
+		workers.first().run();
+
+		boolean isInterrupted = false;
+		Throwable error;
+
+		synchronized (this) {
+			while (pendingWorkers > 0) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+
+					/* Keep waiting, workers are still using the bodies */
+					isInterrupted = true;
+				}
 			}
-		} catch (ClassCastException e) {
-			Gdx.app.debug("BuoyancyController",
-					"Fixture shape is not an instance of PolygonShape.");
+
+			error = workerError;
+		}
+
+		if (isInterrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (error != null) {
+			throw new GdxRuntimeException(
+					"Error while computing buoyancy forces", error);
+		}
+	}
+
+	/**
+	 * Called by each worker when it finishes, with its error or null.
+	 */
+	private synchronized void finishWorker(Throwable error) {
+		if (error != null && workerError == null) {
+			workerError = error;
+		}
+
+		pendingWorkers--;
+		notifyAll();
+	}
+
+	/**
+	 * Starts applying buoyancy to a fixture. Polygon and circle fixtures are
+	 * supported, fixtures of the same body are aggregated into a single force
+	 * and torque. The fixture is kept until removeBody is called, even if the
+	 * broadphase queries don't find it (See queryInterval).
+	 */
+	public void addBody(Fixture fixture) {
+		if (!isSupported(fixture.getShape())) {
+			Gdx.app.debug("BuoyancyController", "Fixture shape is not an "
+					+ "instance of PolygonShape or CircleShape.");
+			return;
+		}
+
+		BuoyantFixture buoyantFixture = fixturesMap.get(fixture);
+		if (buoyantFixture == null) {
+			buoyantFixture = track(fixture);
+		}
+
+		if (buoyantFixture != null) {
+			buoyantFixture.isManual = true;
 		}
 	}
 
+	/**
+	 * Stops applying buoyancy to a fixture. Call it before destroying the
+	 * fixture with Body.destroyFixture(), which may hand the same Fixture
+	 * object to another shape.
+	 */
 	public void removeBody(Fixture fixture) {
-		fixtures.remove(fixture);
+		BuoyantFixture buoyantFixture = fixturesMap.get(fixture);
+
+		if (buoyantFixture != null) {
+			untrack(buoyantFixture);
+		}
+	}
+
+	/**
+	 * Stops applying buoyancy to every fixture of a body. Call it before
+	 * World.destroyBody(). Bodies destroyed without calling it are dropped
+	 * in the next step, before their state is read.
+	 */
+	public void removeBody(Body body) {
+		BuoyantBody buoyantBody = bodiesMap.get(body);
+
+		if (buoyantBody != null) {
+			while (buoyantBody.fixtures.size > 0) {
+				untrack(buoyantBody.fixtures.peek());
+			}
+		}
+	}
+
+	private static boolean isSupported(Shape shape) {
+		return shape instanceof PolygonShape || shape instanceof CircleShape;
+	}
+
+	/**
+	 * Starts tracking a polygon or circle fixture, caching its local
+	 * geometry.
+	 *
+	 * @return The tracked fixture or null if the polygon is degenerated
+	 */
+	private BuoyantFixture track(Fixture fixture) {
+		BuoyantFixture buoyantFixture = new BuoyantFixture();
+		buoyantFixture.fixture = fixture;
+		buoyantFixture.queryStamp = queryStamp;
+
+		Shape shape = fixture.getShape();
+		if (shape instanceof CircleShape) {
+			CircleShape circle = (CircleShape) shape;
+			Vector2 position = circle.getPosition();
+			buoyantFixture.isCircle = true;
+			buoyantFixture.localVertices = new float[] { position.x,
+					position.y };
+			buoyantFixture.vertexCount = 1;
+			buoyantFixture.radius = circle.getRadius();
+		} else {
+			PolygonShape polygon = (PolygonShape) shape;
+			if (polygon.getVertexCount() <= 2) {
+				return null;
+			}
+
+			buoyantFixture.localVertices = new float[polygon.getVertexCount() * 2];
+			buoyantFixture.vertexCount = getLocalVertices(polygon,
+					buoyantFixture.localVertices);
+		}
+
+		Body body = fixture.getBody();
+		BuoyantBody buoyantBody = bodiesMap.get(body);
+		if (buoyantBody == null) {
+			buoyantBody = new BuoyantBody();
+			buoyantBody.body = body;
+			bodies.add(buoyantBody);
+			bodiesMap.put(body, buoyantBody);
+		}
+
+		buoyantFixture.owner = buoyantBody;
+		buoyantBody.fixtures.add(buoyantFixture);
+		fixturesMap.put(fixture, buoyantFixture);
+
+		return buoyantFixture;
+	}
+
+	/**
+	 * Stops tracking a fixture, and its body if it was the last one.
+	 */
+	private void untrack(BuoyantFixture buoyantFixture) {
+		BuoyantBody buoyantBody = buoyantFixture.owner;
+		buoyantBody.fixtures.removeValue(buoyantFixture, true);
+		fixturesMap.remove(buoyantFixture.fixture);
+
+		if (buoyantBody.fixtures.size == 0) {
+			bodies.removeValue(buoyantBody, true);
+			bodiesMap.remove(buoyantBody.body);
+		}
+	}
+
+	/**
+	 * Drops the fixtures that are not attached to their body anymore.
+	 * World.destroyBody() empties the fixture list of a body before its Body
+	 * object can be reused, so this check never reads a destroyed body.
+	 */
+	private void removeDestroyedFixtures() {
+		for (int i = bodies.size - 1; i >= 0; i--) {
+			BuoyantBody buoyantBody = bodies.get(i);
+			Array<Fixture> bodyFixtures = buoyantBody.body.getFixtureList();
+
+			for (int j = buoyantBody.fixtures.size - 1; j >= 0; j--) {
+				BuoyantFixture buoyantFixture = buoyantBody.fixtures.get(j);
+
+				if (!bodyFixtures.contains(buoyantFixture.fixture, true)) {
+					untrack(buoyantFixture);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Queries the world for the fixtures whose AABB overlaps the AABB of a
+	 * fluid. New fixtures are tracked and fixtures that are not reported
+	 * anymore are removed, except the ones added with addBody, so membership
+	 * doesn't depend on contact callbacks.
+	 */
+	private void queryFixtures() {
+		queryStamp++;
+
+		for (int i = 0; i < regions.size; i++) {
+			FluidRegion region = regions.get(i);
+			world.QueryAABB(queryCallback, region.lowerX, region.lowerY,
+					region.upperX, region.upperY);
+		}
+
+		for (int i = bodies.size - 1; i >= 0; i--) {
+			BuoyantBody buoyantBody = bodies.get(i);
+			Array<BuoyantFixture> bodyFixtures = buoyantBody.fixtures;
+
+			for (int j = bodyFixtures.size - 1; j >= 0; j--) {
+				BuoyantFixture buoyantFixture = bodyFixtures.get(j);
+
+				if (buoyantFixture.queryStamp != queryStamp
+						&& !buoyantFixture.isManual) {
+					bodyFixtures.removeIndex(j);
+					fixturesMap.remove(buoyantFixture.fixture);
+				}
+			}
+
+			if (bodyFixtures.size == 0) {
+				bodies.removeIndex(i);
+				bodiesMap.remove(buoyantBody.body);
+			}
+		}
 	}
 
-	private List<Vector2> getFixtureVertices(Fixture fixture) {
-		PolygonShape polygon = (PolygonShape) fixture.getShape();
+	/**
+	 * Indexes every fluid region by its current AABB.
+	 */
+	private void rebuildGrid() {
+		regionsGrid.clear();
+
+		for (int i = 0; i < regions.size; i++) {
+			FluidRegion region = regions.get(i);
+			regionsGrid.insert(i, region.lowerX, region.lowerY, region.upperX,
+					region.upperY);
+		}
+
+		isGridDirty = false;
+	}
+
+	/**
+	 * Stores the local vertices of a polygon shape in the given array.
+	 *
+	 * @param polygon Polygon shape
+	 * @param vertices Array where the interleaved vertices will be stored
+	 * @return Number of vertices of the shape
+	 */
+	private int getLocalVertices(PolygonShape polygon, float[] vertices) {
 		int verticesCount = polygon.getVertexCount();
 
-		List<Vector2> vertices = new ArrayList<Vector2>(verticesCount);
 		for (int i = 0; i < verticesCount; i++) {
-			Vector2 vertex = new Vector2();
-			polygon.getVertex(i, vertex);
-			vertices.add(new Vector2(fixture.getBody().getWorldPoint(vertex)));
+			polygon.getVertex(i, tmpVertex);
+			vertices[i * 2] = tmpVertex.x;
+			vertices[i * 2 + 1] = tmpVertex.y;
+		}
+
+		return verticesCount;
+	}
+
+	/**
+	 * Applies a body transform to a set of local vertices.
+	 *
+	 * @param transform Values of the body transform
+	 * @param localVertices Interleaved local vertices
+	 * @param count Number of vertices
+	 * @param worldVertices Array where the world vertices will be stored
+	 */
+	static void transformVertices(float[] transform, float[] localVertices,
+			int count, float[] worldVertices) {
+		float positionX = transform[Transform.POS_X];
+		float positionY = transform[Transform.POS_Y];
+		float cos = transform[Transform.COS];
+		float sin = transform[Transform.SIN];
+
+		for (int i = 0; i < count; i++) {
+			float x = localVertices[i * 2];
+			float y = localVertices[i * 2 + 1];
+			worldVertices[i * 2] = cos * x - sin * y + positionX;
+			worldVertices[i * 2 + 1] = sin * x + cos * y + positionY;
+		}
+	}
+
+	/**
+	 * Creates the counter clockwise vertices of a regular polygon with the
+	 * area of a unit circle, centered at the origin.
+	 */
+	private static float[] createCirclePolygon() {
+		double angle = 2 * Math.PI / CIRCLE_SEGMENTS;
+		double scale = Math.sqrt(Math.PI
+				/ (CIRCLE_SEGMENTS / 2.0 * Math.sin(angle)));
+		float[] vertices = new float[CIRCLE_SEGMENTS * 2];
+
+		for (int i = 0; i < CIRCLE_SEGMENTS; i++) {
+			vertices[i * 2] = (float) (Math.cos(angle * i) * scale);
+			vertices[i * 2 + 1] = (float) (Math.sin(angle * i) * scale);
 		}
 
 		return vertices;
 	}
+
+	/**
+	 * Fixture tracked by the controller together with its cached local
+	 * geometry. Circles store their local center as a single vertex.
+	 */
+	private static class BuoyantFixture {
+		Fixture fixture;
+		BuoyantBody owner;
+		boolean isCircle;
+		float[] localVertices;
+		int vertexCount;
+		float radius;
+		int queryStamp;
+
+		/* Added with addBody, kept when queries don't report it */
+		boolean isManual;
+	}
+
+	/**
+	 * Body with at least one tracked fixture, the state read in the current
+	 * step and the sum of the forces of its fixtures.
+	 */
+	private static class BuoyantBody {
+		Body body;
+		Array<BuoyantFixture> fixtures = new Array<BuoyantFixture>();
+
+		boolean isAwake;
+		float[] transform = new float[4];
+		float velocityX;
+		float velocityY;
+		float angularVelocity;
+		float centerX;
+		float centerY;
+
+		/* Net force and torque around the center of mass */
+		boolean hasForce;
+		float forceX;
+		float forceY;
+		float torque;
+
+		/**
+		 * Copies the native state of the body needed to compute the forces.
+		 */
+		void readState() {
+			hasForce = false;
+			forceX = 0;
+			forceY = 0;
+			torque = 0;
+			isAwake = body.isAwake();
+
+			if (isAwake) {
+				System.arraycopy(body.getTransform().vals, 0, transform, 0, 4);
+				Vector2 linearVelocity = body.getLinearVelocity();
+				velocityX = linearVelocity.x;
+				velocityY = linearVelocity.y;
+				angularVelocity = body.getAngularVelocity();
+				Vector2 worldCenter = body.getWorldCenter();
+				centerX = worldCenter.x;
+				centerY = worldCenter.y;
+			}
+		}
+
+		/**
+		 * Adds a force applied at a world point.
+		 */
+		void addForce(float x, float y, float pointX, float pointY) {
+			hasForce = true;
+			forceX += x;
+			forceY += y;
+			torque += (pointX - centerX) * y - (pointY - centerY) * x;
+		}
+	}
+
+	/**
+	 * Computes the forces of a range of bodies. Workers only read shared
+	 * state, so several of them can run at the same time.
+	 */
+	private class ForceWorker implements Runnable {
+
+		private int start;
+		private int end;
+
+		/* Scratch buffers owned by this worker */
+		private float[] fixtureVertices = new float[MAX_POLYGON_VERTICES * 2];
+		private float[] circleVertices = new float[CIRCLE_SEGMENTS * 2];
+		private float[] clippedVertices = new float[0];
+		private float[] clipBuffer = new float[0];
+		private PolygonProperties polygonProperties = new PolygonProperties();
+		private IntArray candidateRegions = new IntArray();
+
+		void prepare(int start, int end) {
+			this.start = start;
+			this.end = end;
+
+			if (clippedVertices.length < maxClippedVertices * 2) {
+				clippedVertices = new float[maxClippedVertices * 2];
+				clipBuffer = new float[maxClippedVertices * 2];
+			}
+		}
+
+		@Override
+		public void run() {
+			Throwable error = null;
+
+			try {
+				for (int i = start; i < end; i++) {
+					BuoyantBody buoyantBody = bodies.get(i);
+
+					if (!buoyantBody.isAwake) {
+						continue;
+					}
+
+					Array<BuoyantFixture> bodyFixtures = buoyantBody.fixtures;
+					for (int j = 0; j < bodyFixtures.size; j++) {
+						BuoyantFixture buoyantFixture = bodyFixtures.get(j);
+
+						if (buoyantFixture.isCircle) {
+							computeCircleForces(buoyantBody, buoyantFixture);
+						} else {
+							computePolygonForces(buoyantBody, buoyantFixture);
+						}
+					}
+				}
+			} catch (Throwable e) {
+				error = e;
+			}
+
+			finishWorker(error);
+		}
+
+		private void computePolygonForces(BuoyantBody buoyantBody,
+				BuoyantFixture buoyantFixture) {
+
+			/* Get clip polygon from the cached fixture vertices */
+			int fixtureVertexCount = buoyantFixture.vertexCount;
+			transformVertices(buoyantBody.transform,
+					buoyantFixture.localVertices, fixtureVertexCount,
+					fixtureVertices);
+
+			/* Find the fluids that may overlap the fixture */
+			float lowerX = Float.MAX_VALUE;
+			float lowerY = Float.MAX_VALUE;
+			float upperX = -Float.MAX_VALUE;
+			float upperY = -Float.MAX_VALUE;
+
+			for (int i = 0; i < fixtureVertexCount; i++) {
+				float x = fixtureVertices[i * 2];
+				float y = fixtureVertices[i * 2 + 1];
+				lowerX = Math.min(lowerX, x);
+				lowerY = Math.min(lowerY, y);
+				upperX = Math.max(upperX, x);
+				upperY = Math.max(upperY, y);
+			}
+
+			regionsGrid.query(lowerX, lowerY, upperX, upperY,
+					candidateRegions);
+
+			for (int i = 0; i < candidateRegions.size; i++) {
+				FluidRegion region = regions.get(candidateRegions.get(i));
+
+				/* Get intersection polygon, fluid is the subject polygon */
+				int clippedVertexCount = clipRegion(region, fixtureVertices,
+						fixtureVertexCount);
+
+				if (clippedVertexCount > 0) {
+					computePolygonForces(buoyantBody, region,
+							clippedVertices, clippedVertexCount);
+				}
+			}
+		}
+
+		/**
+		 * Clips a region against a convex polygon into clippedVertices. The
+		 * buffers are grown in the rare case the result doesn't fit them.
+		 *
+		 * @return Number of vertices of the clipped polygon
+		 */
+		private int clipRegion(FluidRegion region, float[] vertices,
+				int vertexCount) {
+			int count;
+
+			while ((count = PolygonIntersector.clipPolygons(region.vertices,
+					region.vertexCount, vertices, vertexCount,
+					clippedVertices, clipBuffer)) == -1) {
+				clippedVertices = new float[clippedVertices.length * 2];
+				clipBuffer = new float[clipBuffer.length * 2];
+			}
+
+			return count;
+		}
+
+		private void computePolygonForces(BuoyantBody buoyantBody,
+				FluidRegion region, float[] clippedPolygon, int polygonVertices) {
+			if (PolygonIntersector.computePolygonProperties(clippedPolygon,
+					polygonVertices, polygonProperties) == null) {
+				return;
+			}
+
+			/* Get fluid density */
+			float density = region.density;
+
+			/* Buoyancy and linear drag forces */
+			Vector2 centroid = polygonProperties.getCentroid();
+			computeDisplacementForces(buoyantBody, region,
+					polygonProperties.getArea(), centroid.x, centroid.y);
+
+			/* Drag and lift forces */
+			for (int i = 0; i < polygonVertices; i++) {
+
+				/* Drag force */
+
+				/* End points and mid point of the edge */
+				int next = (i + 1) % polygonVertices;
+				float firstX = clippedPolygon[i * 2];
+				float firstY = clippedPolygon[i * 2 + 1];
+				float secondX = clippedPolygon[next * 2];
+				float secondY = clippedPolygon[next * 2 + 1];
+				float midPointX = (firstX + secondX) * 0.5f;
+				float midPointY = (firstY + secondY) * 0.5f;
+
+				/*
+				 * Find relative velocity between the object and the fluid at
+				 * edge mid point.
+				 */
+				float velocityX = getRelativeVelocityX(buoyantBody, region,
+						midPointY);
+				float velocityY = getRelativeVelocityY(buoyantBody, region,
+						midPointX);
+
+				float velocity = (float) Math.sqrt(velocityX * velocityX
+						+ velocityY * velocityY);
+				if (velocity != 0) {
+					velocityX /= velocity;
+					velocityY /= velocity;
+				}
+
+				float edgeX = secondX - firstX;
+				float edgeY = secondY - firstY;
+				float edgeLength = (float) Math.sqrt(edgeX * edgeX + edgeY
+						* edgeY);
+				if (edgeLength != 0) {
+					edgeX /= edgeLength;
+					edgeY /= edgeLength;
+				}
+
+				/* Normal of the edge is (edgeY, -edgeX) */
+				float dragDot = edgeY * velocityX - edgeX * velocityY;
+
+				if (dragDot >= 0) {
+
+					/*
+					 * Normal don't point backwards. This is a leading edge.
+					 * Store the result of multiply edgeLength, density and
+					 * velocity squared
+					 */
+					float tempProduct = edgeLength * density * velocity
+							* velocity;
+
+					float drag = dragDot * region.fluidDrag * tempProduct;
+					drag = Math.min(drag, region.maxFluidDrag);
+					buoyantBody.addForce(-velocityX * drag, -velocityY * drag,
+							midPointX, midPointY);
+
+					/* Lift force */
+					float liftDot = edgeX * velocityX + edgeY * velocityY;
+					float lift = dragDot * liftDot * region.fluidLift
+							* tempProduct;
+					lift = Math.min(lift, region.maxFluidLift);
+					buoyantBody.addForce(-velocityY * lift, velocityX * lift,
+							midPointX, midPointY);
+				}
+			}
+		}
+
+		private void computeCircleForces(BuoyantBody buoyantBody,
+				BuoyantFixture buoyantFixture) {
+			transformVertices(buoyantBody.transform,
+					buoyantFixture.localVertices, 1, fixtureVertices);
+			float circleX = fixtureVertices[0];
+			float circleY = fixtureVertices[1];
+			float radius = buoyantFixture.radius;
+
+			regionsGrid.query(circleX - radius, circleY - radius, circleX
+					+ radius, circleY + radius, candidateRegions);
+
+			for (int i = 0; i < candidateRegions.size; i++) {
+				computeCircleForces(buoyantBody,
+						regions.get(candidateRegions.get(i)), circleX,
+						circleY, radius);
+			}
+		}
+
+		/**
+		 * Computes the forces of a circle in a region. While the circle only
+		 * crosses the surface of the region, the submerged part is the
+		 * circular segment cut by the surface, computed analytically. A
+		 * circle crossing any other edge is replaced by a polygon of the same
+		 * area, which is clipped against the region like polygon fixtures.
+		 */
+		private void computeCircleForces(BuoyantBody buoyantBody,
+				FluidRegion region, float circleX, float circleY, float radius) {
+			boolean isInsideSides = true;
+
+			for (int i = 0; i < region.vertexCount; i++) {
+				if (i == region.surfaceIndex) {
+					continue;
+				}
+
+				float distance = region.getEdgeDistance(i, circleX, circleY);
+				if (distance <= -radius) {
+					return;
+				}
+				if (distance < radius) {
+					isInsideSides = false;
+				}
+			}
+
+			if (!isInsideSides) {
+				computeClippedCircleForces(buoyantBody, region, circleX,
+						circleY, radius);
+				return;
+			}
+
+			float offsetX = circleX - region.surfaceX;
+			float offsetY = circleY - region.surfaceY;
+
+			/* Distance from the circle center up to the surface */
+			float depth = -(offsetX * region.surfaceNormalX + offsetY
+					* region.surfaceNormalY);
+			if (depth <= -radius) {
+				return;
+			}
+
+			float area;
+			float centroidOffset;
+
+			if (depth >= radius) {
+				area = PI * radius * radius;
+				centroidOffset = 0;
+			} else {
+
+				/*
+				 * Area of the segment below the surface and distance of its
+				 * centroid from the circle center, along the surface normal.
+				 */
+				float halfChord = (float) Math.sqrt(radius * radius - depth
+						* depth);
+				area = radius * radius
+						* (PI / 2 + (float) Math.asin(depth / radius)) + depth
+						* halfChord;
+				centroidOffset = -2 * halfChord * halfChord * halfChord
+						/ (3 * area);
+			}
+
+			if (area <= 0) {
+				return;
+			}
+
+			float centroidX = circleX + region.surfaceNormalX * centroidOffset;
+			float centroidY = circleY + region.surfaceNormalY * centroidOffset;
+
+			computeSubmergedCircleForces(buoyantBody, region, area,
+					centroidX, centroidY);
+		}
+
+		/**
+		 * Computes the forces of a circle that crosses the sides or the
+		 * bottom of a region, clipping a polygon of the same area against it.
+		 */
+		private void computeClippedCircleForces(BuoyantBody buoyantBody,
+				FluidRegion region, float circleX, float circleY, float radius) {
+			for (int i = 0; i < CIRCLE_SEGMENTS * 2; i += 2) {
+				circleVertices[i] = circleX + CIRCLE_POLYGON[i] * radius;
+				circleVertices[i + 1] = circleY + CIRCLE_POLYGON[i + 1] * radius;
+			}
+
+			int clippedVertexCount = clipRegion(region, circleVertices,
+					CIRCLE_SEGMENTS);
+
+			if (clippedVertexCount == 0
+					|| PolygonIntersector.computePolygonProperties(
+							clippedVertices, clippedVertexCount,
+							polygonProperties) == null) {
+				return;
+			}
+
+			Vector2 centroid = polygonProperties.getCentroid();
+			computeSubmergedCircleForces(buoyantBody, region,
+					polygonProperties.getArea(), centroid.x, centroid.y);
+		}
+
+		/**
+		 * Adds the forces of the submerged part of a circle.
+		 */
+		private void computeSubmergedCircleForces(BuoyantBody buoyantBody,
+				FluidRegion region, float area, float centroidX,
+				float centroidY) {
+
+			/* Buoyancy and linear drag forces */
+			computeDisplacementForces(buoyantBody, region, area, centroidX,
+					centroidY);
+
+			/*
+			 * Drag force at the centroid, using the diameter of a circle of the
+			 * same area as the width facing the flow. A spinning circle
+			 * doesn't push fluid, so there is no lift.
+			 */
+			float velocityX = getRelativeVelocityX(buoyantBody, region,
+					centroidY);
+			float velocityY = getRelativeVelocityY(buoyantBody, region,
+					centroidX);
+			float velocity = (float) Math.sqrt(velocityX * velocityX
+					+ velocityY * velocityY);
+
+			if (velocity != 0) {
+				float width = 2 * (float) Math.sqrt(area / PI);
+				float drag = region.fluidDrag * width * region.density
+						* velocity * velocity;
+				drag = Math.min(drag, region.maxFluidDrag);
+				buoyantBody.addForce(-velocityX / velocity * drag, -velocityY
+						/ velocity * drag, centroidX, centroidY);
+			}
+		}
+
+		/**
+		 * Adds the buoyancy and linear drag forces of a submerged area.
+		 */
+		private void computeDisplacementForces(BuoyantBody buoyantBody,
+				FluidRegion region, float area, float centroidX,
+				float centroidY) {
+
+			/* Buoyancy force */
+			float displacedMass = region.density * area;
+			buoyantBody.addForce(-gravityX * displacedMass, -gravityY
+					* displacedMass, centroidX, centroidY);
+
+			/* Linear drag force, perpendicular to the gravity */
+			if (region.linearDrag != 0) {
+				float gravityLength = (float) Math.sqrt(gravityX * gravityX
+						+ gravityY * gravityY);
+				if (gravityLength != 0) {
+					float scale = region.linearDrag / gravityLength;
+					buoyantBody.addForce(-gravityY * scale, gravityX * scale,
+							centroidX, centroidY);
+				}
+			}
+		}
+
+		/*
+		 * Relative velocity between a body and the fluid at a point, computed
+		 * from both body states as v + w x (p - c).
+		 */
+
+		private float getRelativeVelocityX(BuoyantBody buoyantBody,
+				FluidRegion region, float pointY) {
+			return buoyantBody.velocityX - buoyantBody.angularVelocity
+					* (pointY - buoyantBody.centerY) - region.velocityX
+					+ region.angularVelocity * (pointY - region.centerY);
+		}
+
+		private float getRelativeVelocityY(BuoyantBody buoyantBody,
+				FluidRegion region, float pointX) {
+			return buoyantBody.velocityY + buoyantBody.angularVelocity
+					* (pointX - buoyantBody.centerX) - region.velocityY
+					- region.angularVelocity * (pointX - region.centerX);
+		}
+	}
 }
@@ -0,0 +1,221 @@
+package com.leakedbits.codelabs.box2d.controllers;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.Transform;
+
+/**
+ * A volume of fluid managed by a {@link BuoyancyController}. Each region is
+ * defined by a polygon sensor fixture and has its own density, drag and lift
+ * values.
+ */
+public class FluidRegion {
+
+	private Fixture fixture;
+	private Body body;
+	private boolean isStatic;
+
+	public boolean isFixed = true;
+	public float density;
+	public float fluidDrag = 0.25f;
+	public float fluidLift = 0.25f;
+	public float linearDrag = 0;
+	public float maxFluidDrag = 2000;
+	public float maxFluidLift = 500;
+
+	/* Local and world vertices stored as interleaved x/y coordinates */
+	float[] localVertices;
+	float[] vertices;
+	int vertexCount;
+	private float[] transform;
+
+	/* Outward unit normal of each edge, the one that starts at each vertex */
+	float[] normals;
+
+	/* World AABB of the region */
+	float lowerX;
+	float lowerY;
+	float upperX;
+	float upperY;
+
+	/*
+	 * Surface of the region, the edge whose outward normal faces against the
+	 * gravity. Stored as its index, first vertex, unit tangent, length and
+	 * outward normal.
+	 */
+	int surfaceIndex;
+	float surfaceX;
+	float surfaceY;
+	float surfaceTangentX;
+	float surfaceTangentY;
+	float surfaceLength;
+	float surfaceNormalX;
+	float surfaceNormalY;
+
+	/* Velocity state of the fluid body read once per step */
+	float velocityX;
+	float velocityY;
+	float angularVelocity;
+	float centerX;
+	float centerY;
+
+	/**
+	 * Creates a region from a polygon sensor. Density is initialized with the
+	 * fixture density.
+	 *
+	 * @param fixture Fixture with a polygon shape
+	 */
+	public FluidRegion(Fixture fixture) {
+		this.fixture = fixture;
+		body = fixture.getBody();
+		isStatic = body.getType() == BodyType.StaticBody;
+		density = fixture.getDensity();
+
+		PolygonShape polygon = (PolygonShape) fixture.getShape();
+		vertexCount = polygon.getVertexCount();
+		localVertices = new float[vertexCount * 2];
+		vertices = new float[vertexCount * 2];
+		normals = new float[vertexCount * 2];
+		transform = new float[4];
+
+		Vector2 vertex = new Vector2();
+		for (int i = 0; i < vertexCount; i++) {
+			polygon.getVertex(i, vertex);
+			localVertices[i * 2] = vertex.x;
+			localVertices[i * 2 + 1] = vertex.y;
+		}
+
+		update(true);
+	}
+
+	public Fixture getFixture() {
+		return fixture;
+	}
+
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	/**
+	 * Reads the state of the fluid body. World vertices and bounds are only
+	 * recomputed when the region is not fixed and the body has moved.
+	 *
+	 * @param force Whether to recompute vertices even if nothing has moved
+	 * @return Whether the world vertices have changed
+	 */
+	boolean update(boolean force) {
+		if (!isStatic) {
+			Vector2 velocity = body.getLinearVelocity();
+			velocityX = velocity.x;
+			velocityY = velocity.y;
+			angularVelocity = body.getAngularVelocity();
+			Vector2 center = body.getWorldCenter();
+			centerX = center.x;
+			centerY = center.y;
+		}
+
+		if (!force && isFixed) {
+			return false;
+		}
+
+		float[] values = body.getTransform().vals;
+
+		if (!force && values[Transform.POS_X] == transform[0]
+				&& values[Transform.POS_Y] == transform[1]
+				&& values[Transform.COS] == transform[2]
+				&& values[Transform.SIN] == transform[3]) {
+			return false;
+		}
+
+		transform[0] = values[Transform.POS_X];
+		transform[1] = values[Transform.POS_Y];
+		transform[2] = values[Transform.COS];
+		transform[3] = values[Transform.SIN];
+
+		BuoyancyController.transformVertices(values, localVertices,
+				vertexCount, vertices);
+
+		lowerX = Float.MAX_VALUE;
+		lowerY = Float.MAX_VALUE;
+		upperX = -Float.MAX_VALUE;
+		upperY = -Float.MAX_VALUE;
+
+		for (int i = 0; i < vertexCount; i++) {
+			float x = vertices[i * 2];
+			float y = vertices[i * 2 + 1];
+			lowerX = Math.min(lowerX, x);
+			lowerY = Math.min(lowerY, y);
+			upperX = Math.max(upperX, x);
+			upperY = Math.max(upperY, y);
+		}
+
+		for (int i = 0; i < vertexCount; i++) {
+			int next = (i + 1) % vertexCount;
+			float edgeX = vertices[next * 2] - vertices[i * 2];
+			float edgeY = vertices[next * 2 + 1] - vertices[i * 2 + 1];
+			float edgeLength = (float) Math.sqrt(edgeX * edgeX + edgeY * edgeY);
+
+			if (edgeLength == 0) {
+				normals[i * 2] = 0;
+				normals[i * 2 + 1] = 0;
+			} else {
+				normals[i * 2] = edgeY / edgeLength;
+				normals[i * 2 + 1] = -edgeX / edgeLength;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the distance from a point to an edge of the region, positive
+	 * inside the region.
+	 */
+	float getEdgeDistance(int edge, float x, float y) {
+		float offsetX = x - vertices[edge * 2];
+		float offsetY = y - vertices[edge * 2 + 1];
+
+		return -(offsetX * normals[edge * 2] + offsetY * normals[edge * 2 + 1]);
+	}
+
+	/**
+	 * Finds the surface of the region for the given gravity. World vertices
+	 * are expected in counter clockwise order, as Box2D stores them.
+	 */
+	void updateSurface(float gravityX, float gravityY) {
+		float bestDot = -Float.MAX_VALUE;
+
+		for (int i = 0; i < vertexCount; i++) {
+			int next = (i + 1) % vertexCount;
+			float edgeX = vertices[next * 2] - vertices[i * 2];
+			float edgeY = vertices[next * 2 + 1] - vertices[i * 2 + 1];
+			float edgeLength = (float) Math.sqrt(edgeX * edgeX + edgeY * edgeY);
+
+			if (edgeLength == 0) {
+				continue;
+			}
+
+			edgeX /= edgeLength;
+			edgeY /= edgeLength;
+
+			/* Outward normal is (edgeY, -edgeX), compared against -gravity */
+			float dot = -edgeY * gravityX + edgeX * gravityY;
+
+			if (dot > bestDot) {
+				bestDot = dot;
+				surfaceIndex = i;
+				surfaceX = vertices[i * 2];
+				surfaceY = vertices[i * 2 + 1];
+				surfaceTangentX = edgeX;
+				surfaceTangentY = edgeY;
+				surfaceLength = edgeLength;
+				surfaceNormalX = edgeY;
+				surfaceNormalY = -edgeX;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,199 @@
+package com.leakedbits.codelabs.box2d.utils;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.QueryCallback;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.physics.box2d.joints.MouseJoint;
+import com.badlogic.gdx.physics.box2d.joints.MouseJointDef;
+
+/**
+ * Picks bodies under touch points and drags them with a MouseJoint per
+ * pointer, so every finger can drag a body at the same time. When several
+ * fixtures are under a point, the one with the highest priority is picked
+ * (See getPriority()).
+ *
+ * The query callback, joint definition and target vector are reused, so
+ * dragging doesn't allocate anything. Grabbing a body does, because libGDX
+ * creates a Java object for each joint.
+ *
+ * Joints can't be created or destroyed while the world is stepping, so don't
+ * call it from contact callbacks.
+ */
+public class BodyPicker implements QueryCallback {
+
+	/* Number of pointers that can drag a body at the same time */
+	public static final int MAX_POINTERS = 10;
+
+	private final World world;
+	private final MouseJointDef jointDef;
+
+	/* Joint dragged by each pointer, or null */
+	private final MouseJoint[] joints;
+
+	private final Vector2 target;
+
+	/* Point being queried and best fixture found under it so far */
+	private float queryX;
+	private float queryY;
+	private Fixture pickedFixture;
+	private int pickedPriority;
+
+	/**
+	 * @param groundBody Static body used as the first body of the joints
+	 * @param maxForce Max force applied by each joint, in Newtons
+	 */
+	public BodyPicker(World world, Body groundBody, float maxForce) {
+		this.world = world;
+
+		jointDef = new MouseJointDef();
+		jointDef.bodyA = groundBody;
+		jointDef.collideConnected = true;
+		jointDef.maxForce = maxForce;
+
+		joints = new MouseJoint[MAX_POINTERS];
+		target = new Vector2();
+	}
+
+	/**
+	 * Grabs the body under a point, if any, with the given pointer. A
+	 * pointer that was already dragging a body releases it first.
+	 *
+	 * @return Whether a body was grabbed
+	 */
+	public boolean pick(int pointer, float x, float y) {
+		if (pointer < 0 || pointer >= MAX_POINTERS) {
+			return false;
+		}
+
+		release(pointer);
+
+		queryX = x;
+		queryY = y;
+		pickedFixture = null;
+		pickedPriority = Integer.MIN_VALUE;
+
+		/* Find every fixture whose bounding box contains the point */
+		world.QueryAABB(this, x, y, x, y);
+
+		if (pickedFixture == null) {
+			return false;
+		}
+
+		jointDef.bodyB = pickedFixture.getBody();
+		jointDef.target.set(x, y);
+		joints[pointer] = (MouseJoint) world.createJoint(jointDef);
+
+		/* Nothing keeps a reference to the picked fixture */
+		pickedFixture = null;
+		jointDef.bodyB = null;
+
+		return true;
+	}
+
+	/**
+	 * Moves the target of the body dragged by a pointer.
+	 *
+	 * @return Whether the pointer is dragging a body
+	 */
+	public boolean drag(int pointer, float x, float y) {
+		MouseJoint joint = getJoint(pointer);
+
+		if (joint == null) {
+			return false;
+		}
+
+		joint.setTarget(target.set(x, y));
+		return true;
+	}
+
+	/**
+	 * Lets go of the body dragged by a pointer.
+	 *
+	 * @return Whether the pointer was dragging a body
+	 */
+	public boolean release(int pointer) {
+		MouseJoint joint = getJoint(pointer);
+
+		if (joint == null) {
+			return false;
+		}
+
+		world.destroyJoint(joint);
+		joints[pointer] = null;
+		return true;
+	}
+
+	public void releaseAll() {
+		for (int i = 0; i < MAX_POINTERS; i++) {
+			release(i);
+		}
+	}
+
+	/**
+	 * @return Joint dragged by the pointer, or null if there is none
+	 */
+	public MouseJoint getJoint(int pointer) {
+		if (pointer < 0 || pointer >= MAX_POINTERS) {
+			return null;
+		}
+
+		return joints[pointer];
+	}
+
+	/**
+	 * @return Number of pointers dragging a body
+	 */
+	public int getDragCount() {
+		int count = 0;
+
+		for (int i = 0; i < MAX_POINTERS; i++) {
+			if (joints[i] != null) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	@Override
+	public boolean reportFixture(Fixture fixture) {
+		/* The bounding box contains the point, check the shape itself */
+		if (!fixture.testPoint(queryX, queryY)) {
+			return true;
+		}
+
+		int priority = getPriority(fixture);
+		if (priority >= 0 && priority > pickedPriority) {
+			pickedFixture = fixture;
+			pickedPriority = priority;
+		}
+
+		/* Keep looking, a fixture found later may be on top */
+		return true;
+	}
+
+	/**
+	 * Gets how much a fixture under the point is preferred. Static bodies
+	 * can't be dragged, dynamic bodies go before kinematic ones and sensors
+	 * come last. Override to pick bodies in another order, for example by
+	 * depth stored in the user data.
+	 *
+	 * @return Priority of the fixture, or a negative value if its body can't
+	 *         be picked. Of the fixtures with the highest priority, the first
+	 *         one reported is picked.
+	 */
+	protected int getPriority(Fixture fixture) {
+		BodyType type = fixture.getBody().getType();
+
+		if (type == BodyType.StaticBody) {
+			return -1;
+		}
+
+		int priority = type == BodyType.DynamicBody ? 2 : 1;
+		return fixture.isSensor() ? priority : priority + 2;
+	}
+
+}
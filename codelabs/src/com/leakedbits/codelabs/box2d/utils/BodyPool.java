@@ -0,0 +1,159 @@
+package com.leakedbits.codelabs.box2d.utils;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Pool of bodies made from a single fixture template. Freed bodies are not
+ * destroyed but deactivated and parked out of sight, so obtaining a body
+ * reuses one of them instead of creating a new body and fixture in the
+ * native world.
+ *
+ * Bodies can't be deactivated or moved while the world is stepping, so don't
+ * obtain or free bodies from contact callbacks.
+ */
+public class BodyPool {
+
+	/* Where freed bodies are moved so debug renderers don't draw them */
+	public final Vector2 parkPosition = new Vector2(-10000, -10000);
+
+	private final World world;
+	private final BodyType bodyType;
+	private final FixtureDef template;
+
+	/* Max number of freed bodies kept. Bodies freed beyond it are destroyed */
+	private int maxFree;
+
+	private Array<Body> freeBodies;
+
+	/* Obtained bodies that were reused and that had to be created */
+	private int hits;
+	private int misses;
+
+	/* Freed bodies destroyed because the pool was full */
+	private int discards;
+
+	public BodyPool(World world, BodyType bodyType, FixtureDef template,
+			int maxFree) {
+		this.world = world;
+		this.bodyType = bodyType;
+		this.template = template;
+		this.maxFree = maxFree;
+
+		freeBodies = new Array<Body>(false, Math.min(maxFree, 64));
+	}
+
+	/**
+	 * Creates bodies until the pool holds the given number of free bodies, so
+	 * they don't have to be created while the sample is running.
+	 */
+	public void fill(int count) {
+		count = Math.min(count, maxFree);
+
+		while (freeBodies.size < count) {
+			Body body = Box2DFactory.createBodyFromTemplate(world, bodyType,
+					template, parkPosition.x, parkPosition.y);
+			body.setActive(false);
+			freeBodies.add(body);
+		}
+	}
+
+	/**
+	 * Gets a body placed at the given position, at rest and awake.
+	 */
+	public Body obtain(float x, float y, float angle, Object userData) {
+		Body body;
+
+		if (freeBodies.size > 0) {
+			body = freeBodies.pop();
+			body.setTransform(x, y, angle);
+			body.setLinearVelocity(0, 0);
+			body.setAngularVelocity(0);
+			body.setActive(true);
+			body.setAwake(true);
+			hits++;
+		} else {
+			body = Box2DFactory.createBodyFromTemplate(world, bodyType,
+					template, x, y);
+			if (angle != 0) {
+				body.setTransform(x, y, angle);
+			}
+			misses++;
+		}
+
+		body.setUserData(userData);
+
+		return body;
+	}
+
+	/**
+	 * Returns a body obtained from this pool. The body must not be used
+	 * afterwards.
+	 */
+	public void free(Body body) {
+		if (freeBodies.size >= maxFree) {
+			world.destroyBody(body);
+			discards++;
+			return;
+		}
+
+		body.setUserData(null);
+		body.setActive(false);
+		body.setTransform(parkPosition.x, parkPosition.y, 0);
+		freeBodies.add(body);
+	}
+
+	/**
+	 * Destroys every free body.
+	 */
+	public void clear() {
+		for (int i = 0; i < freeBodies.size; i++) {
+			world.destroyBody(freeBodies.get(i));
+		}
+
+		freeBodies.clear();
+	}
+
+	public int getMaxFree() {
+		return maxFree;
+	}
+
+	/**
+	 * Sets the high-water mark of the pool. Free bodies above it are
+	 * destroyed.
+	 */
+	public void setMaxFree(int maxFree) {
+		this.maxFree = maxFree;
+
+		while (freeBodies.size > maxFree) {
+			world.destroyBody(freeBodies.pop());
+		}
+	}
+
+	public int getFreeCount() {
+		return freeBodies.size;
+	}
+
+	public int getHits() {
+		return hits;
+	}
+
+	public int getMisses() {
+		return misses;
+	}
+
+	public int getDiscards() {
+		return discards;
+	}
+
+	public void resetStats() {
+		hits = 0;
+		misses = 0;
+		discards = 0;
+	}
+
+}
@@ -0,0 +1,242 @@
+package com.leakedbits.codelabs.box2d.utils;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Transform;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+/**
+ * Draws a texture region centered on each bound body. Bindings are kept in
+ * dense arrays and transforms are read once per physics step with update(),
+ * skipping sleeping bodies, so drawing doesn't call Box2D at all. Sprites out
+ * of the camera view are culled and the rest are drawn in a single batch
+ * pass, which doesn't flush as long as every region comes from the same
+ * texture atlas.
+ */
+public class BodySpriteRenderer {
+
+	private int size;
+
+	private Body[] bodies;
+	private TextureRegion[] regions;
+	private ObjectIntMap<Body> indices;
+
+	/* Size of each sprite and radius of the circle that bounds it */
+	private float[] sizes;
+	private float[] radiuses;
+
+	/*
+	 * Previous and current transforms stored as x, y and angle in radians.
+	 * Bodies flagged as dirty are read even if they are sleeping.
+	 */
+	private float[] previousTransforms;
+	private float[] transforms;
+	private boolean[] dirty;
+
+	public BodySpriteRenderer(int capacity) {
+		bodies = new Body[capacity];
+		regions = new TextureRegion[capacity];
+		indices = new ObjectIntMap<Body>(capacity);
+		sizes = new float[capacity * 2];
+		radiuses = new float[capacity];
+		previousTransforms = new float[capacity * 3];
+		transforms = new float[capacity * 3];
+		dirty = new boolean[capacity];
+	}
+
+	/**
+	 * Binds a texture region to a body. The region is drawn centered on the
+	 * body position and rotated with it.
+	 *
+	 * @param width Width of the sprite in meters
+	 * @param height Height of the sprite in meters
+	 */
+	public void add(Body body, TextureRegion region, float width, float height) {
+		if (indices.containsKey(body)) {
+			remove(body);
+		}
+
+		ensureCapacity(size + 1);
+
+		bodies[size] = body;
+		regions[size] = region;
+		sizes[size * 2] = width;
+		sizes[size * 2 + 1] = height;
+		radiuses[size] = (float) Math.sqrt(width * width + height * height) / 2;
+		indices.put(body, size);
+
+		readTransform(size);
+		System.arraycopy(transforms, size * 3, previousTransforms, size * 3, 3);
+		dirty[size] = false;
+
+		size++;
+	}
+
+	/**
+	 * Unbinds a body. The last binding takes its place to keep arrays dense.
+	 */
+	public void remove(Body body) {
+		int index = indices.remove(body, -1);
+
+		if (index == -1) {
+			return;
+		}
+
+		size--;
+		if (index != size) {
+			bodies[index] = bodies[size];
+			regions[index] = regions[size];
+			sizes[index * 2] = sizes[size * 2];
+			sizes[index * 2 + 1] = sizes[size * 2 + 1];
+			radiuses[index] = radiuses[size];
+			System.arraycopy(transforms, size * 3, transforms, index * 3, 3);
+			System.arraycopy(previousTransforms, size * 3, previousTransforms,
+					index * 3, 3);
+			dirty[index] = dirty[size];
+			indices.put(bodies[index], index);
+		}
+
+		bodies[size] = null;
+		regions[size] = null;
+	}
+
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			bodies[i] = null;
+			regions[i] = null;
+		}
+
+		indices.clear();
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Forces the transform of a body to be read in the next update even if it
+	 * is sleeping. Needed after moving a sleeping body with setTransform().
+	 */
+	public void invalidate(Body body) {
+		int index = indices.get(body, -1);
+
+		if (index != -1) {
+			dirty[index] = true;
+		}
+	}
+
+	/**
+	 * Reads the transforms of the bodies that may have moved. Call it after
+	 * each physics step.
+	 */
+	public void update() {
+		for (int i = 0; i < size; i++) {
+			System.arraycopy(transforms, i * 3, previousTransforms, i * 3, 3);
+
+			if (dirty[i] || bodies[i].isAwake()) {
+				readTransform(i);
+				dirty[i] = false;
+			}
+		}
+	}
+
+	/**
+	 * Draws every sprite that overlaps the camera view. The batch must not
+	 * have been begun.
+	 *
+	 * @param alpha Interpolation between the previous and the last update,
+	 *            from 0 to 1
+	 * @return Number of sprites drawn
+	 */
+	public int render(SpriteBatch batch, OrthographicCamera camera, float alpha) {
+		float halfWidth = camera.viewportWidth * camera.zoom / 2;
+		float halfHeight = camera.viewportHeight * camera.zoom / 2;
+		float left = camera.position.x - halfWidth;
+		float right = camera.position.x + halfWidth;
+		float bottom = camera.position.y - halfHeight;
+		float top = camera.position.y + halfHeight;
+
+		int drawn = 0;
+
+		batch.setProjectionMatrix(camera.combined);
+		batch.begin();
+
+		for (int i = 0; i < size; i++) {
+			float previousX = previousTransforms[i * 3];
+			float previousY = previousTransforms[i * 3 + 1];
+			float x = previousX + (transforms[i * 3] - previousX) * alpha;
+			float y = previousY + (transforms[i * 3 + 1] - previousY) * alpha;
+
+			float radius = radiuses[i];
+			if (x + radius < left || x - radius > right || y + radius < bottom
+					|| y - radius > top) {
+				continue;
+			}
+
+			/* Interpolate through the shortest arc */
+			float previousAngle = previousTransforms[i * 3 + 2];
+			float angleDelta = transforms[i * 3 + 2] - previousAngle;
+			if (angleDelta > MathUtils.PI) {
+				angleDelta -= MathUtils.PI2;
+			} else if (angleDelta < -MathUtils.PI) {
+				angleDelta += MathUtils.PI2;
+			}
+			float angle = previousAngle + angleDelta * alpha;
+
+			float width = sizes[i * 2];
+			float height = sizes[i * 2 + 1];
+			batch.draw(regions[i], x - width / 2, y - height / 2, width / 2,
+					height / 2, width, height, 1, 1, angle
+							* MathUtils.radiansToDegrees);
+			drawn++;
+		}
+
+		batch.end();
+
+		return drawn;
+	}
+
+	private void readTransform(int index) {
+		float[] values = bodies[index].getTransform().vals;
+		transforms[index * 3] = values[Transform.POS_X];
+		transforms[index * 3 + 1] = values[Transform.POS_Y];
+		transforms[index * 3 + 2] = (float) Math.atan2(values[Transform.SIN],
+				values[Transform.COS]);
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= bodies.length) {
+			return;
+		}
+
+		int newCapacity = Math.max(capacity, bodies.length * 2);
+
+		Body[] newBodies = new Body[newCapacity];
+		System.arraycopy(bodies, 0, newBodies, 0, size);
+		bodies = newBodies;
+
+		TextureRegion[] newRegions = new TextureRegion[newCapacity];
+		System.arraycopy(regions, 0, newRegions, 0, size);
+		regions = newRegions;
+
+		sizes = copyOf(sizes, newCapacity * 2);
+		radiuses = copyOf(radiuses, newCapacity);
+		previousTransforms = copyOf(previousTransforms, newCapacity * 3);
+		transforms = copyOf(transforms, newCapacity * 3);
+
+		boolean[] newDirty = new boolean[newCapacity];
+		System.arraycopy(dirty, 0, newDirty, 0, size);
+		dirty = newDirty;
+	}
+
+	private static float[] copyOf(float[] array, int length) {
+		float[] newArray = new float[length];
+		System.arraycopy(array, 0, newArray, 0, Math.min(array.length, length));
+		return newArray;
+	}
+
+}
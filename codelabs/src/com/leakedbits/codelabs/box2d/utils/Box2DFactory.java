@@ -27,6 +27,70 @@ public class Box2DFactory {
 		return body;
 	}
 
+	/**
+	 * Creates a body with a single fixture made from a template. Unlike
+	 * createBody(), the shape of the template is not disposed, so the same
+	 * template can be used for any number of bodies (See ShapeCache).
+	 */
+	public static Body createBodyFromTemplate(World world, BodyType bodyType,
+			FixtureDef template, float x, float y) {
+		BodyDef bodyDef = new BodyDef();
+		bodyDef.type = bodyType;
+		bodyDef.position.set(x, y);
+
+		Body body = world.createBody(bodyDef);
+		body.createFixture(template);
+
+		return body;
+	}
+
+	/**
+	 * Creates a batch of bodies, each one with a single fixture made from a
+	 * template of the given cache. Bodies are described by packed arrays and
+	 * a single BodyDef is reused for all of them, so the only work done per
+	 * body is the native creation of the body and its fixture.
+	 *
+	 * @param world World where bodies are created
+	 * @param shapeCache Cache that holds the fixture templates
+	 * @param count Number of bodies to create
+	 * @param types Type of each body, as returned by BodyType.getValue()
+	 * @param positions Interleaved x and y coordinates of each body
+	 * @param angles Angle in radians of each body, or null for no rotation
+	 * @param templates Identifier of the fixture template of each body
+	 * @param bodies Array where the created bodies are stored, or null
+	 */
+	public static void createBodies(World world, ShapeCache shapeCache,
+			int count, int[] types, float[] positions, float[] angles,
+			int[] templates, Body[] bodies) {
+		BodyDef bodyDef = new BodyDef();
+
+		for (int i = 0; i < count; i++) {
+			bodyDef.type = toBodyType(types[i]);
+			bodyDef.position.set(positions[i * 2], positions[i * 2 + 1]);
+			bodyDef.angle = angles != null ? angles[i] : 0;
+
+			Body body = world.createBody(bodyDef);
+			body.createFixture(shapeCache.getTemplate(templates[i]));
+
+			if (bodies != null) {
+				bodies[i] = body;
+			}
+		}
+	}
+
+	static BodyType toBodyType(int value) {
+		switch (value) {
+		case 0:
+			return BodyType.StaticBody;
+		case 1:
+			return BodyType.KinematicBody;
+		case 2:
+			return BodyType.DynamicBody;
+		default:
+			throw new IllegalArgumentException("Unknown body type: " + value);
+		}
+	}
+
 	public static Shape createBoxShape(float halfWidth, float halfHeight, Vector2 center, float angle) {
 		PolygonShape boxShape = new PolygonShape();
 		boxShape.setAsBox(halfWidth, halfHeight, center, angle);
@@ -1,35 +1,118 @@
 package com.leakedbits.codelabs.box2d.utils;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-
 import com.leakedbits.codelabs.box2d.BouncingBallSample;
 import com.leakedbits.codelabs.box2d.BuoyancySample;
+import com.leakedbits.codelabs.box2d.CollisionsSample;
 import com.leakedbits.codelabs.box2d.DragAndDropSample;
 import com.leakedbits.codelabs.box2d.GravityAccelerometerSample;
 import com.leakedbits.codelabs.box2d.ImpulsesSample;
-import com.leakedbits.codelabs.box2d.CollisionsSample;
 import com.leakedbits.codelabs.box2d.JumpingSample;
 import com.leakedbits.codelabs.box2d.SpawnBodiesSample;
 import com.leakedbits.codelabs.box2d.SpritesSample;
+import com.leakedbits.codelabs.box2d.StreamingSample;
 import com.leakedbits.codelabs.utils.Sample;
+import com.leakedbits.codelabs.utils.SampleDescriptor;
+import com.leakedbits.codelabs.utils.SampleRegistry;
 
+/**
+ * Box2D samples in the order they are shown in the menu. Each one is
+ * registered with its class simple name as id and its NAME constant, so
+ * none is created until it is opened.
+ */
 public class Box2DSamples {
 
-	@SuppressWarnings("unchecked")
-	public static final List<Class<? extends Sample>> SAMPLES = new ArrayList<Class<? extends Sample>>(
-			Arrays.asList(
-					BouncingBallSample.class,
-					SpawnBodiesSample.class,
-					DragAndDropSample.class,
-					ImpulsesSample.class,
-					SpritesSample.class,
-					GravityAccelerometerSample.class,
-					CollisionsSample.class,
-					BuoyancySample.class,
-					JumpingSample.class
-			)
-	);
+	public static final SampleRegistry SAMPLES = new SampleRegistry();
+
+	static {
+		SAMPLES.add(new SampleDescriptor("BouncingBallSample",
+				BouncingBallSample.NAME) {
+
+			@Override
+			public Sample create() {
+				return new BouncingBallSample();
+			}
+		});
+
+		SAMPLES.add(new SampleDescriptor("SpawnBodiesSample",
+				SpawnBodiesSample.NAME) {
+
+			@Override
+			public Sample create() {
+				return new SpawnBodiesSample();
+			}
+		});
+
+		SAMPLES.add(new SampleDescriptor("DragAndDropSample",
+				DragAndDropSample.NAME) {
+
+			@Override
+			public Sample create() {
+				return new DragAndDropSample();
+			}
+		});
+
+		SAMPLES.add(new SampleDescriptor("ImpulsesSample",
+				ImpulsesSample.NAME) {
+
+			@Override
+			public Sample create() {
+				return new ImpulsesSample();
+			}
+		});
+
+		SAMPLES.add(new SampleDescriptor("SpritesSample",
+				SpritesSample.NAME) {
+
+			@Override
+			public Sample create() {
+				return new SpritesSample();
+			}
+		});
+
+		SAMPLES.add(new SampleDescriptor("GravityAccelerometerSample",
+				GravityAccelerometerSample.NAME) {
+
+			@Override
+			public Sample create() {
+				return new GravityAccelerometerSample();
+			}
+		});
+
+		SAMPLES.add(new SampleDescriptor("CollisionsSample",
+				CollisionsSample.NAME) {
+
+			@Override
+			public Sample create() {
+				return new CollisionsSample();
+			}
+		});
+
+		SAMPLES.add(new SampleDescriptor("BuoyancySample",
+				BuoyancySample.NAME) {
+
+			@Override
+			public Sample create() {
+				return new BuoyancySample();
+			}
+		});
+
+		SAMPLES.add(new SampleDescriptor("JumpingSample",
+				JumpingSample.NAME) {
+
+			@Override
+			public Sample create() {
+				return new JumpingSample();
+			}
+		});
+
+		SAMPLES.add(new SampleDescriptor("StreamingSample",
+				StreamingSample.NAME) {
+
+			@Override
+			public Sample create() {
+				return new StreamingSample();
+			}
+		});
+	}
 
 }
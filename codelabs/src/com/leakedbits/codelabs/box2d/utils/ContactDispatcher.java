@@ -0,0 +1,349 @@
+package com.leakedbits.codelabs.box2d.utils;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.Manifold;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+/**
+ * Contact listener that routes each contact to the handler registered for
+ * the tags of its two fixtures, so samples don't have to check which fixture
+ * is A and which one is B. Handlers always receive the fixture with the
+ * first tag they were registered with first.
+ *
+ * A fixture is tagged by setting an Integer from 1 to MAX_TAGS - 1 as its
+ * user data (See tag()). Untagged fixtures get the tag mapped to their lowest
+ * category bit, if any (See tagCategory()), or NONE.
+ *
+ * Handlers are looked up in a table indexed by both tags, filled when they
+ * are registered, so routing a contact costs two array reads. The dispatcher
+ * also counts the contacts touching each tagged fixture, which is more
+ * reliable than a flag when a fixture touches several others at once.
+ *
+ * libGDX forgets the fixtures of a body before destroying it, so the
+ * contacts ended by World.destroyBody() only reach the dispatcher with the
+ * fixture that is left. Their handlers aren't called, the count of that
+ * fixture is updated and forget() must be called to drop the counts of the
+ * destroyed one. Call clearContactCounts() when the world is rebuilt.
+ */
+public class ContactDispatcher implements ContactListener {
+
+	/* Number of tags, including NONE */
+	public static final int MAX_TAGS = 32;
+
+	/* Tag of fixtures without one */
+	public static final int NONE = 0;
+
+	/* Tag that matches every other tag when registering handlers */
+	public static final int ANY = -1;
+
+	/* Tags of the categories, by index of their bit */
+	private static final int CATEGORY_COUNT = 16;
+
+	/**
+	 * Receives the contacts between fixtures with some tags. Override only
+	 * the methods you need.
+	 */
+	public static abstract class ContactHandler {
+
+		public void beginContact(Contact contact, Fixture fixture, Fixture other) {
+		}
+
+		public void endContact(Contact contact, Fixture fixture, Fixture other) {
+		}
+
+		public void preSolve(Contact contact, Fixture fixture, Fixture other,
+				Manifold oldManifold) {
+		}
+
+		public void postSolve(Contact contact, Fixture fixture, Fixture other,
+				ContactImpulse impulse) {
+		}
+	}
+
+	/* Handlers registered for pairs of tags and for one tag and ANY */
+	private final ContactHandler[] pairHandlers;
+	private final ContactHandler[] anyHandlers;
+
+	/*
+	 * Handler for each pair of tags, indexed by tagA * MAX_TAGS + tagB, and
+	 * whether the fixtures must be swapped before calling it.
+	 */
+	private final ContactHandler[] handlers;
+	private final boolean[] swapped;
+
+	private final int[] categoryTags;
+	private boolean hasCategoryTags;
+
+	/* Contacts touching each tagged fixture, fixtures without any are removed */
+	private final ObjectIntMap<Fixture> contactCounts;
+
+	public ContactDispatcher() {
+		pairHandlers = new ContactHandler[MAX_TAGS * MAX_TAGS];
+		anyHandlers = new ContactHandler[MAX_TAGS];
+		handlers = new ContactHandler[MAX_TAGS * MAX_TAGS];
+		swapped = new boolean[MAX_TAGS * MAX_TAGS];
+		categoryTags = new int[CATEGORY_COUNT];
+		contactCounts = new ObjectIntMap<Fixture>();
+	}
+
+	/**
+	 * Registers the handler of the contacts between fixtures with two tags.
+	 * It replaces the handler registered for the same tags, if any.
+	 *
+	 * @param tag Tag of the fixture passed first to the handler
+	 * @param otherTag Tag of the other fixture, or ANY to receive the
+	 *        contacts with every fixture. A handler registered for two tags
+	 *        goes before one registered for ANY.
+	 * @param handler Handler, or null to remove it
+	 */
+	public void register(int tag, int otherTag, ContactHandler handler) {
+		checkTag(tag);
+
+		if (otherTag == ANY) {
+			anyHandlers[tag] = handler;
+		} else {
+			checkTag(otherTag);
+			pairHandlers[tag * MAX_TAGS + otherTag] = handler;
+		}
+
+		rebuild();
+	}
+
+	/**
+	 * Tags a fixture. Its previous user data is replaced.
+	 */
+	public static void tag(Fixture fixture, int tag) {
+		checkTag(tag);
+		fixture.setUserData(tag == NONE ? null : Integer.valueOf(tag));
+	}
+
+	/**
+	 * Tags every fixture of a body.
+	 */
+	public static void tag(Body body, int tag) {
+		Array<Fixture> fixtures = body.getFixtureList();
+
+		for (int i = 0; i < fixtures.size; i++) {
+			tag(fixtures.get(i), tag);
+		}
+	}
+
+	/**
+	 * @return Tag set as user data of a fixture, or NONE
+	 */
+	public static int getTag(Fixture fixture) {
+		Object userData = fixture.getUserData();
+
+		if (userData instanceof Integer) {
+			int tag = (Integer) userData;
+			if (tag > NONE && tag < MAX_TAGS) {
+				return tag;
+			}
+		}
+
+		return NONE;
+	}
+
+	/**
+	 * Gives a tag to the untagged fixtures whose lowest category bit is the
+	 * given one. Reading the category of a fixture is a native call, so it is
+	 * only done once a category has been tagged.
+	 *
+	 * @param categoryBit Single category bit
+	 */
+	public void tagCategory(short categoryBit, int tag) {
+		checkTag(tag);
+
+		int bits = categoryBit & 0xffff;
+		if (Integer.bitCount(bits) != 1) {
+			throw new GdxRuntimeException("Not a single category bit: " + bits);
+		}
+
+		categoryTags[Integer.numberOfTrailingZeros(bits)] = tag;
+
+		hasCategoryTags = false;
+		for (int i = 0; i < CATEGORY_COUNT; i++) {
+			if (categoryTags[i] != NONE) {
+				hasCategoryTags = true;
+			}
+		}
+	}
+
+	/**
+	 * @return Number of contacts touching a tagged fixture
+	 */
+	public int getContactCount(Fixture fixture) {
+		return contactCounts.get(fixture, 0);
+	}
+
+	public void clearContactCounts() {
+		contactCounts.clear();
+	}
+
+	/**
+	 * Drops the contact counts of the fixtures of a body. Call it before
+	 * destroying a body with tagged fixtures.
+	 */
+	public void forget(Body body) {
+		Array<Fixture> fixtures = body.getFixtureList();
+
+		for (int i = 0; i < fixtures.size; i++) {
+			contactCounts.remove(fixtures.get(i), 0);
+		}
+	}
+
+	@Override
+	public void beginContact(Contact contact) {
+		Fixture fixtureA = contact.getFixtureA();
+		Fixture fixtureB = contact.getFixtureB();
+		int tagA = resolveTag(fixtureA);
+		int tagB = resolveTag(fixtureB);
+
+		if (tagA != NONE) {
+			contactCounts.getAndIncrement(fixtureA, 0, 1);
+		}
+		if (tagB != NONE) {
+			contactCounts.getAndIncrement(fixtureB, 0, 1);
+		}
+
+		int index = tagA * MAX_TAGS + tagB;
+		ContactHandler handler = handlers[index];
+		if (handler != null) {
+			if (swapped[index]) {
+				handler.beginContact(contact, fixtureB, fixtureA);
+			} else {
+				handler.beginContact(contact, fixtureA, fixtureB);
+			}
+		}
+	}
+
+	@Override
+	public void endContact(Contact contact) {
+		Fixture fixtureA = contact.getFixtureA();
+		Fixture fixtureB = contact.getFixtureB();
+
+		/* One of the fixtures is being destroyed (See World.destroyBody()) */
+		if (fixtureA == null || fixtureB == null) {
+			Fixture fixture = fixtureA != null ? fixtureA : fixtureB;
+			if (fixture != null && resolveTag(fixture) != NONE) {
+				decrementContactCount(fixture);
+			}
+			return;
+		}
+
+		int tagA = resolveTag(fixtureA);
+		int tagB = resolveTag(fixtureB);
+
+		if (tagA != NONE) {
+			decrementContactCount(fixtureA);
+		}
+		if (tagB != NONE) {
+			decrementContactCount(fixtureB);
+		}
+
+		int index = tagA * MAX_TAGS + tagB;
+		ContactHandler handler = handlers[index];
+		if (handler != null) {
+			if (swapped[index]) {
+				handler.endContact(contact, fixtureB, fixtureA);
+			} else {
+				handler.endContact(contact, fixtureA, fixtureB);
+			}
+		}
+	}
+
+	@Override
+	public void preSolve(Contact contact, Manifold oldManifold) {
+		Fixture fixtureA = contact.getFixtureA();
+		Fixture fixtureB = contact.getFixtureB();
+
+		int index = resolveTag(fixtureA) * MAX_TAGS + resolveTag(fixtureB);
+		ContactHandler handler = handlers[index];
+		if (handler != null) {
+			if (swapped[index]) {
+				handler.preSolve(contact, fixtureB, fixtureA, oldManifold);
+			} else {
+				handler.preSolve(contact, fixtureA, fixtureB, oldManifold);
+			}
+		}
+	}
+
+	@Override
+	public void postSolve(Contact contact, ContactImpulse impulse) {
+		Fixture fixtureA = contact.getFixtureA();
+		Fixture fixtureB = contact.getFixtureB();
+
+		int index = resolveTag(fixtureA) * MAX_TAGS + resolveTag(fixtureB);
+		ContactHandler handler = handlers[index];
+		if (handler != null) {
+			if (swapped[index]) {
+				handler.postSolve(contact, fixtureB, fixtureA, impulse);
+			} else {
+				handler.postSolve(contact, fixtureA, fixtureB, impulse);
+			}
+		}
+	}
+
+	/**
+	 * Fills the dispatch table. For each pair of tags it takes, in order, the
+	 * handler registered for both tags, for both tags the other way around,
+	 * for the first tag and ANY and for the second tag and ANY.
+	 */
+	private void rebuild() {
+		for (int tagA = 0; tagA < MAX_TAGS; tagA++) {
+			for (int tagB = 0; tagB < MAX_TAGS; tagB++) {
+				int index = tagA * MAX_TAGS + tagB;
+				ContactHandler handler = pairHandlers[index];
+				boolean swap = false;
+
+				if (handler == null) {
+					handler = pairHandlers[tagB * MAX_TAGS + tagA];
+					swap = true;
+				}
+				if (handler == null) {
+					handler = anyHandlers[tagA];
+					swap = false;
+				}
+				if (handler == null) {
+					handler = anyHandlers[tagB];
+					swap = true;
+				}
+
+				handlers[index] = handler;
+				swapped[index] = handler != null && swap;
+			}
+		}
+	}
+
+	private int resolveTag(Fixture fixture) {
+		int tag = getTag(fixture);
+
+		if (tag == NONE && hasCategoryTags) {
+			int bits = fixture.getFilterData().categoryBits & 0xffff;
+			if (bits != 0) {
+				tag = categoryTags[Integer.numberOfTrailingZeros(bits)];
+			}
+		}
+
+		return tag;
+	}
+
+	private void decrementContactCount(Fixture fixture) {
+		if (contactCounts.getAndIncrement(fixture, 0, -1) <= 1) {
+			contactCounts.remove(fixture, 0);
+		}
+	}
+
+	private static void checkTag(int tag) {
+		if (tag < NONE || tag >= MAX_TAGS) {
+			throw new GdxRuntimeException("Tag out of range: " + tag);
+		}
+	}
+
+}
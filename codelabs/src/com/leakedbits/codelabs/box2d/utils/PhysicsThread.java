@@ -0,0 +1,240 @@
+package com.leakedbits.codelabs.box2d.utils;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Steps a world on its own thread with a fixed time step. After each step the
+ * state of the bodies is copied to a {@link WorldSnapshot}. Three snapshots
+ * are used: one being written by the physics thread, the latest complete one
+ * and the one being drawn, so neither thread waits for the other.
+ *
+ * Once started, the world must only be touched from the physics thread. Other
+ * threads post their changes with post(), which runs them before the next
+ * step.
+ */
+public class PhysicsThread implements Runnable {
+
+	/**
+	 * Called on the physics thread after each step of the world.
+	 */
+	public interface StepListener {
+		void onWorldStep(float timeStep);
+	}
+
+	/* Max number of steps done in a row to catch up after a stall */
+	private static final int MAX_CATCH_UP_STEPS = 5;
+
+	private final World world;
+	private final float timeStep;
+	private final int velocityIterations;
+	private final int positionIterations;
+	private final StepListener listener;
+
+	private Thread thread;
+	private volatile boolean isRunning;
+	private boolean isPaused;
+	private volatile Throwable error;
+	private int stepCount;
+	private long lastStepTime;
+
+	/* Snapshots being written, ready to be drawn and being drawn */
+	private WorldSnapshot backSnapshot;
+	private WorldSnapshot readySnapshot;
+	private WorldSnapshot frontSnapshot;
+	private boolean hasNewSnapshot;
+
+	/* Geometry of the fixtures, shared by the three snapshots */
+	private WorldSnapshot.GeometryCache geometryCache;
+
+	/* Reusable array used to read the bodies of the world */
+	private Array<Body> bodies;
+
+	/* Tasks posted by other threads and tasks being run */
+	private Array<Runnable> postedTasks;
+	private Array<Runnable> runningTasks;
+
+	public PhysicsThread(World world, float timeStep, int velocityIterations,
+			int positionIterations, StepListener listener) {
+		this.world = world;
+		this.timeStep = timeStep;
+		this.velocityIterations = velocityIterations;
+		this.positionIterations = positionIterations;
+		this.listener = listener;
+
+		backSnapshot = new WorldSnapshot();
+		readySnapshot = new WorldSnapshot();
+		frontSnapshot = new WorldSnapshot();
+		geometryCache = new WorldSnapshot.GeometryCache();
+
+		bodies = new Array<Body>();
+
+		postedTasks = new Array<Runnable>();
+		runningTasks = new Array<Runnable>();
+
+		/* Start with the current state so there is always something to draw */
+		capture(readySnapshot);
+		hasNewSnapshot = true;
+	}
+
+	public void start() {
+		isRunning = true;
+		thread = new Thread(this, "Physics");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops the thread and waits for it to finish. Afterwards the world can
+	 * be used again from any thread.
+	 */
+	public void stop() {
+		if (thread == null) {
+			return;
+		}
+
+		isRunning = false;
+		synchronized (this) {
+			notifyAll();
+		}
+
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		thread = null;
+	}
+
+	public synchronized void pause() {
+		isPaused = true;
+	}
+
+	public synchronized void resume() {
+		isPaused = false;
+		notifyAll();
+	}
+
+	/**
+	 * Runs a task on the physics thread before the next step.
+	 */
+	public void post(Runnable task) {
+		synchronized (postedTasks) {
+			postedTasks.add(task);
+		}
+	}
+
+	/**
+	 * Gets the latest complete snapshot. The snapshot can be read until the
+	 * next call to this method.
+	 */
+	public WorldSnapshot getSnapshot() {
+		if (error != null) {
+			throw new GdxRuntimeException("Error while stepping the world",
+					error);
+		}
+
+		synchronized (this) {
+			if (hasNewSnapshot) {
+				WorldSnapshot snapshot = frontSnapshot;
+				frontSnapshot = readySnapshot;
+				readySnapshot = snapshot;
+				hasNewSnapshot = false;
+			}
+		}
+
+		return frontSnapshot;
+	}
+
+	/**
+	 * Gets the time spent in the last World.step() call, in nanoseconds. Only
+	 * meant to be read on the physics thread, from the step listener.
+	 */
+	public long getLastStepTime() {
+		return lastStepTime;
+	}
+
+	@Override
+	public void run() {
+		long stepNanos = (long) (timeStep * 1000000000L);
+		long nextStepTime = System.nanoTime();
+
+		try {
+			while (isRunning) {
+				if (waitWhilePaused()) {
+					nextStepTime = System.nanoTime();
+				}
+
+				long now = System.nanoTime();
+				if (now < nextStepTime) {
+					Thread.sleep((nextStepTime - now) / 1000000L,
+							(int) ((nextStepTime - now) % 1000000L));
+					continue;
+				}
+
+				/* Drop the time that can't be simulated after a stall */
+				if (now - nextStepTime > stepNanos * MAX_CATCH_UP_STEPS) {
+					nextStepTime = now;
+				}
+				nextStepTime += stepNanos;
+
+				runPostedTasks();
+
+				long stepStart = System.nanoTime();
+				world.step(timeStep, velocityIterations, positionIterations);
+				lastStepTime = System.nanoTime() - stepStart;
+				stepCount++;
+				if (listener != null) {
+					listener.onWorldStep(timeStep);
+				}
+
+				capture(backSnapshot);
+				publish();
+			}
+		} catch (Throwable e) {
+			error = e;
+		}
+	}
+
+	/**
+	 * @return Whether the thread has been paused
+	 */
+	private synchronized boolean waitWhilePaused() throws InterruptedException {
+		boolean wasPaused = false;
+
+		while (isPaused && isRunning) {
+			wasPaused = true;
+			wait();
+		}
+
+		return wasPaused;
+	}
+
+	private void runPostedTasks() {
+		synchronized (postedTasks) {
+			runningTasks.addAll(postedTasks);
+			postedTasks.clear();
+		}
+
+		for (int i = 0; i < runningTasks.size; i++) {
+			runningTasks.get(i).run();
+		}
+		runningTasks.clear();
+	}
+
+	private void capture(WorldSnapshot snapshot) {
+		world.getBodies(bodies);
+		snapshot.capture(bodies, stepCount, geometryCache);
+		bodies.clear();
+	}
+
+	private synchronized void publish() {
+		WorldSnapshot snapshot = readySnapshot;
+		readySnapshot = backSnapshot;
+		backSnapshot = snapshot;
+		hasNewSnapshot = true;
+	}
+
+}
@@ -8,6 +8,10 @@ public class PolygonProperties {
 	
 	private float area;
 	
+	public PolygonProperties() {
+		this(new Vector2(), 0);
+	}
+
 	public PolygonProperties(Vector2 centroid, float area) {
 		this.centroid = centroid;
 		this.area = area;
@@ -28,5 +32,20 @@ public class PolygonProperties {
 	public void setArea(float area) {
 		this.area = area;
 	}
+
+	/**
+	 * Updates centroid and area without allocating a new centroid vector.
+	 * 
+	 * @param centroidX X coordinate of the centroid
+	 * @param centroidY Y coordinate of the centroid
+	 * @param area Area of the polygon
+	 * @return This polygon properties for chaining
+	 */
+	public PolygonProperties set(float centroidX, float centroidY, float area) {
+		centroid.set(centroidX, centroidY);
+		this.area = area;
+
+		return this;
+	}
 	
 }
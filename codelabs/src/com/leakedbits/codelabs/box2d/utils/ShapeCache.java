@@ -0,0 +1,213 @@
+package com.leakedbits.codelabs.box2d.utils;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * Cache of native shapes and fixture templates. Box2D copies the shape of a
+ * fixture when it is created, so a single shape can be used for any number of
+ * bodies. Shapes are created the first time they are requested and live
+ * until the cache is disposed, usually when the sample that owns it is.
+ *
+ * Shapes and templates are shared, so they must not be changed once created.
+ */
+public class ShapeCache implements Disposable {
+
+	/* Shapes keyed by the bits of their dimensions */
+	private LongMap<Shape> circles;
+	private LongMap<Shape> boxes;
+	private LongMap<Shape> triangles;
+
+	/*
+	 * Polygons keyed by a 64 bit hash of their vertices. Each entry keeps a
+	 * copy of its vertices, and polygons whose hashes collide are chained.
+	 */
+	private LongMap<CachedPolygon> polygons;
+
+	/* Every shape created by the cache, to dispose them */
+	private Array<Shape> shapes;
+
+	private Array<FixtureDef> templates;
+
+	private static class CachedPolygon {
+		final float[] vertices;
+		final Shape shape;
+		final CachedPolygon next;
+
+		CachedPolygon(float[] vertices, Shape shape, CachedPolygon next) {
+			this.vertices = vertices;
+			this.shape = shape;
+			this.next = next;
+		}
+	}
+
+	public ShapeCache() {
+		circles = new LongMap<Shape>();
+		boxes = new LongMap<Shape>();
+		triangles = new LongMap<Shape>();
+		polygons = new LongMap<CachedPolygon>();
+		shapes = new Array<Shape>();
+		templates = new Array<FixtureDef>();
+	}
+
+	public Shape getCircle(float radius) {
+		long key = Float.floatToIntBits(radius);
+		Shape shape = circles.get(key);
+
+		if (shape == null) {
+			shape = add(Box2DFactory.createCircleShape(radius));
+			circles.put(key, shape);
+		}
+
+		return shape;
+	}
+
+	/**
+	 * Gets a box centered in the body origin.
+	 */
+	public Shape getBox(float halfWidth, float halfHeight) {
+		long key = toKey(halfWidth, halfHeight);
+		Shape shape = boxes.get(key);
+
+		if (shape == null) {
+			shape = add(Box2DFactory.createBoxShape(halfWidth, halfHeight,
+					new Vector2(0, 0), 0));
+			boxes.put(key, shape);
+		}
+
+		return shape;
+	}
+
+	public Shape getTriangle(float halfWidth, float halfHeight) {
+		long key = toKey(halfWidth, halfHeight);
+		Shape shape = triangles.get(key);
+
+		if (shape == null) {
+			shape = add(Box2DFactory.createTriangleShape(halfWidth, halfHeight));
+			triangles.put(key, shape);
+		}
+
+		return shape;
+	}
+
+	/**
+	 * Gets a polygon with the given vertices, creating it only the first time
+	 * they are requested.
+	 *
+	 * @param vertices Interleaved x and y coordinates of the vertices
+	 * @param vertexCount Number of vertices used from the array
+	 */
+	public Shape getPolygon(float[] vertices, int vertexCount) {
+		int length = vertexCount * 2;
+		long key = toKey(vertices, length);
+		CachedPolygon first = polygons.get(key);
+
+		for (CachedPolygon polygon = first; polygon != null;) {
+			if (equals(polygon.vertices, vertices, length)) {
+				return polygon.shape;
+			}
+			polygon = polygon.next;
+		}
+
+		PolygonShape polygonShape = new PolygonShape();
+		polygonShape.set(vertices, 0, length);
+
+		float[] copy = new float[length];
+		System.arraycopy(vertices, 0, copy, 0, length);
+		polygons.put(key, new CachedPolygon(copy, add(polygonShape), first));
+
+		return polygonShape;
+	}
+
+	/**
+	 * Creates a custom polygon owned by the cache. Polygons are not looked
+	 * up, so keep the returned shape or a template made with it.
+	 */
+	public Shape addPolygon(Vector2[] vertices) {
+		return add(Box2DFactory.createPolygonShape(vertices));
+	}
+
+	/**
+	 * Registers a fixture template made with a shape of this cache.
+	 *
+	 * @return Identifier of the template
+	 */
+	public int addTemplate(Shape shape, float density, float friction,
+			float restitution, boolean isSensor) {
+		templates.add(Box2DFactory.createFixture(shape, density, friction,
+				restitution, isSensor));
+
+		return templates.size - 1;
+	}
+
+	public FixtureDef getTemplate(int id) {
+		return templates.get(id);
+	}
+
+	public int getTemplateCount() {
+		return templates.size;
+	}
+
+	@Override
+	public void dispose() {
+		for (int i = 0; i < shapes.size; i++) {
+			shapes.get(i).dispose();
+		}
+
+		shapes.clear();
+		circles.clear();
+		boxes.clear();
+		triangles.clear();
+		polygons.clear();
+		templates.clear();
+	}
+
+	private Shape add(Shape shape) {
+		shapes.add(shape);
+
+		return shape;
+	}
+
+	/**
+	 * Compares the bits of the values, the same ones hashed by toKey().
+	 */
+	private static boolean equals(float[] cached, float[] values, int length) {
+		if (cached.length != length) {
+			return false;
+		}
+
+		for (int i = 0; i < length; i++) {
+			if (Float.floatToIntBits(cached[i]) != Float
+					.floatToIntBits(values[i])) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Hashes the bits of the values with 64 bit FNV-1a.
+	 */
+	private static long toKey(float[] values, int length) {
+		long hash = 0xcbf29ce484222325L;
+
+		for (int i = 0; i < length; i++) {
+			hash ^= Float.floatToIntBits(values[i]);
+			hash *= 0x100000001b3L;
+		}
+
+		return hash ^ length;
+	}
+
+	private static long toKey(float first, float second) {
+		return (long) Float.floatToIntBits(first) << 32
+				| (Float.floatToIntBits(second) & 0xFFFFFFFFL);
+	}
+
+}
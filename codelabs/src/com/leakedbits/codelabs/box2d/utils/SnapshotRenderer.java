@@ -0,0 +1,121 @@
+package com.leakedbits.codelabs.box2d.utils;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer.ShapeType;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Draws the bodies of a {@link WorldSnapshot} the same way Box2DDebugRenderer
+ * draws a world, without calling Box2D.
+ */
+public class SnapshotRenderer implements Disposable {
+
+	/* Number of segments used to draw a circle */
+	private static final int CIRCLE_SEGMENTS = 20;
+
+	public final Color SHAPE_STATIC = new Color(0.5f, 0.9f, 0.5f, 1);
+	public final Color SHAPE_KINEMATIC = new Color(0.5f, 0.5f, 0.9f, 1);
+	public final Color SHAPE_NOT_AWAKE = new Color(0.6f, 0.6f, 0.6f, 1);
+	public final Color SHAPE_AWAKE = new Color(0.9f, 0.7f, 0.7f, 1);
+
+	private ShapeRenderer renderer;
+
+	public SnapshotRenderer() {
+		renderer = new ShapeRenderer();
+	}
+
+	public void render(WorldSnapshot snapshot, Matrix4 projMatrix) {
+		renderer.setProjectionMatrix(projMatrix);
+		renderer.begin(ShapeType.Line);
+
+		for (int body = 0; body < snapshot.getBodyCount(); body++) {
+			renderer.setColor(getColor(snapshot, body));
+
+			int firstFixture = snapshot.getFirstFixture(body);
+			int lastFixture = firstFixture + snapshot.getFixtureCount(body);
+			for (int fixture = firstFixture; fixture < lastFixture; fixture++) {
+				drawShape(snapshot, body, fixture);
+			}
+		}
+
+		renderer.end();
+	}
+
+	private Color getColor(WorldSnapshot snapshot, int body) {
+		if (snapshot.getType(body) == BodyType.StaticBody) {
+			return SHAPE_STATIC;
+		} else if (snapshot.getType(body) == BodyType.KinematicBody) {
+			return SHAPE_KINEMATIC;
+		} else if (!snapshot.isAwake(body)) {
+			return SHAPE_NOT_AWAKE;
+		} else {
+			return SHAPE_AWAKE;
+		}
+	}
+
+	private void drawShape(WorldSnapshot snapshot, int body, int fixture) {
+		float positionX = snapshot.getX(body);
+		float positionY = snapshot.getY(body);
+		float cos = snapshot.getCos(body);
+		float sin = snapshot.getSin(body);
+
+		int vertexCount = snapshot.getVertexCount(fixture);
+		int shapeType = snapshot.getShapeType(fixture);
+
+		/* Transform each local vertex and join it with the previous one */
+		float firstX = 0;
+		float firstY = 0;
+		float previousX = 0;
+		float previousY = 0;
+		for (int i = 0; i < vertexCount; i++) {
+			float localX = snapshot.getVertexX(fixture, i);
+			float localY = snapshot.getVertexY(fixture, i);
+			float x = cos * localX - sin * localY + positionX;
+			float y = sin * localX + cos * localY + positionY;
+
+			if (i == 0) {
+				firstX = x;
+				firstY = y;
+			} else {
+				renderer.line(previousX, previousY, x, y);
+			}
+
+			previousX = x;
+			previousY = y;
+		}
+
+		if (shapeType == WorldSnapshot.CIRCLE) {
+			drawCircle(firstX, firstY, snapshot.getRadius(fixture), cos, sin);
+		} else if (shapeType == WorldSnapshot.POLYGON) {
+			renderer.line(previousX, previousY, firstX, firstY);
+		}
+	}
+
+	private void drawCircle(float centerX, float centerY, float radius,
+			float cos, float sin) {
+		float angleInc = 2 * (float) Math.PI / CIRCLE_SEGMENTS;
+		float previousX = centerX + radius;
+		float previousY = centerY;
+
+		for (int i = 1; i <= CIRCLE_SEGMENTS; i++) {
+			float x = centerX + (float) Math.cos(angleInc * i) * radius;
+			float y = centerY + (float) Math.sin(angleInc * i) * radius;
+			renderer.line(previousX, previousY, x, y);
+			previousX = x;
+			previousY = y;
+		}
+
+		/* Radius showing the rotation of the body */
+		renderer.line(centerX, centerY, centerX + cos * radius, centerY + sin
+				* radius);
+	}
+
+	@Override
+	public void dispose() {
+		renderer.dispose();
+	}
+
+}
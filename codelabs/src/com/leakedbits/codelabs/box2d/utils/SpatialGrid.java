@@ -0,0 +1,146 @@
+package com.leakedbits.codelabs.box2d.utils;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.IntMap.Values;
+
+/**
+ * Uniform grid that indexes axis aligned bounding boxes by an integer id.
+ * Each box is stored in every cell it overlaps, so a query only has to look
+ * at the cells covered by the query box. Cells are reused after clear() so
+ * rebuilding the grid doesn't allocate once it has been warmed up. Queries
+ * don't modify the grid, so several threads can query it at the same time.
+ */
+public class SpatialGrid {
+
+	private final float cellSize;
+	private final float inverseCellSize;
+
+	private final IntMap<IntArray> cells;
+
+	/* Bounds of each id stored as lowerX, lowerY, upperX, upperY */
+	private float[] bounds;
+
+	public SpatialGrid(float cellSize) {
+		this.cellSize = cellSize;
+		inverseCellSize = 1 / cellSize;
+
+		cells = new IntMap<IntArray>();
+		bounds = new float[64];
+	}
+
+	public float getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Removes every id from the grid, keeping the cells for later use.
+	 */
+	public void clear() {
+		Values<IntArray> values = cells.values();
+
+		while (values.hasNext()) {
+			values.next().clear();
+		}
+	}
+
+	/**
+	 * Stores an id in every cell overlapped by the given bounds.
+	 *
+	 * @param id Non negative identifier of the bounds
+	 */
+	public void insert(int id, float lowerX, float lowerY, float upperX,
+			float upperY) {
+		ensureCapacity(id + 1);
+
+		bounds[id * 4] = lowerX;
+		bounds[id * 4 + 1] = lowerY;
+		bounds[id * 4 + 2] = upperX;
+		bounds[id * 4 + 3] = upperY;
+
+		int lowerCellX = toCell(lowerX);
+		int lowerCellY = toCell(lowerY);
+		int upperCellX = toCell(upperX);
+		int upperCellY = toCell(upperY);
+
+		for (int cellX = lowerCellX; cellX <= upperCellX; cellX++) {
+			for (int cellY = lowerCellY; cellY <= upperCellY; cellY++) {
+				int key = toKey(cellX, cellY);
+				IntArray cell = cells.get(key);
+
+				if (cell == null) {
+					cell = new IntArray();
+					cells.put(key, cell);
+				}
+
+				cell.add(id);
+			}
+		}
+	}
+
+	/**
+	 * Finds the ids whose bounds overlap the given bounds.
+	 *
+	 * @param result Array where the ids will be added, it is cleared first
+	 * @return Number of ids found
+	 */
+	public int query(float lowerX, float lowerY, float upperX, float upperY,
+			IntArray result) {
+		result.clear();
+
+		int lowerCellX = toCell(lowerX);
+		int lowerCellY = toCell(lowerY);
+		int upperCellX = toCell(upperX);
+		int upperCellY = toCell(upperY);
+
+		for (int cellX = lowerCellX; cellX <= upperCellX; cellX++) {
+			for (int cellY = lowerCellY; cellY <= upperCellY; cellY++) {
+				IntArray cell = cells.get(toKey(cellX, cellY));
+
+				if (cell == null) {
+					continue;
+				}
+
+				for (int i = 0; i < cell.size; i++) {
+					int id = cell.get(i);
+
+					/*
+					 * Different cells can share a key, so bounds are always
+					 * tested. An id stored in several cells is only reported
+					 * once, results are expected to be short.
+					 */
+					if (bounds[id * 4] <= upperX
+							&& bounds[id * 4 + 1] <= upperY
+							&& bounds[id * 4 + 2] >= lowerX
+							&& bounds[id * 4 + 3] >= lowerY
+							&& !result.contains(id)) {
+						result.add(id);
+					}
+				}
+			}
+		}
+
+		return result.size;
+	}
+
+	private int toCell(float coordinate) {
+		return (int) Math.floor(coordinate * inverseCellSize);
+	}
+
+	/**
+	 * Packs both cell coordinates in a single key. Far away cells may share a
+	 * key, which only costs some extra bound tests.
+	 */
+	private static int toKey(int cellX, int cellY) {
+		return (cellX & 0xFFFF) << 16 | (cellY & 0xFFFF);
+	}
+
+	private void ensureCapacity(int ids) {
+		if (ids * 4 > bounds.length) {
+			float[] newBounds = new float[Math.max(ids * 4, bounds.length * 2)];
+			System.arraycopy(bounds, 0, newBounds, 0, bounds.length);
+			bounds = newBounds;
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+package com.leakedbits.codelabs.box2d.utils;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Joint;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Pool of Box2D worlds. A freed world is not disposed but emptied: its joints
+ * and bodies are destroyed and its listeners and settings restored, so the
+ * next sample reuses its native allocations instead of building a new one.
+ *
+ * Whether bodies can sleep can't be changed after a world is created, so
+ * there is a list of free worlds for each value.
+ *
+ * A reused world doesn't hand out the same proxy ids as a new one, so it
+ * may order contacts differently. Use a new world when a simulation must
+ * match another bit by bit.
+ */
+public class WorldPool {
+
+	/* Max number of freed worlds kept for each sleep setting */
+	private int maxFree;
+
+	private Array<World> freeSleepingWorlds;
+	private Array<World> freeAwakeWorlds;
+
+	/* Arrays used to read the joints and bodies of freed worlds */
+	private Array<Joint> joints;
+	private Array<Body> bodies;
+
+	/* Obtained worlds that were reused and that had to be created */
+	private int hits;
+	private int misses;
+
+	public WorldPool(int maxFree) {
+		this.maxFree = maxFree;
+
+		freeSleepingWorlds = new Array<World>(false, maxFree);
+		freeAwakeWorlds = new Array<World>(false, maxFree);
+		joints = new Array<Joint>();
+		bodies = new Array<Body>();
+	}
+
+	/**
+	 * Gets an empty world with the given gravity.
+	 *
+	 * @param doSleep Whether bodies can sleep
+	 */
+	public World obtain(Vector2 gravity, boolean doSleep) {
+		Array<World> freeWorlds = doSleep ? freeSleepingWorlds
+				: freeAwakeWorlds;
+
+		if (freeWorlds.size > 0) {
+			World world = freeWorlds.pop();
+			world.setGravity(gravity);
+			hits++;
+			return world;
+		}
+
+		misses++;
+		return new World(gravity, doSleep);
+	}
+
+	/**
+	 * Empties a world and keeps it for later, or disposes it if the pool is
+	 * full. It must not be stepping.
+	 *
+	 * @param doSleep Value the world was obtained with
+	 */
+	public void free(World world, boolean doSleep) {
+		Array<World> freeWorlds = doSleep ? freeSleepingWorlds
+				: freeAwakeWorlds;
+
+		if (freeWorlds.size >= maxFree) {
+			world.dispose();
+			return;
+		}
+
+		reset(world);
+		freeWorlds.add(world);
+	}
+
+	/**
+	 * Disposes every free world.
+	 */
+	public void clear() {
+		for (World world : freeSleepingWorlds) {
+			world.dispose();
+		}
+		for (World world : freeAwakeWorlds) {
+			world.dispose();
+		}
+
+		freeSleepingWorlds.clear();
+		freeAwakeWorlds.clear();
+	}
+
+	public int getFreeCount() {
+		return freeSleepingWorlds.size + freeAwakeWorlds.size;
+	}
+
+	public int getHits() {
+		return hits;
+	}
+
+	public int getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Destroys the joints and bodies of a world and restores the default
+	 * listeners and settings.
+	 */
+	private void reset(World world) {
+		/* Destroying bodies ends their contacts, which samples don't expect */
+		world.setContactListener(null);
+		world.setContactFilter(null);
+		world.setDestructionListener(null);
+
+		world.getJoints(joints);
+		for (int i = 0; i < joints.size; i++) {
+			world.destroyJoint(joints.get(i));
+		}
+		joints.clear();
+
+		world.getBodies(bodies);
+		for (int i = 0; i < bodies.size; i++) {
+			world.destroyBody(bodies.get(i));
+		}
+		bodies.clear();
+
+		world.setWarmStarting(true);
+		world.setContinuousPhysics(true);
+		world.setAutoClearForces(true);
+	}
+
+}
@@ -0,0 +1,726 @@
+package com.leakedbits.codelabs.box2d.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.ChainShape;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.EdgeShape;
+import com.badlogic.gdx.physics.box2d.Filter;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.Joint;
+import com.badlogic.gdx.physics.box2d.JointDef;
+import com.badlogic.gdx.physics.box2d.JointDef.JointType;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.physics.box2d.joints.DistanceJoint;
+import com.badlogic.gdx.physics.box2d.joints.DistanceJointDef;
+import com.badlogic.gdx.physics.box2d.joints.FrictionJoint;
+import com.badlogic.gdx.physics.box2d.joints.FrictionJointDef;
+import com.badlogic.gdx.physics.box2d.joints.MouseJoint;
+import com.badlogic.gdx.physics.box2d.joints.MouseJointDef;
+import com.badlogic.gdx.physics.box2d.joints.RevoluteJoint;
+import com.badlogic.gdx.physics.box2d.joints.RevoluteJointDef;
+import com.badlogic.gdx.physics.box2d.joints.RopeJoint;
+import com.badlogic.gdx.physics.box2d.joints.RopeJointDef;
+import com.badlogic.gdx.physics.box2d.joints.WeldJoint;
+import com.badlogic.gdx.physics.box2d.joints.WeldJointDef;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+/**
+ * Saves the state of a world to a compact binary format and restores it:
+ * gravity, bodies with their transforms and velocities, fixtures with their
+ * shapes and the joints between bodies. Buffers can be kept in memory, to
+ * restart or rewind a simulation, or written to memory-mapped files for
+ * large worlds.
+ *
+ * User data is only saved when it is an Integer. Distance, friction, mouse,
+ * revolute, rope and weld joints are saved; other joint types are skipped,
+ * because libGDX doesn't expose the data needed to rebuild them. Joints are
+ * restored with collideConnected set to false for the same reason.
+ */
+public class WorldSerializer {
+
+	/* "B2WS" */
+	private static final int MAGIC = 0x42325753;
+	private static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 24;
+	private static final int BODY_SIZE = 2 + 9 * 4 + 2;
+	private static final int FIXTURE_SIZE = 3 * 4 + 1 + 3 * 2 + 1;
+
+	/* Body flags */
+	private static final int AWAKE = 1;
+	private static final int ACTIVE = 2;
+	private static final int BULLET = 4;
+	private static final int FIXED_ROTATION = 8;
+	private static final int SLEEPING_ALLOWED = 16;
+
+	/* Shape types */
+	private static final int CIRCLE = 0;
+	private static final int POLYGON = 1;
+	private static final int EDGE = 2;
+	private static final int CHAIN = 3;
+
+	/* User data tags */
+	private static final int NO_USER_DATA = 0;
+	private static final int INTEGER_USER_DATA = 1;
+
+	/* Bytes of the data of each supported joint type, after the bodies */
+	private static final int DISTANCE_JOINT_SIZE = 7 * 4;
+	private static final int FRICTION_JOINT_SIZE = 6 * 4;
+	private static final int MOUSE_JOINT_SIZE = 7 * 4;
+	private static final int REVOLUTE_JOINT_SIZE = 9 * 4 + 2;
+	private static final int ROPE_JOINT_SIZE = 5 * 4;
+	private static final int WELD_JOINT_SIZE = 5 * 4;
+
+	private WorldSerializer() {
+	}
+
+	/**
+	 * Writes the state of a world to a buffer.
+	 *
+	 * @param buffer Buffer to reuse, or null. A new direct buffer is
+	 *            allocated when it is null or too small.
+	 * @return Buffer holding the state, flipped and ready to be read
+	 */
+	public static ByteBuffer write(World world, ByteBuffer buffer) {
+		Array<Body> bodies = new Array<Body>(world.getBodyCount());
+		Array<Joint> joints = new Array<Joint>(world.getJointCount());
+		world.getBodies(bodies);
+		world.getJoints(joints);
+
+		int size = getSize(bodies, joints);
+		if (buffer == null || buffer.capacity() < size) {
+			buffer = ByteBuffer.allocateDirect(size);
+		}
+
+		buffer.clear();
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		write(world, bodies, joints, buffer);
+		buffer.flip();
+
+		return buffer;
+	}
+
+	/**
+	 * Writes the state of a world to a memory-mapped file.
+	 */
+	public static void save(World world, File file) throws IOException {
+		Array<Body> bodies = new Array<Body>(world.getBodyCount());
+		Array<Joint> joints = new Array<Joint>(world.getJointCount());
+		world.getBodies(bodies);
+		world.getJoints(joints);
+
+		int size = getSize(bodies, joints);
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.setLength(size);
+			MappedByteBuffer buffer = randomAccessFile.getChannel().map(
+					FileChannel.MapMode.READ_WRITE, 0, size);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			write(world, bodies, joints, buffer);
+			buffer.force();
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Restores a state written by write() into a world, usually an empty
+	 * one. Circles centered in their body and polygons come from the shape
+	 * cache, so restoring the same state again doesn't create shapes.
+	 *
+	 * @param buffer Buffer positioned at the start of the state. It is read
+	 *            up to the end of the state.
+	 * @param bodies Array where the restored bodies are added in the order
+	 *            they were saved, or null
+	 */
+	public static void read(ByteBuffer buffer, World world,
+			ShapeCache shapeCache, Array<Body> bodies) {
+		ByteOrder order = buffer.order();
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		try {
+			if (buffer.getInt() != MAGIC) {
+				throw new GdxRuntimeException("Not a world snapshot");
+			}
+			int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new GdxRuntimeException(
+						"Unsupported world snapshot version " + version);
+			}
+
+			world.setGravity(new Vector2(buffer.getFloat(), buffer.getFloat()));
+
+			int bodyCount = buffer.getInt();
+			int jointCount = buffer.getInt();
+
+			Body[] restoredBodies = new Body[bodyCount];
+			BodyDef bodyDef = new BodyDef();
+			FixtureDef fixtureDef = new FixtureDef();
+			float[] vertices = new float[16];
+
+			for (int i = 0; i < bodyCount; i++) {
+				restoredBodies[i] = readBody(buffer, world, shapeCache,
+						bodyDef, fixtureDef, vertices);
+			}
+
+			for (int i = 0; i < jointCount; i++) {
+				readJoint(buffer, world, restoredBodies);
+			}
+
+			if (bodies != null) {
+				bodies.addAll(restoredBodies);
+			}
+		} finally {
+			buffer.order(order);
+		}
+	}
+
+	/**
+	 * Restores a state saved with save() into a world.
+	 *
+	 * @see #read(ByteBuffer, World, ShapeCache, Array)
+	 */
+	public static void load(File file, World world, ShapeCache shapeCache,
+			Array<Body> bodies) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			MappedByteBuffer buffer = randomAccessFile.getChannel().map(
+					FileChannel.MapMode.READ_ONLY, 0,
+					randomAccessFile.length());
+			read(buffer, world, shapeCache, bodies);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	private static int getSize(Array<Body> bodies, Array<Joint> joints) {
+		int size = HEADER_SIZE;
+
+		for (int i = 0; i < bodies.size; i++) {
+			Body body = bodies.get(i);
+			size += BODY_SIZE + getUserDataSize(body.getUserData());
+
+			Array<Fixture> fixtures = body.getFixtureList();
+			for (int j = 0; j < fixtures.size; j++) {
+				Fixture fixture = fixtures.get(j);
+				size += FIXTURE_SIZE + getUserDataSize(fixture.getUserData())
+						+ getShapeSize(fixture.getShape());
+			}
+		}
+
+		for (int i = 0; i < joints.size; i++) {
+			int jointSize = getJointSize(joints.get(i).getType());
+			if (jointSize != -1) {
+				size += 1 + 2 * 4 + jointSize;
+			}
+		}
+
+		return size;
+	}
+
+	private static int getUserDataSize(Object userData) {
+		return userData instanceof Integer ? 1 + 4 : 1;
+	}
+
+	private static int getShapeSize(Shape shape) {
+		switch (shape.getType()) {
+		case Circle:
+			return 3 * 4;
+		case Polygon:
+			return 1 + ((PolygonShape) shape).getVertexCount() * 2 * 4;
+		case Edge:
+			return 4 * 4;
+		case Chain:
+			return 1 + 4 + getChainVertexCount((ChainShape) shape) * 2 * 4;
+		default:
+			throw new GdxRuntimeException("Unknown shape type "
+					+ shape.getType());
+		}
+	}
+
+	/**
+	 * Gets the number of vertices saved for a chain. A loop repeats its first
+	 * vertex at the end, which isn't saved.
+	 */
+	private static int getChainVertexCount(ChainShape chain) {
+		int vertexCount = chain.getVertexCount();
+
+		return chain.isLooped() ? vertexCount - 1 : vertexCount;
+	}
+
+	/**
+	 * @return Bytes of the data of a joint type, or -1 if it is not supported
+	 */
+	private static int getJointSize(JointType type) {
+		switch (type) {
+		case DistanceJoint:
+			return DISTANCE_JOINT_SIZE;
+		case FrictionJoint:
+			return FRICTION_JOINT_SIZE;
+		case MouseJoint:
+			return MOUSE_JOINT_SIZE;
+		case RevoluteJoint:
+			return REVOLUTE_JOINT_SIZE;
+		case RopeJoint:
+			return ROPE_JOINT_SIZE;
+		case WeldJoint:
+			return WELD_JOINT_SIZE;
+		default:
+			return -1;
+		}
+	}
+
+	private static void write(World world, Array<Body> bodies,
+			Array<Joint> joints, ByteBuffer buffer) {
+		int jointCount = 0;
+		for (int i = 0; i < joints.size; i++) {
+			if (getJointSize(joints.get(i).getType()) != -1) {
+				jointCount++;
+			}
+		}
+
+		Vector2 gravity = world.getGravity();
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putFloat(gravity.x);
+		buffer.putFloat(gravity.y);
+		buffer.putInt(bodies.size);
+		buffer.putInt(jointCount);
+
+		ObjectIntMap<Body> indices = new ObjectIntMap<Body>(bodies.size);
+		Vector2 vertex = new Vector2();
+
+		for (int i = 0; i < bodies.size; i++) {
+			Body body = bodies.get(i);
+			indices.put(body, i);
+			writeBody(body, buffer, vertex);
+		}
+
+		for (int i = 0; i < joints.size; i++) {
+			Joint joint = joints.get(i);
+			if (getJointSize(joint.getType()) != -1) {
+				writeJoint(joint, buffer, indices);
+			}
+		}
+	}
+
+	private static void writeBody(Body body, ByteBuffer buffer, Vector2 vertex) {
+		int flags = 0;
+		flags |= body.isAwake() ? AWAKE : 0;
+		flags |= body.isActive() ? ACTIVE : 0;
+		flags |= body.isBullet() ? BULLET : 0;
+		flags |= body.isFixedRotation() ? FIXED_ROTATION : 0;
+		flags |= body.isSleepingAllowed() ? SLEEPING_ALLOWED : 0;
+
+		Vector2 position = body.getPosition();
+		Vector2 velocity = body.getLinearVelocity();
+
+		buffer.put((byte) body.getType().getValue());
+		buffer.put((byte) flags);
+		buffer.putFloat(position.x);
+		buffer.putFloat(position.y);
+		buffer.putFloat(body.getAngle());
+		buffer.putFloat(velocity.x);
+		buffer.putFloat(velocity.y);
+		buffer.putFloat(body.getAngularVelocity());
+		buffer.putFloat(body.getLinearDamping());
+		buffer.putFloat(body.getAngularDamping());
+		buffer.putFloat(body.getGravityScale());
+		writeUserData(body.getUserData(), buffer);
+
+		Array<Fixture> fixtures = body.getFixtureList();
+		buffer.putShort((short) fixtures.size);
+
+		for (int i = 0; i < fixtures.size; i++) {
+			Fixture fixture = fixtures.get(i);
+			Filter filter = fixture.getFilterData();
+
+			buffer.putFloat(fixture.getDensity());
+			buffer.putFloat(fixture.getFriction());
+			buffer.putFloat(fixture.getRestitution());
+			buffer.put((byte) (fixture.isSensor() ? 1 : 0));
+			buffer.putShort(filter.categoryBits);
+			buffer.putShort(filter.maskBits);
+			buffer.putShort(filter.groupIndex);
+			writeUserData(fixture.getUserData(), buffer);
+			writeShape(fixture.getShape(), buffer, vertex);
+		}
+	}
+
+	private static void writeUserData(Object userData, ByteBuffer buffer) {
+		if (userData instanceof Integer) {
+			buffer.put((byte) INTEGER_USER_DATA);
+			buffer.putInt((Integer) userData);
+		} else {
+			buffer.put((byte) NO_USER_DATA);
+		}
+	}
+
+	private static void writeShape(Shape shape, ByteBuffer buffer,
+			Vector2 vertex) {
+		switch (shape.getType()) {
+		case Circle:
+			Vector2 center = ((CircleShape) shape).getPosition();
+			buffer.put((byte) CIRCLE);
+			buffer.putFloat(shape.getRadius());
+			buffer.putFloat(center.x);
+			buffer.putFloat(center.y);
+			break;
+		case Polygon:
+			PolygonShape polygon = (PolygonShape) shape;
+			buffer.put((byte) POLYGON);
+			buffer.put((byte) polygon.getVertexCount());
+			for (int i = 0; i < polygon.getVertexCount(); i++) {
+				polygon.getVertex(i, vertex);
+				buffer.putFloat(vertex.x);
+				buffer.putFloat(vertex.y);
+			}
+			break;
+		case Edge:
+			EdgeShape edge = (EdgeShape) shape;
+			buffer.put((byte) EDGE);
+			edge.getVertex1(vertex);
+			buffer.putFloat(vertex.x);
+			buffer.putFloat(vertex.y);
+			edge.getVertex2(vertex);
+			buffer.putFloat(vertex.x);
+			buffer.putFloat(vertex.y);
+			break;
+		case Chain:
+			ChainShape chain = (ChainShape) shape;
+			buffer.put((byte) CHAIN);
+			buffer.put((byte) (chain.isLooped() ? 1 : 0));
+
+			int vertexCount = getChainVertexCount(chain);
+			buffer.putInt(vertexCount);
+			for (int i = 0; i < vertexCount; i++) {
+				chain.getVertex(i, vertex);
+				buffer.putFloat(vertex.x);
+				buffer.putFloat(vertex.y);
+			}
+			break;
+		default:
+			throw new GdxRuntimeException("Unknown shape type "
+					+ shape.getType());
+		}
+	}
+
+	private static void writeJoint(Joint joint, ByteBuffer buffer,
+			ObjectIntMap<Body> indices) {
+		Body bodyA = joint.getBodyA();
+		Body bodyB = joint.getBodyB();
+
+		buffer.put((byte) joint.getType().getValue());
+		buffer.putInt(indices.get(bodyA, -1));
+		buffer.putInt(indices.get(bodyB, -1));
+
+		switch (joint.getType()) {
+		case DistanceJoint:
+			DistanceJoint distanceJoint = (DistanceJoint) joint;
+			writeLocalAnchors(joint, buffer);
+			buffer.putFloat(distanceJoint.getLength());
+			buffer.putFloat(distanceJoint.getFrequency());
+			buffer.putFloat(distanceJoint.getDampingRatio());
+			break;
+		case FrictionJoint:
+			FrictionJoint frictionJoint = (FrictionJoint) joint;
+			writeLocalAnchors(joint, buffer);
+			buffer.putFloat(frictionJoint.getMaxForce());
+			buffer.putFloat(frictionJoint.getMaxTorque());
+			break;
+		case MouseJoint:
+			MouseJoint mouseJoint = (MouseJoint) joint;
+			Vector2 target = mouseJoint.getTarget();
+			buffer.putFloat(target.x);
+			buffer.putFloat(target.y);
+
+			/* The anchor on the body, which may differ from the target */
+			Vector2 anchor = joint.getAnchorB();
+			buffer.putFloat(anchor.x);
+			buffer.putFloat(anchor.y);
+			buffer.putFloat(mouseJoint.getMaxForce());
+			buffer.putFloat(mouseJoint.getFrequency());
+			buffer.putFloat(mouseJoint.getDampingRatio());
+			break;
+		case RevoluteJoint:
+			RevoluteJoint revoluteJoint = (RevoluteJoint) joint;
+			Vector2 localAnchor = revoluteJoint.getLocalAnchorA();
+			buffer.putFloat(localAnchor.x);
+			buffer.putFloat(localAnchor.y);
+			localAnchor = revoluteJoint.getLocalAnchorB();
+			buffer.putFloat(localAnchor.x);
+			buffer.putFloat(localAnchor.y);
+			buffer.putFloat(revoluteJoint.getReferenceAngle());
+			buffer.put((byte) (revoluteJoint.isLimitEnabled() ? 1 : 0));
+			buffer.putFloat(revoluteJoint.getLowerLimit());
+			buffer.putFloat(revoluteJoint.getUpperLimit());
+			buffer.put((byte) (revoluteJoint.isMotorEnabled() ? 1 : 0));
+			buffer.putFloat(revoluteJoint.getMotorSpeed());
+			buffer.putFloat(revoluteJoint.getMaxMotorTorque());
+			break;
+		case RopeJoint:
+			writeLocalAnchors(joint, buffer);
+			buffer.putFloat(((RopeJoint) joint).getMaxLength());
+			break;
+		case WeldJoint:
+			writeLocalAnchors(joint, buffer);
+			buffer.putFloat(((WeldJoint) joint).getReferenceAngle());
+			break;
+		default:
+			throw new GdxRuntimeException("Unsupported joint type "
+					+ joint.getType());
+		}
+	}
+
+	/**
+	 * Writes the anchors of a joint in the local coordinates of its bodies.
+	 * Only world anchors are exposed for most joint types.
+	 */
+	private static void writeLocalAnchors(Joint joint, ByteBuffer buffer) {
+		Vector2 anchor = joint.getBodyA().getLocalPoint(joint.getAnchorA());
+		buffer.putFloat(anchor.x);
+		buffer.putFloat(anchor.y);
+
+		anchor = joint.getBodyB().getLocalPoint(joint.getAnchorB());
+		buffer.putFloat(anchor.x);
+		buffer.putFloat(anchor.y);
+	}
+
+	private static Body readBody(ByteBuffer buffer, World world,
+			ShapeCache shapeCache, BodyDef bodyDef, FixtureDef fixtureDef,
+			float[] vertices) {
+		bodyDef.type = Box2DFactory.toBodyType(buffer.get());
+		int flags = buffer.get();
+		bodyDef.awake = (flags & AWAKE) != 0;
+		bodyDef.active = (flags & ACTIVE) != 0;
+		bodyDef.bullet = (flags & BULLET) != 0;
+		bodyDef.fixedRotation = (flags & FIXED_ROTATION) != 0;
+		bodyDef.allowSleep = (flags & SLEEPING_ALLOWED) != 0;
+		bodyDef.position.set(buffer.getFloat(), buffer.getFloat());
+		bodyDef.angle = buffer.getFloat();
+		float velocityX = buffer.getFloat();
+		float velocityY = buffer.getFloat();
+		float angularVelocity = buffer.getFloat();
+		bodyDef.linearDamping = buffer.getFloat();
+		bodyDef.angularDamping = buffer.getFloat();
+		bodyDef.gravityScale = buffer.getFloat();
+
+		Body body = world.createBody(bodyDef);
+		body.setUserData(readUserData(buffer));
+
+		int fixtureCount = buffer.getShort();
+		for (int i = 0; i < fixtureCount; i++) {
+			fixtureDef.density = buffer.getFloat();
+			fixtureDef.friction = buffer.getFloat();
+			fixtureDef.restitution = buffer.getFloat();
+			fixtureDef.isSensor = buffer.get() != 0;
+			fixtureDef.filter.categoryBits = buffer.getShort();
+			fixtureDef.filter.maskBits = buffer.getShort();
+			fixtureDef.filter.groupIndex = buffer.getShort();
+			Object userData = readUserData(buffer);
+
+			/* Shapes not taken from the cache are disposed right away */
+			Shape shape = readCachedShape(buffer, shapeCache, vertices);
+			boolean isCached = shape != null;
+			if (!isCached) {
+				shape = readShape(buffer);
+			}
+
+			fixtureDef.shape = shape;
+			body.createFixture(fixtureDef).setUserData(userData);
+
+			if (!isCached) {
+				shape.dispose();
+			}
+		}
+
+		/*
+		 * Velocities are set once the fixtures have moved the center of mass,
+		 * because Box2D changes the linear velocity of a rotating body when
+		 * its center of mass moves.
+		 */
+		if (velocityX != 0 || velocityY != 0) {
+			body.setLinearVelocity(velocityX, velocityY);
+		}
+		if (angularVelocity != 0) {
+			body.setAngularVelocity(angularVelocity);
+		}
+
+		return body;
+	}
+
+	private static Object readUserData(ByteBuffer buffer) {
+		if (buffer.get() == INTEGER_USER_DATA) {
+			return Integer.valueOf(buffer.getInt());
+		}
+
+		return null;
+	}
+
+	/**
+	 * Reads a centered circle or a polygon from the cache. Other shapes are
+	 * left in the buffer.
+	 *
+	 * @return The shape, or null if it can't be cached
+	 */
+	private static Shape readCachedShape(ByteBuffer buffer,
+			ShapeCache shapeCache, float[] vertices) {
+		int position = buffer.position();
+		int type = buffer.get();
+
+		if (type == CIRCLE) {
+			float radius = buffer.getFloat();
+			float x = buffer.getFloat();
+			float y = buffer.getFloat();
+			if (x == 0 && y == 0) {
+				return shapeCache.getCircle(radius);
+			}
+		} else if (type == POLYGON) {
+			int vertexCount = buffer.get();
+			if (vertexCount * 2 > vertices.length) {
+				throw new GdxRuntimeException("Too many polygon vertices: "
+						+ vertexCount);
+			}
+			for (int i = 0; i < vertexCount * 2; i++) {
+				vertices[i] = buffer.getFloat();
+			}
+			return shapeCache.getPolygon(vertices, vertexCount);
+		}
+
+		buffer.position(position);
+		return null;
+	}
+
+	private static Shape readShape(ByteBuffer buffer) {
+		int type = buffer.get();
+
+		switch (type) {
+		case CIRCLE:
+			CircleShape circle = new CircleShape();
+			circle.setRadius(buffer.getFloat());
+			circle.setPosition(new Vector2(buffer.getFloat(), buffer
+					.getFloat()));
+			return circle;
+		case EDGE:
+			EdgeShape edge = new EdgeShape();
+			edge.set(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(),
+					buffer.getFloat());
+			return edge;
+		case CHAIN:
+			boolean isLooped = buffer.get() != 0;
+			float[] chainVertices = new float[buffer.getInt() * 2];
+			for (int i = 0; i < chainVertices.length; i++) {
+				chainVertices[i] = buffer.getFloat();
+			}
+
+			ChainShape chain = new ChainShape();
+			if (isLooped) {
+				chain.createLoop(chainVertices);
+			} else {
+				chain.createChain(chainVertices);
+			}
+			return chain;
+		default:
+			throw new GdxRuntimeException("Unknown shape type " + type);
+		}
+	}
+
+	private static void readJoint(ByteBuffer buffer, World world,
+			Body[] bodies) {
+		JointType type = JointType.valueTypes[buffer.get()];
+		Body bodyA = bodies[buffer.getInt()];
+		Body bodyB = bodies[buffer.getInt()];
+
+		switch (type) {
+		case DistanceJoint:
+			DistanceJointDef distanceJointDef = new DistanceJointDef();
+			readLocalAnchors(buffer, distanceJointDef.localAnchorA,
+					distanceJointDef.localAnchorB);
+			distanceJointDef.length = buffer.getFloat();
+			distanceJointDef.frequencyHz = buffer.getFloat();
+			distanceJointDef.dampingRatio = buffer.getFloat();
+			createJoint(world, distanceJointDef, bodyA, bodyB);
+			break;
+		case FrictionJoint:
+			FrictionJointDef frictionJointDef = new FrictionJointDef();
+			readLocalAnchors(buffer, frictionJointDef.localAnchorA,
+					frictionJointDef.localAnchorB);
+			frictionJointDef.maxForce = buffer.getFloat();
+			frictionJointDef.maxTorque = buffer.getFloat();
+			createJoint(world, frictionJointDef, bodyA, bodyB);
+			break;
+		case MouseJoint:
+			MouseJointDef mouseJointDef = new MouseJointDef();
+			Vector2 target = new Vector2(buffer.getFloat(), buffer.getFloat());
+
+			/* Creating the joint at the anchor keeps its local anchor */
+			mouseJointDef.target.set(buffer.getFloat(), buffer.getFloat());
+			mouseJointDef.maxForce = buffer.getFloat();
+			mouseJointDef.frequencyHz = buffer.getFloat();
+			mouseJointDef.dampingRatio = buffer.getFloat();
+			((MouseJoint) createJoint(world, mouseJointDef, bodyA, bodyB))
+					.setTarget(target);
+			break;
+		case RevoluteJoint:
+			RevoluteJointDef revoluteJointDef = new RevoluteJointDef();
+			readLocalAnchors(buffer, revoluteJointDef.localAnchorA,
+					revoluteJointDef.localAnchorB);
+			revoluteJointDef.referenceAngle = buffer.getFloat();
+			revoluteJointDef.enableLimit = buffer.get() != 0;
+			revoluteJointDef.lowerAngle = buffer.getFloat();
+			revoluteJointDef.upperAngle = buffer.getFloat();
+			revoluteJointDef.enableMotor = buffer.get() != 0;
+			revoluteJointDef.motorSpeed = buffer.getFloat();
+			revoluteJointDef.maxMotorTorque = buffer.getFloat();
+			createJoint(world, revoluteJointDef, bodyA, bodyB);
+			break;
+		case RopeJoint:
+			RopeJointDef ropeJointDef = new RopeJointDef();
+			readLocalAnchors(buffer, ropeJointDef.localAnchorA,
+					ropeJointDef.localAnchorB);
+			ropeJointDef.maxLength = buffer.getFloat();
+			createJoint(world, ropeJointDef, bodyA, bodyB);
+			break;
+		case WeldJoint:
+			WeldJointDef weldJointDef = new WeldJointDef();
+			readLocalAnchors(buffer, weldJointDef.localAnchorA,
+					weldJointDef.localAnchorB);
+			weldJointDef.referenceAngle = buffer.getFloat();
+			createJoint(world, weldJointDef, bodyA, bodyB);
+			break;
+		default:
+			throw new GdxRuntimeException("Unsupported joint type " + type);
+		}
+	}
+
+	private static void readLocalAnchors(ByteBuffer buffer,
+			Vector2 localAnchorA, Vector2 localAnchorB) {
+		localAnchorA.set(buffer.getFloat(), buffer.getFloat());
+		localAnchorB.set(buffer.getFloat(), buffer.getFloat());
+	}
+
+	private static Joint createJoint(World world, JointDef jointDef,
+			Body bodyA, Body bodyB) {
+		jointDef.bodyA = bodyA;
+		jointDef.bodyB = bodyB;
+
+		return world.createJoint(jointDef);
+	}
+
+}
@@ -0,0 +1,286 @@
+package com.leakedbits.codelabs.box2d.utils;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.physics.box2d.ChainShape;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.EdgeShape;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.physics.box2d.Transform;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Copy of the state of every body of a world after a step. Once published by
+ * a {@link PhysicsThread} it is only read, so it can be drawn while the world
+ * keeps stepping. Arrays are reused between captures, so capturing doesn't
+ * allocate once they have grown enough.
+ *
+ * The local geometry of each fixture is read once and shared by every
+ * snapshot (See GeometryCache), so a capture only copies body transforms.
+ * Changes made to the shape of an existing fixture are not seen.
+ */
+public class WorldSnapshot {
+
+	public static final int CIRCLE = 0;
+	public static final int POLYGON = 1;
+	public static final int EDGE = 2;
+	public static final int CHAIN = 3;
+
+	/* Flags of each body */
+	private static final int AWAKE = 1;
+
+	private int stepCount;
+
+	/* Per body state, transforms are stored as x, y, cos and sin */
+	private Array<Object> userData = new Array<Object>();
+	private Array<BodyType> types = new Array<BodyType>();
+	private IntArray flags = new IntArray();
+	private FloatArray transforms = new FloatArray();
+	private IntArray firstFixtures = new IntArray();
+
+	/* Per fixture local geometry, shared with other snapshots */
+	private Array<FixtureGeometry> geometries = new Array<FixtureGeometry>();
+
+	/**
+	 * Local geometry of a fixture. It doesn't change once created, so
+	 * snapshots being drawn can keep reading it.
+	 */
+	private static class FixtureGeometry {
+		final Shape shape;
+		final int shapeType;
+		final float radius;
+		final float[] vertices;
+
+		/* Last capture that used it, only read by the physics thread */
+		int captureCount;
+
+		FixtureGeometry(Shape shape, int shapeType, float[] vertices) {
+			this.shape = shape;
+			this.shapeType = shapeType;
+			this.radius = shape.getRadius();
+			this.vertices = vertices;
+		}
+	}
+
+	/**
+	 * Local geometry of the fixtures of a world, shared by the snapshots
+	 * captured from it. Reading the geometry of a shape costs a native call
+	 * per vertex, so it is only done for new fixtures. libGDX reuses destroyed
+	 * fixtures, but a reused fixture gets a new Shape object, which is how the
+	 * cache knows its geometry is stale. Geometries of destroyed fixtures are
+	 * dropped after the capture that no longer finds them.
+	 */
+	static class GeometryCache {
+		private ObjectMap<Fixture, FixtureGeometry> geometries;
+		private int captureCount;
+		private int usedCount;
+		private Vector2 tmpVertex;
+
+		GeometryCache() {
+			geometries = new ObjectMap<Fixture, FixtureGeometry>();
+			tmpVertex = new Vector2();
+		}
+
+		void begin() {
+			captureCount++;
+			usedCount = 0;
+		}
+
+		FixtureGeometry get(Fixture fixture) {
+			Shape shape = fixture.getShape();
+			FixtureGeometry geometry = geometries.get(fixture);
+
+			if (geometry == null || geometry.shape != shape) {
+				geometry = createGeometry(shape);
+				geometries.put(fixture, geometry);
+			}
+
+			if (geometry.captureCount != captureCount) {
+				geometry.captureCount = captureCount;
+				usedCount++;
+			}
+
+			return geometry;
+		}
+
+		void end() {
+			if (geometries.size == usedCount) {
+				return;
+			}
+
+			ObjectMap.Values<FixtureGeometry> values = geometries.values();
+			while (values.hasNext()) {
+				if (values.next().captureCount != captureCount) {
+					values.remove();
+				}
+			}
+		}
+
+		private FixtureGeometry createGeometry(Shape shape) {
+			if (shape instanceof CircleShape) {
+				Vector2 position = ((CircleShape) shape).getPosition();
+				return new FixtureGeometry(shape, CIRCLE, new float[] {
+						position.x, position.y });
+			} else if (shape instanceof PolygonShape) {
+				PolygonShape polygon = (PolygonShape) shape;
+				float[] vertices = new float[polygon.getVertexCount() * 2];
+				for (int i = 0; i < polygon.getVertexCount(); i++) {
+					polygon.getVertex(i, tmpVertex);
+					vertices[i * 2] = tmpVertex.x;
+					vertices[i * 2 + 1] = tmpVertex.y;
+				}
+				return new FixtureGeometry(shape, POLYGON, vertices);
+			} else if (shape instanceof EdgeShape) {
+				EdgeShape edge = (EdgeShape) shape;
+				float[] vertices = new float[4];
+				edge.getVertex1(tmpVertex);
+				vertices[0] = tmpVertex.x;
+				vertices[1] = tmpVertex.y;
+				edge.getVertex2(tmpVertex);
+				vertices[2] = tmpVertex.x;
+				vertices[3] = tmpVertex.y;
+				return new FixtureGeometry(shape, EDGE, vertices);
+			} else {
+				ChainShape chain = (ChainShape) shape;
+				float[] vertices = new float[chain.getVertexCount() * 2];
+				for (int i = 0; i < chain.getVertexCount(); i++) {
+					chain.getVertex(i, tmpVertex);
+					vertices[i * 2] = tmpVertex.x;
+					vertices[i * 2 + 1] = tmpVertex.y;
+				}
+				return new FixtureGeometry(shape, CHAIN, vertices);
+			}
+		}
+	}
+
+	/**
+	 * Copies the state of the given bodies.
+	 *
+	 * @param cache Geometry of the fixtures, shared by the snapshots of the
+	 *        same world
+	 */
+	void capture(Array<Body> bodies, int stepCount, GeometryCache cache) {
+		this.stepCount = stepCount;
+
+		userData.clear();
+		types.clear();
+		flags.clear();
+		transforms.clear();
+		firstFixtures.clear();
+		geometries.clear();
+
+		cache.begin();
+
+		for (int i = 0; i < bodies.size; i++) {
+			Body body = bodies.get(i);
+
+			float[] values = body.getTransform().vals;
+			transforms.add(values[Transform.POS_X]);
+			transforms.add(values[Transform.POS_Y]);
+			transforms.add(values[Transform.COS]);
+			transforms.add(values[Transform.SIN]);
+
+			userData.add(body.getUserData());
+			types.add(body.getType());
+			flags.add(body.isAwake() ? AWAKE : 0);
+			firstFixtures.add(geometries.size);
+
+			Array<Fixture> fixtures = body.getFixtureList();
+			for (int j = 0; j < fixtures.size; j++) {
+				geometries.add(cache.get(fixtures.get(j)));
+			}
+		}
+
+		cache.end();
+
+		/* Sentinel, so the range of the last body is known */
+		firstFixtures.add(geometries.size);
+	}
+
+	/**
+	 * @return Number of world steps done when the snapshot was taken
+	 */
+	public int getStepCount() {
+		return stepCount;
+	}
+
+	public int getBodyCount() {
+		return types.size;
+	}
+
+	public Object getUserData(int body) {
+		return userData.get(body);
+	}
+
+	public BodyType getType(int body) {
+		return types.get(body);
+	}
+
+	public boolean isAwake(int body) {
+		return (flags.get(body) & AWAKE) != 0;
+	}
+
+	public float getX(int body) {
+		return transforms.get(body * 4);
+	}
+
+	public float getY(int body) {
+		return transforms.get(body * 4 + 1);
+	}
+
+	public float getCos(int body) {
+		return transforms.get(body * 4 + 2);
+	}
+
+	public float getSin(int body) {
+		return transforms.get(body * 4 + 3);
+	}
+
+	public float getAngle(int body) {
+		return (float) Math.atan2(getSin(body), getCos(body));
+	}
+
+	/**
+	 * @return Index of the first fixture of a body
+	 */
+	public int getFirstFixture(int body) {
+		return firstFixtures.get(body);
+	}
+
+	public int getFixtureCount(int body) {
+		return firstFixtures.get(body + 1) - firstFixtures.get(body);
+	}
+
+	/**
+	 * @return CIRCLE, POLYGON, EDGE or CHAIN
+	 */
+	public int getShapeType(int fixture) {
+		return geometries.get(fixture).shapeType;
+	}
+
+	public float getRadius(int fixture) {
+		return geometries.get(fixture).radius;
+	}
+
+	/**
+	 * @return Number of local vertices of a fixture, 1 for circles
+	 */
+	public int getVertexCount(int fixture) {
+		return geometries.get(fixture).vertices.length / 2;
+	}
+
+	public float getVertexX(int fixture, int vertex) {
+		return geometries.get(fixture).vertices[vertex * 2];
+	}
+
+	public float getVertexY(int fixture, int vertex) {
+		return geometries.get(fixture).vertices[vertex * 2 + 1];
+	}
+
+}
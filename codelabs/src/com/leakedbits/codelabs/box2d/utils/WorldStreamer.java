@@ -0,0 +1,297 @@
+package com.leakedbits.codelabs.box2d.utils;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Splits the bodies of a large world into square chunks and keeps only the
+ * chunks near the camera active. Inactive bodies are left out of the
+ * broadphase, the contacts and the solver, so their cost is close to zero,
+ * and they keep their state until their chunk is activated again.
+ *
+ * A chunk is activated when it gets closer to the view than activationMargin
+ * and deactivated when it gets farther than deactivationMargin. Activating a
+ * body recreates its broadphase proxies and deactivating it destroys its
+ * contacts, so the second margin is the larger one: a camera moving back
+ * and forth near a chunk border doesn't switch it on every step.
+ *
+ * Active dynamic bodies are moved to the chunk they are over on each
+ * update(). A body moving into an inactive chunk is deactivated with it.
+ * Bodies must not be streamed while the world is stepping, so call update()
+ * after World.step().
+ */
+public class WorldStreamer {
+
+	/* Distances from the view, in meters, to activate and deactivate chunks */
+	public float activationMargin;
+	public float deactivationMargin;
+
+	private final float chunkSize;
+	private final float inverseChunkSize;
+
+	private final LongMap<Chunk> chunks;
+	private final Array<Chunk> chunkList;
+	private final ObjectMap<Body, Chunk> bodyChunks;
+
+	/* Chunks switched on and off by the last update() */
+	private int activations;
+	private int deactivations;
+
+	private int activeChunkCount;
+
+	private static class Chunk {
+		final int cellX;
+		final int cellY;
+		final Array<Body> bodies;
+		boolean isActive;
+
+		Chunk(int cellX, int cellY) {
+			this.cellX = cellX;
+			this.cellY = cellY;
+			bodies = new Array<Body>(false, 16);
+		}
+	}
+
+	/**
+	 * @param chunkSize Side of the chunks in meters
+	 * @param activationMargin Distance from the view, in meters, at which a
+	 *        chunk is activated
+	 * @param deactivationMargin Distance from the view, in meters, at which a
+	 *        chunk is deactivated. Must not be less than activationMargin.
+	 */
+	public WorldStreamer(float chunkSize, float activationMargin,
+			float deactivationMargin) {
+		this.chunkSize = chunkSize;
+		this.activationMargin = activationMargin;
+		this.deactivationMargin = Math.max(activationMargin,
+				deactivationMargin);
+
+		inverseChunkSize = 1 / chunkSize;
+
+		chunks = new LongMap<Chunk>();
+		chunkList = new Array<Chunk>(false, 64);
+		bodyChunks = new ObjectMap<Body, Chunk>();
+	}
+
+	public float getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Adds a body to the chunk it is over. Chunks start inactive, so the body
+	 * is deactivated until the first update() finds its chunk near the view.
+	 */
+	public void add(Body body) {
+		Vector2 position = body.getPosition();
+		Chunk chunk = obtainChunk(toCell(position.x), toCell(position.y));
+
+		chunk.bodies.add(body);
+		bodyChunks.put(body, chunk);
+
+		if (body.isActive() != chunk.isActive) {
+			body.setActive(chunk.isActive);
+		}
+	}
+
+	/**
+	 * Stops streaming a body. Call it before destroying a streamed body. The
+	 * body keeps its current active state.
+	 */
+	public void remove(Body body) {
+		Chunk chunk = bodyChunks.remove(body);
+
+		if (chunk != null) {
+			chunk.bodies.removeValue(body, true);
+		}
+	}
+
+	/**
+	 * Removes every body and chunk. Bodies keep their current active state.
+	 */
+	public void clear() {
+		chunks.clear();
+		chunkList.clear();
+		bodyChunks.clear();
+		activations = 0;
+		deactivations = 0;
+		activeChunkCount = 0;
+	}
+
+	/**
+	 * Activates and deactivates chunks for the view of a camera.
+	 */
+	public void update(OrthographicCamera camera) {
+		float halfWidth = camera.viewportWidth * camera.zoom / 2;
+		float halfHeight = camera.viewportHeight * camera.zoom / 2;
+
+		update(camera.position.x - halfWidth, camera.position.y - halfHeight,
+				camera.position.x + halfWidth, camera.position.y + halfHeight);
+	}
+
+	/**
+	 * Moves active bodies to the chunk they are over, and then activates and
+	 * deactivates chunks for the given view.
+	 *
+	 * @param lowerX Left of the view, in meters
+	 * @param lowerY Bottom of the view, in meters
+	 * @param upperX Right of the view, in meters
+	 * @param upperY Top of the view, in meters
+	 */
+	public void update(float lowerX, float lowerY, float upperX, float upperY) {
+		activations = 0;
+		deactivations = 0;
+
+		/* Chunks may be added while moving bodies, they are empty then */
+		int chunkCount = chunkList.size;
+		for (int i = 0; i < chunkCount; i++) {
+			Chunk chunk = chunkList.get(i);
+			if (chunk.isActive) {
+				moveBodies(chunk);
+			}
+		}
+
+		for (int i = 0; i < chunkList.size; i++) {
+			Chunk chunk = chunkList.get(i);
+
+			if (chunk.isActive) {
+				if (!overlaps(chunk, lowerX, lowerY, upperX, upperY,
+						deactivationMargin)) {
+					setActive(chunk, false);
+					deactivations++;
+				}
+			} else if (overlaps(chunk, lowerX, lowerY, upperX, upperY,
+					activationMargin)) {
+				setActive(chunk, true);
+				activations++;
+			}
+		}
+	}
+
+	public int getChunkCount() {
+		return chunkList.size;
+	}
+
+	public int getActiveChunkCount() {
+		return activeChunkCount;
+	}
+
+	/**
+	 * @return Number of streamed bodies, active or not
+	 */
+	public int getBodyCount() {
+		return bodyChunks.size;
+	}
+
+	/**
+	 * @return Number of streamed bodies in active chunks
+	 */
+	public int getActiveBodyCount() {
+		int count = 0;
+
+		for (int i = 0; i < chunkList.size; i++) {
+			Chunk chunk = chunkList.get(i);
+			if (chunk.isActive) {
+				count += chunk.bodies.size;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * @return Number of chunks activated by the last update()
+	 */
+	public int getActivations() {
+		return activations;
+	}
+
+	/**
+	 * @return Number of chunks deactivated by the last update()
+	 */
+	public int getDeactivations() {
+		return deactivations;
+	}
+
+	/**
+	 * Moves the awake dynamic bodies of a chunk that left it to the chunk
+	 * they are over now.
+	 */
+	private void moveBodies(Chunk chunk) {
+		Array<Body> bodies = chunk.bodies;
+
+		for (int i = bodies.size - 1; i >= 0; i--) {
+			Body body = bodies.get(i);
+
+			if (body.getType() != BodyType.DynamicBody || !body.isAwake()) {
+				continue;
+			}
+
+			Vector2 position = body.getPosition();
+			int cellX = toCell(position.x);
+			int cellY = toCell(position.y);
+
+			if (cellX == chunk.cellX && cellY == chunk.cellY) {
+				continue;
+			}
+
+			Chunk newChunk = obtainChunk(cellX, cellY);
+			bodies.removeIndex(i);
+			newChunk.bodies.add(body);
+			bodyChunks.put(body, newChunk);
+
+			if (!newChunk.isActive) {
+				body.setActive(false);
+			}
+		}
+	}
+
+	private void setActive(Chunk chunk, boolean isActive) {
+		chunk.isActive = isActive;
+		activeChunkCount += isActive ? 1 : -1;
+
+		Array<Body> bodies = chunk.bodies;
+		for (int i = 0; i < bodies.size; i++) {
+			bodies.get(i).setActive(isActive);
+		}
+	}
+
+	/**
+	 * Checks whether a chunk overlaps the view grown by a margin.
+	 */
+	private boolean overlaps(Chunk chunk, float lowerX, float lowerY,
+			float upperX, float upperY, float margin) {
+		float chunkX = chunk.cellX * chunkSize;
+		float chunkY = chunk.cellY * chunkSize;
+
+		return chunkX <= upperX + margin && chunkY <= upperY + margin
+				&& chunkX + chunkSize >= lowerX - margin
+				&& chunkY + chunkSize >= lowerY - margin;
+	}
+
+	private Chunk obtainChunk(int cellX, int cellY) {
+		long key = toKey(cellX, cellY);
+		Chunk chunk = chunks.get(key);
+
+		if (chunk == null) {
+			chunk = new Chunk(cellX, cellY);
+			chunks.put(key, chunk);
+			chunkList.add(chunk);
+		}
+
+		return chunk;
+	}
+
+	private int toCell(float coordinate) {
+		return (int) Math.floor(coordinate * inverseChunkSize);
+	}
+
+	private static long toKey(int cellX, int cellY) {
+		return (long) cellX << 32 | (cellY & 0xFFFFFFFFL);
+	}
+
+}
@@ -0,0 +1,122 @@
+package com.leakedbits.codelabs.utils;
+
+import com.badlogic.gdx.assets.AssetLoaderParameters;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.SkinLoader.SkinParameter;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+/**
+ * Assets shared by every screen, loaded by an AssetManager and counted by
+ * reference. Screens acquire what they use when shown and release it when
+ * disposed. An asset is unloaded when nothing references it anymore, except
+ * the preloaded ones, which are referenced by the cache itself so they stay
+ * loaded between screens.
+ *
+ * preload() queues the assets of the menu and the samples. They are loaded a
+ * bit on each update() call, while the splash screen is shown, and acquiring
+ * an asset that isn't loaded yet finishes loading the queue.
+ */
+public class AssetCache implements Disposable {
+
+	public static final String CODELABS_SPLASH = "data/images/codelabs_splash.png";
+	public static final String GITHUB_SPLASH = "data/images/github_splash.png";
+	public static final String MENU_ATLAS = "data/ui/atlas.pack";
+	public static final String MENU_SKIN = "data/ui/menu_skin.json";
+	public static final String CRAB = "data/images/crab.png";
+
+	private final AssetManager manager;
+
+	/* References of each asset loaded or queued by the cache */
+	private final ObjectIntMap<String> references;
+
+	public AssetCache() {
+		manager = new AssetManager();
+		references = new ObjectIntMap<String>();
+	}
+
+	/**
+	 * Queues the assets of the menu and the samples, and keeps a reference
+	 * to each one so they are never unloaded.
+	 */
+	public void preload() {
+		retain(MENU_SKIN, Skin.class, new SkinParameter(MENU_ATLAS));
+		retain(CRAB, Texture.class, null);
+	}
+
+	/**
+	 * Loads part of the queued assets. Call it once per frame.
+	 *
+	 * @return Whether every queued asset is loaded
+	 */
+	public boolean update() {
+		return manager.update();
+	}
+
+	/**
+	 * @return Loaded fraction of the queued assets, from 0 to 1
+	 */
+	public float getProgress() {
+		return manager.getProgress();
+	}
+
+	/**
+	 * Gets an asset and adds a reference to it. It is loaded right away if it
+	 * isn't loaded yet. Each call must be paired with a call to release().
+	 */
+	public <T> T acquire(String fileName, Class<T> type) {
+		return acquire(fileName, type, null);
+	}
+
+	public <T> T acquire(String fileName, Class<T> type,
+			AssetLoaderParameters<T> parameters) {
+		retain(fileName, type, parameters);
+
+		if (!manager.isLoaded(fileName, type)) {
+			manager.finishLoading();
+		}
+
+		return manager.get(fileName, type);
+	}
+
+	/**
+	 * Removes a reference to an asset, and unloads it if it was the last one.
+	 * Releasing an asset that wasn't acquired from this cache is an error.
+	 */
+	public void release(String fileName) {
+		if (!references.containsKey(fileName)) {
+			throw new GdxRuntimeException("Asset not referenced: " + fileName);
+		}
+
+		int count = references.getAndIncrement(fileName, 0, -1) - 1;
+
+		if (count <= 0) {
+			references.remove(fileName, 0);
+			manager.unload(fileName);
+		}
+	}
+
+	public int getReferenceCount(String fileName) {
+		return references.get(fileName, 0);
+	}
+
+	@Override
+	public void dispose() {
+		manager.dispose();
+		references.clear();
+	}
+
+	/**
+	 * Adds a reference to an asset, and queues it the first time.
+	 */
+	private <T> void retain(String fileName, Class<T> type,
+			AssetLoaderParameters<T> parameters) {
+		if (references.getAndIncrement(fileName, 0, 1) == 0) {
+			manager.load(fileName, type, parameters);
+		}
+	}
+
+}
@@ -0,0 +1,292 @@
+package com.leakedbits.codelabs.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ByteArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Input received by a sample while it was recorded: touch events, keys that
+ * change the simulation and accelerometer readings, each with the index of the step it happened before
+ * and its time in milliseconds since the recording started. The header holds
+ * what is needed to rebuild the same world (sample class, screen size and
+ * random seed) and the checksum of the bodies after the last step, so a
+ * replay can check it ends in the same state (See Sample.startReplay()).
+ *
+ * Events are kept in arrays of primitives and written in a compact binary
+ * format, a few bytes per event.
+ */
+public class InputLog {
+
+	public static final int MAGIC = 0x42324952; /* "B2IR" */
+	public static final int VERSION = 2;
+
+	public static final byte TOUCH_DOWN = 0;
+	public static final byte TOUCH_UP = 1;
+	public static final byte TOUCH_DRAGGED = 2;
+	public static final byte ACCELEROMETER = 3;
+	public static final byte KEY_DOWN = 4;
+	public static final byte KEY_UP = 5;
+
+	/* Values stored per event, unused ones are 0 */
+	private static final int EVENT_SIZE = 4;
+
+	public String sampleClassName;
+	public int screenWidth;
+	public int screenHeight;
+	public long seed;
+
+	/* Number of steps recorded and checksum of the world after them */
+	public int stepCount;
+	public long checksum;
+
+	private final IntArray steps = new IntArray();
+	private final IntArray times = new IntArray();
+	private final ByteArray types = new ByteArray();
+
+	/*
+	 * Touch events store x, y, pointer and button. Accelerometer readings
+	 * store the bits of x, y and z. Key events store the key code.
+	 */
+	private final IntArray values = new IntArray();
+
+	public void addTouchDown(int step, int time, int screenX, int screenY,
+			int pointer, int button) {
+		add(step, time, TOUCH_DOWN, screenX, screenY, pointer, button);
+	}
+
+	public void addTouchUp(int step, int time, int screenX, int screenY,
+			int pointer, int button) {
+		add(step, time, TOUCH_UP, screenX, screenY, pointer, button);
+	}
+
+	public void addTouchDragged(int step, int time, int screenX, int screenY,
+			int pointer) {
+		add(step, time, TOUCH_DRAGGED, screenX, screenY, pointer, 0);
+	}
+
+	public void addAccelerometer(int step, int time, float x, float y, float z) {
+		add(step, time, ACCELEROMETER, Float.floatToIntBits(x),
+				Float.floatToIntBits(y), Float.floatToIntBits(z), 0);
+	}
+
+	public void addKeyDown(int step, int time, int keycode) {
+		add(step, time, KEY_DOWN, keycode, 0, 0, 0);
+	}
+
+	public void addKeyUp(int step, int time, int keycode) {
+		add(step, time, KEY_UP, keycode, 0, 0, 0);
+	}
+
+	public int size() {
+		return types.size;
+	}
+
+	public void clear() {
+		steps.clear();
+		times.clear();
+		types.clear();
+		values.clear();
+		stepCount = 0;
+		checksum = 0;
+	}
+
+	public int getStep(int event) {
+		return steps.get(event);
+	}
+
+	/**
+	 * @return Milliseconds since the recording started
+	 */
+	public int getTime(int event) {
+		return times.get(event);
+	}
+
+	public byte getType(int event) {
+		return types.get(event);
+	}
+
+	public int getScreenX(int event) {
+		return values.get(event * EVENT_SIZE);
+	}
+
+	public int getScreenY(int event) {
+		return values.get(event * EVENT_SIZE + 1);
+	}
+
+	public int getPointer(int event) {
+		return values.get(event * EVENT_SIZE + 2);
+	}
+
+	public int getButton(int event) {
+		return values.get(event * EVENT_SIZE + 3);
+	}
+
+	public int getKeycode(int event) {
+		return values.get(event * EVENT_SIZE);
+	}
+
+	public float getAccelerometerX(int event) {
+		return Float.intBitsToFloat(values.get(event * EVENT_SIZE));
+	}
+
+	public float getAccelerometerY(int event) {
+		return Float.intBitsToFloat(values.get(event * EVENT_SIZE + 1));
+	}
+
+	public float getAccelerometerZ(int event) {
+		return Float.intBitsToFloat(values.get(event * EVENT_SIZE + 2));
+	}
+
+	/**
+	 * Writes the log. Screen coordinates and key codes are stored as shorts
+	 * and pointers and buttons as bytes. The stream is not closed.
+	 */
+	public void write(OutputStream stream) throws IOException {
+		DataOutputStream output = new DataOutputStream(stream);
+
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+		output.writeUTF(sampleClassName);
+		output.writeInt(screenWidth);
+		output.writeInt(screenHeight);
+		output.writeLong(seed);
+		output.writeInt(stepCount);
+		output.writeLong(checksum);
+		output.writeInt(size());
+
+		for (int i = 0; i < size(); i++) {
+			byte type = types.get(i);
+			output.writeByte(type);
+			output.writeInt(steps.get(i));
+			output.writeInt(times.get(i));
+
+			int offset = i * EVENT_SIZE;
+			if (type == ACCELEROMETER) {
+				output.writeInt(values.get(offset));
+				output.writeInt(values.get(offset + 1));
+				output.writeInt(values.get(offset + 2));
+			} else if (type == KEY_DOWN || type == KEY_UP) {
+				output.writeShort(values.get(offset));
+			} else {
+				output.writeShort(values.get(offset));
+				output.writeShort(values.get(offset + 1));
+				output.writeByte(values.get(offset + 2));
+				if (type != TOUCH_DRAGGED) {
+					output.writeByte(values.get(offset + 3));
+				}
+			}
+		}
+
+		output.flush();
+	}
+
+	/**
+	 * Reads a log written by write(). Logs of version 1 have no key events
+	 * and are read the same way. The stream is not closed.
+	 */
+	public static InputLog read(InputStream stream) throws IOException {
+		DataInputStream input = new DataInputStream(stream);
+
+		if (input.readInt() != MAGIC) {
+			throw new GdxRuntimeException("Not an input log");
+		}
+
+		int version = input.readInt();
+		if (version < 1 || version > VERSION) {
+			throw new GdxRuntimeException("Unsupported input log version: "
+					+ version);
+		}
+
+		InputLog log = new InputLog();
+		log.sampleClassName = input.readUTF();
+		log.screenWidth = input.readInt();
+		log.screenHeight = input.readInt();
+		log.seed = input.readLong();
+		log.stepCount = input.readInt();
+		log.checksum = input.readLong();
+
+		int size = input.readInt();
+		for (int i = 0; i < size; i++) {
+			byte type = input.readByte();
+			int step = input.readInt();
+			int time = input.readInt();
+
+			if (type == ACCELEROMETER) {
+				log.add(step, time, type, input.readInt(), input.readInt(),
+						input.readInt(), 0);
+			} else if (type == KEY_DOWN || type == KEY_UP) {
+				log.add(step, time, type, input.readShort(), 0, 0, 0);
+			} else {
+				int screenX = input.readShort();
+				int screenY = input.readShort();
+				int pointer = input.readByte();
+				int button = type != TOUCH_DRAGGED ? input.readByte() : 0;
+				log.add(step, time, type, screenX, screenY, pointer, button);
+			}
+		}
+
+		return log;
+	}
+
+	/**
+	 * Hashes the position, angle and velocities of every body of a world with
+	 * 64 bit FNV-1a. Two worlds stepped with the same input on the same
+	 * platform get the same checksum, any difference in a single bit of a body
+	 * state changes it. World.getBodies() doesn't return the bodies in the
+	 * same order on every run, so the hashes of the bodies are summed.
+	 *
+	 * @param bodies Array used to read the bodies, to avoid allocating one
+	 */
+	public static long checksum(World world, Array<Body> bodies) {
+		world.getBodies(bodies);
+
+		long checksum = 0;
+		for (int i = 0; i < bodies.size; i++) {
+			Body body = bodies.get(i);
+			Vector2 position = body.getPosition();
+			long hash = 0xcbf29ce484222325L;
+			hash = hash(hash, position.x);
+			hash = hash(hash, position.y);
+			hash = hash(hash, body.getAngle());
+
+			Vector2 velocity = body.getLinearVelocity();
+			hash = hash(hash, velocity.x);
+			hash = hash(hash, velocity.y);
+			hash = hash(hash, body.getAngularVelocity());
+
+			checksum += hash;
+		}
+
+		int bodyCount = bodies.size;
+		bodies.clear();
+
+		return checksum ^ bodyCount;
+	}
+
+	private static long hash(long hash, float value) {
+		hash ^= Float.floatToIntBits(value);
+		return hash * 0x100000001b3L;
+	}
+
+	private void add(int step, int time, byte type, int value0, int value1,
+			int value2, int value3) {
+		steps.add(step);
+		times.add(time);
+		types.add(type);
+		values.add(value0);
+		values.add(value1);
+		values.add(value2);
+		values.add(value3);
+	}
+
+}
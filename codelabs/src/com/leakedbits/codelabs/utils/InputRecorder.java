@@ -0,0 +1,82 @@
+package com.leakedbits.codelabs.utils;
+
+import com.badlogic.gdx.InputProcessor;
+
+/**
+ * Input processor used while a sample is recorded. Touch events and the keys
+ * that change the simulation (See Sample.isSimulationKey()) are added to the
+ * log with the current step of the sample and then passed to it. Other keys
+ * only control the sample, so they are passed without being recorded.
+ */
+public class InputRecorder implements InputProcessor {
+
+	private final Sample sample;
+	private final InputLog log;
+	private final long startTime;
+
+	public InputRecorder(Sample sample, InputLog log) {
+		this.sample = sample;
+		this.log = log;
+		startTime = System.currentTimeMillis();
+	}
+
+	@Override
+	public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+		log.addTouchDown(sample.getStepIndex(), getTime(), screenX, screenY,
+				pointer, button);
+		return sample.touchDown(screenX, screenY, pointer, button);
+	}
+
+	@Override
+	public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+		log.addTouchUp(sample.getStepIndex(), getTime(), screenX, screenY,
+				pointer, button);
+		return sample.touchUp(screenX, screenY, pointer, button);
+	}
+
+	@Override
+	public boolean touchDragged(int screenX, int screenY, int pointer) {
+		log.addTouchDragged(sample.getStepIndex(), getTime(), screenX,
+				screenY, pointer);
+		return sample.touchDragged(screenX, screenY, pointer);
+	}
+
+	@Override
+	public boolean keyDown(int keycode) {
+		if (sample.isSimulationKey(keycode)) {
+			log.addKeyDown(sample.getStepIndex(), getTime(), keycode);
+		}
+		return sample.keyDown(keycode);
+	}
+
+	@Override
+	public boolean keyUp(int keycode) {
+		if (sample.isSimulationKey(keycode)) {
+			log.addKeyUp(sample.getStepIndex(), getTime(), keycode);
+		}
+		return sample.keyUp(keycode);
+	}
+
+	@Override
+	public boolean keyTyped(char character) {
+		return sample.keyTyped(character);
+	}
+
+	@Override
+	public boolean mouseMoved(int screenX, int screenY) {
+		return sample.mouseMoved(screenX, screenY);
+	}
+
+	@Override
+	public boolean scrolled(int amount) {
+		return sample.scrolled(amount);
+	}
+
+	/**
+	 * @return Milliseconds since the recording started
+	 */
+	public int getTime() {
+		return (int) (System.currentTimeMillis() - startTime);
+	}
+
+}
@@ -0,0 +1,223 @@
+package com.leakedbits.codelabs.utils;
+
+import java.lang.ref.WeakReference;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Performance measurements of a sample: frame, render, world step and
+ * onWorldStep() times in milliseconds, kept in rolling histograms, along with
+ * the latest world counts, heap use and number of garbage collections.
+ *
+ * Steps may be recorded from the physics thread while frames are recorded
+ * and read from the render thread, so every method is synchronized. The
+ * histograms are shared, so read them in a block synchronized on the metrics.
+ */
+public class PerformanceMetrics {
+
+	/**
+	 * Receives the metrics periodically, on the render thread, for example to
+	 * stream them to a file.
+	 */
+	public interface Listener {
+		void onMetrics(PerformanceMetrics metrics);
+	}
+
+	/* Number of frames or steps kept by each histogram */
+	public static final int HISTORY_SIZE = 120;
+
+	private final RollingHistogram frameTimes;
+	private final RollingHistogram renderTimes;
+	private final RollingHistogram stepTimes;
+	private final RollingHistogram stepListenerTimes;
+
+	private int bodyCount;
+	private int contactCount;
+	private int jointCount;
+	private float sleepingRatio;
+
+	private long heapUsed;
+	private int gcCount;
+
+	/* Time taken to enter the sample, until its first frame */
+	private float entryTime;
+
+	/*
+	 * Object only reachable through a weak reference. It is cleared by the
+	 * first garbage collection that happens, which counts collections on any
+	 * platform without a management API.
+	 */
+	private WeakReference<Object> gcSentinel;
+
+	private Listener listener;
+	private int reportInterval = 60;
+	private int framesSinceReport;
+
+	public PerformanceMetrics() {
+		frameTimes = new RollingHistogram(HISTORY_SIZE);
+		renderTimes = new RollingHistogram(HISTORY_SIZE);
+		stepTimes = new RollingHistogram(HISTORY_SIZE);
+		stepListenerTimes = new RollingHistogram(HISTORY_SIZE);
+		gcSentinel = new WeakReference<Object>(new Object());
+	}
+
+	/**
+	 * @param frameNanos Time spent in the whole frame
+	 * @param renderNanos Part of the frame not spent stepping the world
+	 */
+	public void recordFrame(long frameNanos, long renderNanos) {
+		Listener listener;
+
+		synchronized (this) {
+			frameTimes.add(frameNanos / 1000000f);
+			renderTimes.add(renderNanos / 1000000f);
+
+			Runtime runtime = Runtime.getRuntime();
+			heapUsed = runtime.totalMemory() - runtime.freeMemory();
+
+			if (gcSentinel.get() == null) {
+				gcCount++;
+				gcSentinel = new WeakReference<Object>(new Object());
+			}
+
+			listener = null;
+			if (++framesSinceReport >= reportInterval) {
+				framesSinceReport = 0;
+				listener = this.listener;
+			}
+		}
+
+		/* Called without holding the lock so the physics thread never waits */
+		if (listener != null) {
+			listener.onMetrics(this);
+		}
+	}
+
+	/**
+	 * @param stepNanos Time spent in World.step()
+	 * @param listenerNanos Time spent in Sample.onWorldStep()
+	 */
+	public synchronized void recordStep(long stepNanos, long listenerNanos) {
+		stepTimes.add(stepNanos / 1000000f);
+		stepListenerTimes.add(listenerNanos / 1000000f);
+	}
+
+	/**
+	 * Reads the counts of a world. It must be called from the thread that
+	 * steps the world.
+	 *
+	 * @param bodies Array used to read the bodies, to avoid allocating one
+	 */
+	public void recordWorld(World world, Array<Body> bodies) {
+		world.getBodies(bodies);
+
+		int sleepingBodies = 0;
+		for (int i = 0; i < bodies.size; i++) {
+			if (!bodies.get(i).isAwake()) {
+				sleepingBodies++;
+			}
+		}
+
+		synchronized (this) {
+			bodyCount = bodies.size;
+			contactCount = world.getContactCount();
+			jointCount = world.getJointCount();
+			sleepingRatio = bodies.size > 0 ? sleepingBodies
+					/ (float) bodies.size : 0;
+		}
+
+		bodies.clear();
+	}
+
+	/**
+	 * @param entryTime Milliseconds from creating the sample to the end of its
+	 *        first frame
+	 */
+	public synchronized void recordEntry(float entryTime) {
+		this.entryTime = entryTime;
+	}
+
+	public synchronized void clear() {
+		frameTimes.clear();
+		renderTimes.clear();
+		stepTimes.clear();
+		stepListenerTimes.clear();
+		framesSinceReport = 0;
+	}
+
+	public synchronized void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @param reportInterval Number of frames between two listener calls
+	 */
+	public synchronized void setReportInterval(int reportInterval) {
+		this.reportInterval = reportInterval;
+	}
+
+	public synchronized RollingHistogram getFrameTimes() {
+		return frameTimes;
+	}
+
+	public synchronized RollingHistogram getRenderTimes() {
+		return renderTimes;
+	}
+
+	public synchronized RollingHistogram getStepTimes() {
+		return stepTimes;
+	}
+
+	/**
+	 * Times of Sample.onWorldStep(), where samples update their controllers,
+	 * such as BuoyancyController.step().
+	 */
+	public synchronized RollingHistogram getStepListenerTimes() {
+		return stepListenerTimes;
+	}
+
+	public synchronized int getBodyCount() {
+		return bodyCount;
+	}
+
+	public synchronized int getContactCount() {
+		return contactCount;
+	}
+
+	public synchronized int getJointCount() {
+		return jointCount;
+	}
+
+	/**
+	 * @return Fraction of bodies that are sleeping, from 0 to 1
+	 */
+	public synchronized float getSleepingRatio() {
+		return sleepingRatio;
+	}
+
+	/**
+	 * @return Java heap in use, in bytes
+	 */
+	public synchronized long getHeapUsed() {
+		return heapUsed;
+	}
+
+	/**
+	 * @return Milliseconds from creating the sample to the end of its first
+	 *         frame, or 0 if it hasn't been rendered yet
+	 */
+	public synchronized float getEntryTime() {
+		return entryTime;
+	}
+
+	/**
+	 * @return Number of frames where at least one garbage collection
+	 *         happened
+	 */
+	public synchronized int getGcCount() {
+		return gcCount;
+	}
+
+}
@@ -0,0 +1,106 @@
+package com.leakedbits.codelabs.utils;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Draws the performance metrics of a sample over it, in the top left corner
+ * of the screen. The text is only rebuilt a few times per second, so it
+ * stays readable and doesn't create garbage every frame.
+ */
+public class PerformanceOverlay implements Disposable {
+
+	/* Frames between two updates of the text */
+	private static final int UPDATE_INTERVAL = 15;
+
+	private static final float MARGIN = 8;
+
+	private SpriteBatch batch;
+	private BitmapFont font;
+
+	private StringBuilder text;
+	private int framesSinceUpdate;
+
+	public PerformanceOverlay() {
+		batch = new SpriteBatch();
+		font = new BitmapFont();
+		font.setColor(Color.YELLOW);
+		text = new StringBuilder();
+		framesSinceUpdate = UPDATE_INTERVAL;
+	}
+
+	public void resize(int width, int height) {
+		batch.getProjectionMatrix().setToOrtho2D(0, 0, width, height);
+	}
+
+	public void render(PerformanceMetrics metrics, float screenHeight) {
+		if (++framesSinceUpdate >= UPDATE_INTERVAL) {
+			framesSinceUpdate = 0;
+			updateText(metrics);
+		}
+
+		batch.begin();
+		font.drawMultiLine(batch, text, MARGIN, screenHeight - MARGIN);
+		batch.end();
+	}
+
+	private void updateText(PerformanceMetrics metrics) {
+		text.setLength(0);
+
+		synchronized (metrics) {
+			appendTimes("frame", metrics.getFrameTimes());
+			appendTimes("render", metrics.getRenderTimes());
+			appendTimes("step", metrics.getStepTimes());
+			appendTimes("onWorldStep", metrics.getStepListenerTimes());
+
+			text.append("bodies ").append(metrics.getBodyCount())
+					.append(" (").append(
+							Math.round(metrics.getSleepingRatio() * 100))
+					.append("% sleeping), contacts ")
+					.append(metrics.getContactCount()).append(", joints ")
+					.append(metrics.getJointCount()).append('\n');
+			text.append("heap ").append(metrics.getHeapUsed() / 1024)
+					.append(" KB, GCs ").append(metrics.getGcCount())
+					.append('\n');
+			text.append("entry ");
+			appendMillis(metrics.getEntryTime());
+			text.append(" ms");
+		}
+	}
+
+	/**
+	 * Appends mean, 99th percentile and max in milliseconds.
+	 */
+	private void appendTimes(String label, RollingHistogram times) {
+		text.append(label).append(" ");
+		appendMillis(times.getMean());
+		text.append(" / ");
+		appendMillis(times.getPercentile(0.99f));
+		text.append(" / ");
+		appendMillis(times.getMax());
+		text.append(" ms\n");
+	}
+
+	/**
+	 * Appends a value with two decimals without String.format().
+	 */
+	private void appendMillis(float value) {
+		int hundredths = Math.round(value * 100);
+		text.append(hundredths / 100).append('.');
+
+		int decimals = hundredths % 100;
+		if (decimals < 10) {
+			text.append('0');
+		}
+		text.append(decimals);
+	}
+
+	@Override
+	public void dispose() {
+		batch.dispose();
+		font.dispose();
+	}
+
+}
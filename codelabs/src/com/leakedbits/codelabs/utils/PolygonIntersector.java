@@ -78,12 +78,77 @@ public class PolygonIntersector {
 						* inversedCrossDirection);
 	}
 
+	/**
+	 * Returns the intersection of two convex polygons using their transformed
+	 * vertices.
+	 * 
+	 * @param subjectPolygon Polygon to be clipped
+	 * @param clipPolygon Convex polygon used to clip the subject
+	 * @return The intersection polygon or null if polygons don't overlap
+	 */
 	public static Polygon intersectPolygons(Polygon subjectPolygon, Polygon clipPolygon) {
-		return intersectPolygons(subjectPolygon.getVertices(), clipPolygon.getVertices());
+		return intersectPolygons(subjectPolygon.getTransformedVertices(),
+				clipPolygon.getTransformedVertices());
 	}
-	
+
+	/**
+	 * Returns the intersection of two convex polygons given as interleaved x/y
+	 * coordinates. A new polygon is allocated for the result, hot paths should
+	 * use {@link #intersectPolygons(float[], float[], float[], float[])}
+	 * instead.
+	 * 
+	 * @param subjectVertices Interleaved vertices of the subject polygon
+	 * @param clipVertices Interleaved vertices of the clip polygon
+	 * @return The intersection polygon or null if polygons don't overlap
+	 */
 	public static Polygon intersectPolygons(float[] subjectVertices, float[] clipVertices) {
-		return null;
+		int capacity = getClippingCapacity(subjectVertices.length / 2,
+				clipVertices.length / 2);
+		float[] intersectionVertices;
+		int count;
+
+		/* Grow the arrays until the clipped polygon fits */
+		do {
+			intersectionVertices = new float[capacity * 2];
+			count = intersectPolygons(subjectVertices, clipVertices,
+					intersectionVertices, new float[capacity * 2]);
+			capacity *= 2;
+		} while (count == -1);
+
+		if (count < 3) {
+			return null;
+		}
+
+		float[] vertices = new float[count * 2];
+		System.arraycopy(intersectionVertices, 0, vertices, 0, count * 2);
+
+		return new Polygon(vertices);
+	}
+
+	/**
+	 * Computes the intersection of two convex polygons given as interleaved
+	 * x/y coordinates without allocating any object. See
+	 * {@link #clipPolygons(float[], int, float[], int, float[], float[])}
+	 * for the size of the output arrays.
+	 * 
+	 * @param subjectVertices Interleaved vertices of the subject polygon
+	 * @param clipVertices Interleaved vertices of the clip polygon
+	 * @param intersectionVertices Array where the intersection will be stored
+	 * @param buffer Scratch array used during clipping
+	 * @return Number of vertices of the intersection polygon, or -1 if the
+	 *         arrays are too small
+	 */
+	public static int intersectPolygons(float[] subjectVertices,
+			float[] clipVertices, float[] intersectionVertices, float[] buffer) {
+		int subjectCount = subjectVertices.length / 2;
+		int clipCount = clipVertices.length / 2;
+
+		if (subjectCount < 3 || clipCount < 3) {
+			return 0;
+		}
+
+		return clipPolygons(subjectVertices, subjectCount, clipVertices,
+				clipCount, intersectionVertices, buffer);
 	}
 	
 	public static List<Vector2> clipPolygons(List<Vector2> subjectPolygon,
@@ -130,6 +195,198 @@ public class PolygonIntersector {
 		return clippedPolygonVertices;
 	}
 
+	/**
+	 * Clips the subject polygon against the clip polygon using the
+	 * Sutherland-Hodgman algorithm. Vertices are stored as interleaved x/y
+	 * coordinates and no objects are allocated, so this method can be used
+	 * in every physics step.
+	 *
+	 * Each clip edge may add a vertex per part of the polygon it cuts off,
+	 * and rounding near shared vertices and collinear edges adds more, so no
+	 * small bound holds for every input. Size both arrays with
+	 * {@link #getClippingCapacity(int, int)}. When the clipped polygon
+	 * doesn't fit, nothing is written past the arrays and -1 is returned;
+	 * grow them and clip again.
+	 *
+	 * @param subjectVertices Interleaved vertices of the subject polygon
+	 * @param subjectCount Number of vertices of the subject polygon
+	 * @param clipVertices Interleaved vertices of the clip polygon
+	 * @param clipCount Number of vertices of the clip polygon
+	 * @param clippedVertices Array where the clipped polygon will be stored
+	 * @param buffer Scratch array used between clip edges
+	 * @return Number of vertices of the clipped polygon, or -1 if the arrays
+	 *         are too small
+	 */
+	public static int clipPolygons(float[] subjectVertices, int subjectCount,
+			float[] clipVertices, int clipCount, float[] clippedVertices,
+			float[] buffer) {
+		float[] input = buffer;
+		float[] output = clippedVertices;
+		int capacity = Math.min(clippedVertices.length, buffer.length) / 2;
+
+		if (subjectCount > capacity) {
+			return -1;
+		}
+
+		System.arraycopy(subjectVertices, 0, output, 0, subjectCount * 2);
+		int outputCount = subjectCount;
+
+		float clipStartX = clipVertices[clipCount * 2 - 2];
+		float clipStartY = clipVertices[clipCount * 2 - 1];
+
+		for (int i = 0; i < clipCount && outputCount > 0; i++) {
+			float clipEndX = clipVertices[i * 2];
+			float clipEndY = clipVertices[i * 2 + 1];
+
+			/* Swap buffers, previous output is the input of this clip edge */
+			float[] swap = input;
+			input = output;
+			output = swap;
+
+			int inputCount = outputCount;
+			outputCount = 0;
+
+			float testStartX = input[inputCount * 2 - 2];
+			float testStartY = input[inputCount * 2 - 1];
+			boolean isStartInside = isPointInLineSegment(testStartX,
+					testStartY, clipStartX, clipStartY, clipEndX, clipEndY);
+
+			for (int j = 0; j < inputCount; j++) {
+				float testEndX = input[j * 2];
+				float testEndY = input[j * 2 + 1];
+				boolean isEndInside = isPointInLineSegment(testEndX, testEndY,
+						clipStartX, clipStartY, clipEndX, clipEndY);
+
+				if (isEndInside != isStartInside) {
+					if (outputCount == capacity) {
+						return -1;
+					}
+					outputCount = addEdgesIntersection(output, outputCount,
+							clipStartX, clipStartY, clipEndX, clipEndY,
+							testStartX, testStartY, testEndX, testEndY);
+				}
+
+				if (isEndInside) {
+					if (outputCount == capacity) {
+						return -1;
+					}
+					output[outputCount * 2] = testEndX;
+					output[outputCount * 2 + 1] = testEndY;
+					outputCount++;
+				}
+
+				testStartX = testEndX;
+				testStartY = testEndY;
+				isStartInside = isEndInside;
+			}
+
+			clipStartX = clipEndX;
+			clipStartY = clipEndY;
+		}
+
+		if (output != clippedVertices) {
+			System.arraycopy(output, 0, clippedVertices, 0, outputCount * 2);
+		}
+
+		return outputCount;
+	}
+
+	/**
+	 * Gets the number of vertices the arrays given to clipPolygons() should
+	 * hold. Two convex polygons clipped in exact arithmetic give at most
+	 * subjectCount + clipCount vertices; twice that leaves room for concave
+	 * subjects and rounding, which clipPolygons() reports if it is exceeded.
+	 */
+	public static int getClippingCapacity(int subjectCount, int clipCount) {
+		return 2 * (subjectCount + clipCount);
+	}
+
+	/**
+	 * Stores the intersection point between two edges at the given position
+	 * of the vertices array.
+	 *
+	 * @return The new number of vertices stored in the array
+	 */
+	private static int addEdgesIntersection(float[] vertices, int count,
+			float firstStartX, float firstStartY, float firstEndX,
+			float firstEndY, float secondStartX, float secondStartY,
+			float secondEndX, float secondEndY) {
+		float firstDirectionX = firstStartX - firstEndX;
+		float firstDirectionY = firstStartY - firstEndY;
+		float secondDirectionX = secondStartX - secondEndX;
+		float secondDirectionY = secondStartY - secondEndY;
+
+		/* Cross product of each edge */
+		float crossFirstEdge = firstStartX * firstEndY - firstStartY
+				* firstEndX;
+		float crossSecondEdge = secondStartX * secondEndY - secondStartY
+				* secondEndX;
+
+		float inversedCrossDirection = 1 / (firstDirectionX * secondDirectionY - firstDirectionY
+				* secondDirectionX);
+
+		vertices[count * 2] = (crossFirstEdge * secondDirectionX - crossSecondEdge
+				* firstDirectionX)
+				* inversedCrossDirection;
+		vertices[count * 2 + 1] = (crossFirstEdge * secondDirectionY - crossSecondEdge
+				* firstDirectionY)
+				* inversedCrossDirection;
+
+		return count + 1;
+	}
+
+	/**
+	 * Computes the area and the centroid of a polygon stored as interleaved
+	 * x/y coordinates. The result is written in the given properties so no
+	 * objects are allocated.
+	 *
+	 * @param vertices Interleaved vertices of the polygon
+	 * @param count Number of vertices of the polygon
+	 * @param polygonProperties Properties where the result will be stored
+	 * @return The given properties or null if the polygon has less than three
+	 *         vertices
+	 */
+	public static PolygonProperties computePolygonProperties(float[] vertices,
+			int count, PolygonProperties polygonProperties) {
+		if (count < 3) {
+			return null;
+		}
+
+		float centroidX = 0;
+		float centroidY = 0;
+		float area = 0;
+		float threeInverse = 1 / 3f;
+
+		for (int i = 0; i < count; i++) {
+			/*
+			 * Use the origin, the current vertex and the next one as vertices
+			 * of a triangle.
+			 */
+			float firstX = vertices[i * 2];
+			float firstY = vertices[i * 2 + 1];
+			int next = i + 1 < count ? i + 1 : 0;
+			float secondX = vertices[next * 2];
+			float secondY = vertices[next * 2 + 1];
+
+			float triangleArea = (firstX * secondY - firstY * secondX) / 2;
+			area += triangleArea;
+
+			/* Area weighted centroid */
+			float weight = triangleArea * threeInverse;
+			centroidX += (firstX + secondX) * weight;
+			centroidY += (firstY + secondY) * weight;
+		}
+
+		if (area > EPSILON) {
+			centroidX /= area;
+			centroidY /= area;
+		} else {
+			area = 0;
+		}
+
+		return polygonProperties.set(centroidX, centroidY, area);
+	}
+
 	public static PolygonProperties computePolygonProperties(Vector2[] polygon) {
 		PolygonProperties polygonProperties = null;
 
@@ -0,0 +1,87 @@
+package com.leakedbits.codelabs.utils;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the last values of a measurement, such as frame times, and computes
+ * their mean, max and percentiles. Old values are overwritten, so the stats
+ * follow recent behavior, and nothing is allocated after construction.
+ */
+public class RollingHistogram {
+
+	private final float[] values;
+	private final float[] sorted;
+
+	/* Index of the next value to overwrite and number of values stored */
+	private int next;
+	private int size;
+
+	private boolean isSortedDirty;
+
+	public RollingHistogram(int capacity) {
+		values = new float[capacity];
+		sorted = new float[capacity];
+	}
+
+	public void add(float value) {
+		values[next] = value;
+		next = (next + 1) % values.length;
+		size = Math.min(size + 1, values.length);
+		isSortedDirty = true;
+	}
+
+	public void clear() {
+		next = 0;
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return The most recent value, or 0 if there is none
+	 */
+	public float getLast() {
+		if (size == 0) {
+			return 0;
+		}
+
+		return values[(next + values.length - 1) % values.length];
+	}
+
+	public float getMean() {
+		if (size == 0) {
+			return 0;
+		}
+
+		float total = 0;
+		for (int i = 0; i < size; i++) {
+			total += values[i];
+		}
+
+		return total / size;
+	}
+
+	public float getMax() {
+		return getPercentile(1);
+	}
+
+	/**
+	 * @param fraction Fraction of values below the result, from 0 to 1
+	 */
+	public float getPercentile(float fraction) {
+		if (size == 0) {
+			return 0;
+		}
+
+		if (isSortedDirty) {
+			System.arraycopy(values, 0, sorted, 0, size);
+			Arrays.sort(sorted, 0, size);
+			isSortedDirty = false;
+		}
+
+		return sorted[Math.round((size - 1) * fraction)];
+	}
+
+}
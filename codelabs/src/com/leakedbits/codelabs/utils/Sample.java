@@ -1,15 +1,107 @@
 package com.leakedbits.codelabs.utils;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input.Keys;
 import com.badlogic.gdx.InputAdapter;
+import com.badlogic.gdx.InputProcessor;
 import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
 import com.leakedbits.codelabs.MainMenu;
+import com.leakedbits.codelabs.box2d.utils.PhysicsThread;
+import com.leakedbits.codelabs.box2d.utils.WorldPool;
+import com.leakedbits.codelabs.box2d.utils.WorldSnapshot;
 
 public class Sample extends InputAdapter implements Screen {
 	
-	protected static String name = "Default sample name";
+	/* Fixed time step of the physics simulation, 1/60 of a second */
+	public static final float TIME_STEP = 1 / 60f;
+	public static final int VELOCITY_ITERATIONS = 6;
+	public static final int POSITION_ITERATIONS = 2;
+
+	/* Default max number of physics steps done in a single frame */
+	public static final int MAX_STEPS = 5;
+
+	/* Number of steps between two reads of the world counts */
+	public static final int WORLD_STATS_INTERVAL = 30;
+
+	/* Max number of emptied worlds kept for each sleep setting */
+	public static final int MAX_POOLED_WORLDS = 2;
+
+	/*
+	 * Worlds and camera reused by every sample, so entering a sample doesn't
+	 * build them again. Only one sample runs at a time.
+	 */
+	private static final WorldPool worldPool = new WorldPool(MAX_POOLED_WORLDS);
+	private static OrthographicCamera sharedCamera;
+
+	/* Name of this sample, set by each subclass in its constructor */
+	protected String name = "Default sample name";
+
+	/*
+	 * Max number of physics steps done in a single frame. Time that doesn't
+	 * fit is dropped, so the simulation slows down instead of falling behind
+	 * on slow devices.
+	 */
+	protected int maxSteps = MAX_STEPS;
+
+	/* Size in pixels of the screen given to createWorld() */
+	private int screenWidth;
+	private int screenHeight;
+
+	/* World stepped by this sample, time not simulated yet and interpolation */
+	private World world;
+	private boolean isWorldPooled;
+	private boolean isWorldReused;
+	private boolean doSleep;
+	private float accumulator;
+	private float alpha;
+
+	/* Thread that steps the world when the sample runs physics on its own */
+	private PhysicsThread physicsThread;
+
+	/*
+	 * Performance measurements, time spent stepping in the current frame,
+	 * steps since the world counts were read and the array used to read them.
+	 */
+	private PerformanceMetrics metrics = new PerformanceMetrics();
+	private long frameStepTime;
+	private int stepsSinceWorldStats;
+	private Array<Body> statsBodies = new Array<Body>();
+	private boolean isOverlayVisible;
+
+	/* Steps done since createWorld(), used to place recorded input */
+	private int stepIndex;
+
+	/* Random numbers of the sample, seeded in createWorld() */
+	private Random random = new Random();
+	private long seed = System.nanoTime();
+
+	/* Accelerometer values read at the start of the last step */
+	private Vector3 accelerometer = new Vector3();
+
+	/* Input being recorded, or replayed with the index of its next event */
+	private InputLog recordedLog;
+	private InputRecorder inputRecorder;
+	private InputLog replayedLog;
+	private int replayedEvent;
+
+	/* Recording and replaying need a world built from scratch */
+	private boolean isWorldReusable = true;
+
+	/* Time the sample was created, to measure how long it takes to enter it */
+	private final long creationTime = System.nanoTime();
+	private boolean hasEntered;
 
 	@Override
 	public void render(float delta) {
@@ -23,7 +115,7 @@ public class Sample extends InputAdapter implements Screen {
 
 	@Override
 	public void show() {
-		Gdx.input.setInputProcessor(this);
+		Gdx.input.setInputProcessor(getInputProcessor());
 		Gdx.input.setCatchBackKey(true);
 	}
 
@@ -34,29 +126,580 @@ public class Sample extends InputAdapter implements Screen {
 
 	@Override
 	public void pause() {
-		
+		if (physicsThread != null) {
+			physicsThread.pause();
+		}
 	}
 
 	@Override
 	public void resume() {
-		
+		if (physicsThread != null) {
+			physicsThread.resume();
+		}
 	}
 
 	@Override
 	public void dispose() {
-		
+		disposeWorld();
+	}
+
+	/**
+	 * Builds the world of the sample and everything needed to simulate it.
+	 * Nothing here may use graphics or input, so the simulation can also run
+	 * without a GL context (See HeadlessRunner). Subclasses call it from
+	 * show() with the size of the screen and must call super.createWorld()
+	 * first.
+	 *
+	 * @param screenWidth Width of the screen in pixels
+	 * @param screenHeight Height of the screen in pixels
+	 */
+	public void createWorld(int screenWidth, int screenHeight) {
+		this.screenWidth = screenWidth;
+		this.screenHeight = screenHeight;
+
+		stepIndex = 0;
+		random.setSeed(seed);
+		accelerometer.set(0, 0, 0);
+	}
+
+	/**
+	 * Releases what createWorld() built. Stops the physics thread, if any,
+	 * and disposes the registered world. Subclasses that own more resources
+	 * of the simulation free them and then call super.disposeWorld().
+	 */
+	public void disposeWorld() {
+		stopPhysicsThread();
+
+		if (world != null) {
+			if (isWorldPooled) {
+				worldPool.free(world, doSleep);
+			} else {
+				world.dispose();
+			}
+			world = null;
+		}
 	}
 	
 	public String getName() {
 		return name;
 	}
 
+	/**
+	 * Gets an empty world from the pool shared by every sample, or creates
+	 * one if there is none, and registers it. It goes back to the pool in
+	 * disposeWorld(), emptied, so entering another sample doesn't pay for
+	 * building a native world.
+	 *
+	 * @param doSleep Whether bodies can sleep
+	 */
+	protected World obtainWorld(Vector2 gravity, boolean doSleep) {
+		World world;
+		int hits = worldPool.getHits();
+
+		if (isWorldReusable) {
+			world = worldPool.obtain(gravity, doSleep);
+		} else {
+			world = new World(gravity, doSleep);
+		}
+
+		setWorld(world);
+		this.doSleep = doSleep;
+		isWorldPooled = true;
+		isWorldReused = worldPool.getHits() > hits;
+
+		return world;
+	}
+
+	/**
+	 * Gets the camera shared by every sample, reset to look at the origin
+	 * with the given viewport.
+	 */
+	protected OrthographicCamera obtainCamera(float viewportWidth,
+			float viewportHeight) {
+		if (sharedCamera == null) {
+			sharedCamera = new OrthographicCamera();
+		}
+
+		OrthographicCamera camera = sharedCamera;
+		camera.viewportWidth = viewportWidth;
+		camera.viewportHeight = viewportHeight;
+		camera.zoom = 1;
+		camera.position.set(0, 0, 0);
+		camera.direction.set(0, 0, -1);
+		camera.up.set(0, 1, 0);
+		camera.update();
+
+		return camera;
+	}
+
+	public static WorldPool getWorldPool() {
+		return worldPool;
+	}
+
+	/**
+	 * Registers the world stepped by stepWorld(). It is disposed, not pooled,
+	 * by disposeWorld().
+	 */
+	protected void setWorld(World world) {
+		this.world = world;
+		isWorldPooled = false;
+		isWorldReused = false;
+		accumulator = 0;
+		alpha = 0;
+	}
+
+	public World getWorld() {
+		return world;
+	}
+
+	/**
+	 * Steps the registered world with a fixed time step as many times as the
+	 * elapsed time allows, up to maxSteps.
+	 *
+	 * @param delta Time in seconds since the last frame
+	 * @return Number of steps done
+	 */
+	protected int stepWorld(float delta) {
+		/* The physics thread steps the world by itself */
+		if (world == null || physicsThread != null) {
+			return 0;
+		}
+
+		accumulator += Math.min(delta, maxSteps * TIME_STEP);
+
+		int steps = 0;
+		while (accumulator >= TIME_STEP && steps < maxSteps) {
+			step();
+			accumulator -= TIME_STEP;
+			steps++;
+		}
+
+		alpha = Math.min(accumulator / TIME_STEP, 1);
+
+		return steps;
+	}
+
+	/**
+	 * Steps the registered world once with the fixed time step, regardless
+	 * of the elapsed time. Used to run the simulation without rendering.
+	 */
+	public void step() {
+		if (replayedLog != null) {
+			replayEvents();
+		} else {
+			readAccelerometer();
+		}
+
+		long start = System.nanoTime();
+		world.step(TIME_STEP, VELOCITY_ITERATIONS, POSITION_ITERATIONS);
+		long stepEnd = System.nanoTime();
+		onWorldStep(TIME_STEP);
+		long end = System.nanoTime();
+
+		recordStep(stepEnd - start, end - stepEnd);
+		frameStepTime += end - start;
+
+		stepIndex++;
+		if (replayedLog != null && stepIndex >= replayedLog.stepCount) {
+			replayedLog = null;
+		}
+	}
+
+	/**
+	 * Gets the number of steps done since the world was created. Input is
+	 * recorded and replayed at these indices.
+	 */
+	public int getStepIndex() {
+		return stepIndex;
+	}
+
+	/**
+	 * Gets the simulated time since the world was created. Unlike the system
+	 * clock, it is the same when the input is replayed, so use it to time
+	 * touches.
+	 *
+	 * @return Time in milliseconds
+	 */
+	protected long getSimulationTime() {
+		return (long) (stepIndex * (double) TIME_STEP * 1000);
+	}
+
+	/**
+	 * Gets the random numbers used by the sample. They are seeded when the
+	 * world is created, so a replay gets the same numbers.
+	 */
+	protected Random getRandom() {
+		return random;
+	}
+
+	/**
+	 * Sets the seed of getRandom(), applied the next time the world is
+	 * created.
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Accelerometer values are read once, at the start of each step done by
+	 * step(), so they are the same for the whole step and can be recorded.
+	 * They stay at 0 without an input backend.
+	 */
+	protected float getAccelerometerX() {
+		return accelerometer.x;
+	}
+
+	protected float getAccelerometerY() {
+		return accelerometer.y;
+	}
+
+	protected float getAccelerometerZ() {
+		return accelerometer.z;
+	}
+
+	/**
+	 * Gets the input processor of the sample, which records the input while
+	 * recording and is the sample itself otherwise.
+	 */
+	public InputProcessor getInputProcessor() {
+		return inputRecorder != null ? inputRecorder : this;
+	}
+
+	/**
+	 * Rebuilds the world and starts recording touches and accelerometer
+	 * readings from its first step. The world is then stepped with step(),
+	 * not by the physics thread, so the input lands on known steps. It is a
+	 * new world, not a pooled one, which would order contacts differently
+	 * than the replay. Recording can also be toggled with the R key.
+	 */
+	public void startRecording() {
+		replayedLog = null;
+		isWorldReusable = false;
+		restartWorld(screenWidth, screenHeight);
+		isWorldReusable = true;
+
+		recordedLog = new InputLog();
+		recordedLog.sampleClassName = getClass().getName();
+		recordedLog.screenWidth = screenWidth;
+		recordedLog.screenHeight = screenHeight;
+		recordedLog.seed = seed;
+
+		inputRecorder = new InputRecorder(this, recordedLog);
+		if (Gdx.input != null) {
+			Gdx.input.setInputProcessor(inputRecorder);
+		}
+	}
+
+	/**
+	 * Stops recording and stores the number of steps done and the checksum
+	 * of the bodies in the log.
+	 *
+	 * @return The recorded log
+	 */
+	public InputLog stopRecording() {
+		InputLog log = recordedLog;
+		log.stepCount = stepIndex;
+		log.checksum = InputLog.checksum(world, statsBodies);
+
+		recordedLog = null;
+		inputRecorder = null;
+		if (Gdx.input != null) {
+			Gdx.input.setInputProcessor(this);
+		}
+
+		return log;
+	}
+
+	public boolean isRecording() {
+		return recordedLog != null;
+	}
+
+	/**
+	 * Rebuilds the world, as a new one, with the screen size and seed of a
+	 * recorded log.
+	 * The next calls to step() pass each recorded event to the sample before
+	 * the step it happened before, until all the recorded steps are done.
+	 * Then the bodies can be compared with InputLog.checksum().
+	 */
+	public void startReplay(InputLog log) {
+		if (recordedLog != null) {
+			stopRecording();
+		}
+
+		seed = log.seed;
+		isWorldReusable = false;
+		restartWorld(log.screenWidth, log.screenHeight);
+		isWorldReusable = true;
+
+		replayedLog = log.stepCount > 0 ? log : null;
+		replayedEvent = 0;
+	}
+
+	public boolean isReplaying() {
+		return replayedLog != null;
+	}
+
+	/**
+	 * Disposes the world, if any, and builds it again.
+	 */
+	protected void restartWorld(int screenWidth, int screenHeight) {
+		if (world != null) {
+			disposeWorld();
+		}
+
+		createWorld(screenWidth, screenHeight);
+	}
+
+	/**
+	 * Records the time of a whole frame. Called by the application after
+	 * rendering the sample. The time spent stepping the world in this thread
+	 * is subtracted to get the render time.
+	 */
+	public void recordFrame(long frameTime) {
+		metrics.recordFrame(frameTime, frameTime - frameStepTime);
+		frameStepTime = 0;
+
+		/*
+		 * The first frame ends the entry, which counts creating the sample,
+		 * showing it and rendering once.
+		 */
+		if (!hasEntered) {
+			hasEntered = true;
+
+			float entryTime = (System.nanoTime() - creationTime) / 1000000f;
+			metrics.recordEntry(entryTime);
+			Gdx.app.log(getName(), "Entered in " + entryTime + " ms"
+					+ (isWorldReused ? " with a pooled world" : ""));
+		}
+	}
+
+	public PerformanceMetrics getMetrics() {
+		return metrics;
+	}
+
+	public boolean isOverlayVisible() {
+		return isOverlayVisible;
+	}
+
+	/**
+	 * Shows or hides the performance metrics over the sample. They can also
+	 * be toggled with the P or menu keys.
+	 */
+	public void setOverlayVisible(boolean isOverlayVisible) {
+		this.isOverlayVisible = isOverlayVisible;
+	}
+
+	/**
+	 * Called after each fixed step of the world. Override to update anything
+	 * that must run at the same rate as the physics.
+	 *
+	 * @param timeStep Fixed time step, in seconds
+	 */
+	protected void onWorldStep(float timeStep) {
+		
+	}
+
+	/**
+	 * Tells whether a key changes the simulation. Presses and releases of
+	 * these keys are recorded and replayed like touches, the rest only
+	 * control the sample and are left out of recordings.
+	 */
+	protected boolean isSimulationKey(int keycode) {
+		return false;
+	}
+
+	/**
+	 * Gets how far the simulation is between the last two steps, used to
+	 * interpolate body transforms when rendering (See BodySpriteRenderer).
+	 *
+	 * @return Value between 0 (previous step) and 1 (last step)
+	 */
+	public float getAlpha() {
+		return alpha;
+	}
+
+	/**
+	 * Starts stepping the registered world on its own thread, so rendering
+	 * and physics run at the same time. From now on the world must only be
+	 * changed through runOnPhysicsThread() and drawn through getSnapshot().
+	 * onWorldStep() is called on the physics thread.
+	 */
+	protected void startPhysicsThread() {
+		physicsThread = new PhysicsThread(world, TIME_STEP,
+				VELOCITY_ITERATIONS, POSITION_ITERATIONS,
+				new PhysicsThread.StepListener() {
+
+					@Override
+					public void onWorldStep(float timeStep) {
+						long start = System.nanoTime();
+						Sample.this.onWorldStep(timeStep);
+						recordStep(physicsThread.getLastStepTime(),
+								System.nanoTime() - start);
+						stepIndex++;
+					}
+				});
+		physicsThread.start();
+	}
+
+	/**
+	 * Stops the physics thread, if any, and waits for it to finish. Called by
+	 * disposeWorld() before disposing the world.
+	 */
+	protected void stopPhysicsThread() {
+		if (physicsThread != null) {
+			physicsThread.stop();
+			physicsThread = null;
+		}
+	}
+
+	public boolean isPhysicsThreaded() {
+		return physicsThread != null;
+	}
+
+	/**
+	 * Runs a task that changes the world. It is queued until the next step
+	 * when the physics thread is running, and run right away otherwise.
+	 */
+	protected void runOnPhysicsThread(Runnable task) {
+		if (physicsThread != null) {
+			physicsThread.post(task);
+		} else {
+			task.run();
+		}
+	}
+
+	/**
+	 * Gets the latest state of the world published by the physics thread.
+	 *
+	 * @return The snapshot, or null if the physics thread is not running
+	 */
+	protected WorldSnapshot getSnapshot() {
+		return physicsThread != null ? physicsThread.getSnapshot() : null;
+	}
+
+	/**
+	 * Converts a point from screen to world coordinates using the screen size
+	 * given to createWorld(). Unlike Camera.unproject(), it doesn't need a
+	 * graphics backend.
+	 *
+	 * @param point Point in screen coordinates, overwritten with the result
+	 * @return The given point
+	 */
+	protected Vector3 unproject(Camera camera, Vector3 point) {
+		point.x = 2 * point.x / screenWidth - 1;
+		point.y = 2 * (screenHeight - point.y - 1) / screenHeight - 1;
+		point.z = 2 * point.z - 1;
+
+		return point.prj(camera.invProjectionView);
+	}
+
+	/**
+	 * Records the times of a step and, from time to time, the world counts.
+	 * Called from the thread that steps the world.
+	 */
+	private void recordStep(long stepTime, long listenerTime) {
+		metrics.recordStep(stepTime, listenerTime);
+
+		if (++stepsSinceWorldStats >= WORLD_STATS_INTERVAL) {
+			stepsSinceWorldStats = 0;
+			metrics.recordWorld(world, statsBodies);
+		}
+	}
+
+	private void readAccelerometer() {
+		if (Gdx.input == null) {
+			return;
+		}
+
+		float x = Gdx.input.getAccelerometerX();
+		float y = Gdx.input.getAccelerometerY();
+		float z = Gdx.input.getAccelerometerZ();
+
+		/* Only changes are recorded */
+		boolean hasChanged = x != accelerometer.x || y != accelerometer.y
+				|| z != accelerometer.z;
+		if (recordedLog != null && hasChanged) {
+			recordedLog.addAccelerometer(stepIndex, inputRecorder.getTime(), x,
+					y, z);
+		}
+
+		accelerometer.set(x, y, z);
+	}
+
+	/**
+	 * Passes to the sample the recorded events that happened before the
+	 * current step.
+	 */
+	private void replayEvents() {
+		InputLog log = replayedLog;
+
+		while (replayedEvent < log.size()
+				&& log.getStep(replayedEvent) <= stepIndex) {
+			int event = replayedEvent++;
+
+			switch (log.getType(event)) {
+			case InputLog.TOUCH_DOWN:
+				touchDown(log.getScreenX(event), log.getScreenY(event),
+						log.getPointer(event), log.getButton(event));
+				break;
+			case InputLog.TOUCH_UP:
+				touchUp(log.getScreenX(event), log.getScreenY(event),
+						log.getPointer(event), log.getButton(event));
+				break;
+			case InputLog.TOUCH_DRAGGED:
+				touchDragged(log.getScreenX(event), log.getScreenY(event),
+						log.getPointer(event));
+				break;
+			case InputLog.ACCELEROMETER:
+				accelerometer.set(log.getAccelerometerX(event),
+						log.getAccelerometerY(event),
+						log.getAccelerometerZ(event));
+				break;
+			case InputLog.KEY_DOWN:
+				keyDown(log.getKeycode(event));
+				break;
+			case InputLog.KEY_UP:
+				keyUp(log.getKeycode(event));
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Writes a recorded log to a local file named after the sample class.
+	 */
+	private void saveRecording(InputLog log) {
+		String fileName = getClass().getSimpleName() + ".replay";
+
+		try {
+			OutputStream stream = Gdx.files.local(fileName).write(false);
+			try {
+				log.write(stream);
+			} finally {
+				stream.close();
+			}
+
+			Gdx.app.log(getName(), "Recorded " + log.stepCount + " steps and "
+					+ log.size() + " events to " + fileName);
+		} catch (IOException e) {
+			Gdx.app.error(getName(), "Can't write " + fileName, e);
+		}
+	}
+
 	@Override
 	public boolean keyDown(int keycode) {
 		if (keycode == Keys.BACK || keycode == Keys.ESCAPE) {
 			dispose();
 			Gdx.input.setCatchBackKey(false);
 			((Game) Gdx.app.getApplicationListener()).setScreen(new MainMenu());
+		} else if (keycode == Keys.P || keycode == Keys.MENU) {
+			isOverlayVisible = !isOverlayVisible;
+		} else if (keycode == Keys.R) {
+			if (isRecording()) {
+				saveRecording(stopRecording());
+			} else {
+				startRecording();
+			}
 		}
 		
 		return true;
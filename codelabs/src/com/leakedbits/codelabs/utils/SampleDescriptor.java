@@ -0,0 +1,35 @@
+package com.leakedbits.codelabs.utils;
+
+/**
+ * Describes a sample without creating it: the key used to look it up, the
+ * name shown in the menu and a factory method. Creating a sample builds its
+ * fields, so it is only done when the sample is about to be shown.
+ */
+public abstract class SampleDescriptor {
+
+	private final String id;
+	private final String name;
+
+	/**
+	 * @param id Unique key of the sample, such as its class simple name
+	 * @param name Name shown in the menu
+	 */
+	public SampleDescriptor(String id, String name) {
+		this.id = id;
+		this.name = name;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Creates a new instance of the sample. Each call returns a new one.
+	 */
+	public abstract Sample create();
+
+}
@@ -0,0 +1,60 @@
+package com.leakedbits.codelabs.utils;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Ordered list of sample descriptors, indexed by id so a sample is found in
+ * constant time. Samples are not created until SampleDescriptor.create() is
+ * called, which doesn't use reflection and also works with GWT.
+ */
+public class SampleRegistry {
+
+	private final Array<SampleDescriptor> descriptors = new Array<SampleDescriptor>();
+	private final ObjectMap<String, SampleDescriptor> index = new ObjectMap<String, SampleDescriptor>();
+
+	/**
+	 * Adds a sample after the ones already registered.
+	 *
+	 * @throws GdxRuntimeException If another sample has the same id
+	 */
+	public void add(SampleDescriptor descriptor) {
+		if (index.containsKey(descriptor.getId())) {
+			throw new GdxRuntimeException("Sample already registered: "
+					+ descriptor.getId());
+		}
+
+		descriptors.add(descriptor);
+		index.put(descriptor.getId(), descriptor);
+	}
+
+	/**
+	 * @return The descriptor with the given id, or null if there is none
+	 */
+	public SampleDescriptor get(String id) {
+		return index.get(id);
+	}
+
+	/**
+	 * Creates the sample with the given id.
+	 *
+	 * @return The new sample, or null if there is no sample with that id
+	 */
+	public Sample create(String id) {
+		SampleDescriptor descriptor = index.get(id);
+		return descriptor != null ? descriptor.create() : null;
+	}
+
+	/**
+	 * @return Descriptors in registration order. Don't modify the array.
+	 */
+	public Array<SampleDescriptor> getDescriptors() {
+		return descriptors;
+	}
+
+	public int size() {
+		return descriptors.size;
+	}
+
+}